@@ -0,0 +1,100 @@
+package net.coderodde.simulation.network;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import net.coderodde.simulation.network.topology.ConnectivityPolicy;
+import net.coderodde.simulation.network.topology.TopologyGenerator;
+
+/**
+ * This class builds the networks and the packet lists of the benchmarks. The
+ * topology families are:
+ * <ul>
+ *   <li>{@code sparse}: a random <tt>G(n, m)</tt> graph with four links per
+ *       router,</li>
+ *   <li>{@code dense}: the same with {@code sqrt(n)} links per router,</li>
+ *   <li>{@code torus}: a square two-dimensional torus.</li>
+ * </ul>
+ * The components of the random graphs are bridged, so all networks are
+ * connected. They depend only on the seed.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+final class BenchmarkNetworks {
+
+    private BenchmarkNetworks() {}
+
+    /**
+     * Builds a network of the family {@code topology} with about
+     * {@code size} routers.
+     *
+     * @param topology the name of the topology family.
+     * @param size     the requested number of routers.
+     * @param seed     the seed of the random links.
+     * @return the network.
+     */
+    static List<PacketRouter> create(final String topology,
+                                     final int size,
+                                     final long seed) {
+        switch (topology) {
+            case "sparse":
+                return createRandom(size, 4 * size, seed);
+
+            case "dense":
+                return createRandom(size,
+                                    size * (int) Math.sqrt(size),
+                                    seed);
+
+            case "torus":
+                final int side = (int) Math.sqrt(size);
+                return TopologyGenerator.torus(side, side)
+                                        .generate(seed)
+                                        .getPacketRouters();
+
+            default:
+                throw new IllegalArgumentException(
+                        "Unknown topology: " + topology);
+        }
+    }
+
+    /**
+     * Creates {@code numberOfPackets} packets with uniformly chosen distinct
+     * terminals.
+     *
+     * @param network         the network.
+     * @param numberOfPackets the number of packets.
+     * @param seed            the seed.
+     * @return the packet list.
+     */
+    static List<Packet> createPackets(final List<PacketRouter> network,
+                                      final int numberOfPackets,
+                                      final long seed) {
+        final SplittableRandom random = new SplittableRandom(seed);
+        final List<Packet> packetList = new ArrayList<>(numberOfPackets);
+
+        for (int id = 0; id < numberOfPackets; ++id) {
+            final int sourceIndex = random.nextInt(network.size());
+            int targetIndex = random.nextInt(network.size() - 1);
+
+            if (targetIndex >= sourceIndex) {
+                ++targetIndex;
+            }
+
+            packetList.add(new Packet(id,
+                                      network.get(sourceIndex),
+                                      network.get(targetIndex)));
+        }
+
+        return packetList;
+    }
+
+    private static List<PacketRouter> createRandom(final int size,
+                                                   final int links,
+                                                   final long seed) {
+        return TopologyGenerator.random(size, links)
+                                .generate(seed,
+                                          ConnectivityPolicy.BRIDGE_COMPONENTS)
+                                .getPacketRouters();
+    }
+}
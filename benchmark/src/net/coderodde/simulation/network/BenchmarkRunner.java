@@ -0,0 +1,34 @@
+package net.coderodde.simulation.network;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * This class runs the benchmarks whose names match the regular expression
+ * given as the first argument, or all of them. The GC profiler is always on,
+ * so that the allocation rate ({@code gc.alloc.rate.norm}, bytes per
+ * operation) is reported next to each score.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {}
+
+    public static void main(final String[] args) throws RunnerException {
+        final Options options =
+                new OptionsBuilder()
+                        .include(args.length > 0 ?
+                                 args[0] :
+                                 BenchmarkRunner.class.getPackage().getName() +
+                                 ".*Benchmark")
+                        .addProfiler(GCProfiler.class)
+                        .build();
+
+        new Runner(options).run();
+    }
+}
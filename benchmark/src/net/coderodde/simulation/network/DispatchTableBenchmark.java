@@ -0,0 +1,89 @@
+package net.coderodde.simulation.network;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures the construction of the routing tables before a
+ * run: the all-pairs next hop matrix of
+ * {@link ShortestPathPacketRoutingAlgorithm}, built sequentially or in
+ * parallel, and the initial rows of {@link LearningPacketRoutingAlgorithm}
+ * with every router as a destination.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchTableBenchmark {
+
+    private static final long SEED = 1L;
+
+    @Param({"sparse", "dense", "torus"})
+    public String topology;
+
+    @Param({"1024", "2048", "4096"})
+    public int size;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private ShortestPathPacketRoutingAlgorithm shortestPath;
+    private LearningPacketRoutingAlgorithm learning;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        shortestPath = new ShortestPathPacketRoutingAlgorithm();
+        learning = new LearningPacketRoutingAlgorithm();
+        shortestPath.setParallelism(parallelism);
+        shortestPath.setSeed(SEED);
+        learning.setSeed(SEED);
+
+        // The entry objects serve as their own state objects.
+        shortestPath.inheritSettings(shortestPath);
+        learning.inheritSettings(learning);
+        shortestPath.compileNetwork(
+                BenchmarkNetworks.create(topology, size, SEED));
+        learning.compileNetwork(
+                BenchmarkNetworks.create(topology, size, SEED));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        shortestPath.releaseEngine();
+        learning.releaseEngine();
+    }
+
+    @Benchmark
+    public void buildShortestPathDispatchTable() {
+        shortestPath.buildDispatchTable();
+    }
+
+    @Benchmark
+    public LearnedRoutingTable buildLearnedRoutingTable() {
+        final LearnedRoutingTable routingTable =
+                LearnedRoutingTable.create(learning.compiledNetwork);
+
+        for (int index = 0; index < learning.compiledNetwork.size(); ++index) {
+            routingTable.addDestination(index, learning.random);
+        }
+
+        return routingTable;
+    }
+}
@@ -0,0 +1,104 @@
+package net.coderodde.simulation.network;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures the phases of a running simulation in the steady
+ * state of an open-loop run with uniform traffic:
+ * <ul>
+ *   <li>{@link #simulateCycle()}: a single network cycle, that is, the
+ *       injection, the routing decisions, the transfers and, for the learning
+ *       algorithm, the relearning from each received packet,</li>
+ *   <li>{@link #buildStatistics()}: the statistics of the run so far.</li>
+ * </ul>
+ * The state is rebuilt and warmed up by {@link #WARM_UP_CYCLES} cycles for
+ * each iteration, so that no iteration runs into an empty or saturated
+ * network.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnginePhaseBenchmark {
+
+    private static final int WARM_UP_CYCLES = 200;
+
+    private static final long SEED = 1L;
+
+    @Param({"random", "learning", "shortest"})
+    public String algorithm;
+
+    @Param({"sparse", "dense", "torus"})
+    public String topology;
+
+    @Param({"256", "1024", "4096"})
+    public int size;
+
+    /**
+     * The number of packets injected per router and cycle.
+     */
+    @Param({"0.001"})
+    public double load;
+
+    private AbstractPacketRoutingAlgorithm state;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        state = SimulationBenchmark.createAlgorithm(algorithm);
+        state.setSeed(SEED);
+
+        if (state instanceof LearningPacketRoutingAlgorithm) {
+            ((LearningPacketRoutingAlgorithm) state).setCycleLimit(0);
+        }
+
+        // The entry object serves as its own state object.
+        state.inheritSettings(state);
+        state.compileNetwork(BenchmarkNetworks.create(topology, size, SEED));
+        state.initializeWorkload(
+                Workload.uniform(Long.MAX_VALUE,
+                                 InjectionProcess.poisson(load * size)));
+
+        if (state instanceof ShortestPathPacketRoutingAlgorithm) {
+            ((ShortestPathPacketRoutingAlgorithm) state).buildDispatchTable();
+        } else if (state instanceof LearningPacketRoutingAlgorithm) {
+            ((LearningPacketRoutingAlgorithm) state).buildRoutingTable(null);
+        }
+
+        for (int i = 0; i < WARM_UP_CYCLES; ++i) {
+            state.runCycle();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        state.releaseEngine();
+    }
+
+    @Benchmark
+    public boolean simulateCycle() {
+        return state.runCycle();
+    }
+
+    @Benchmark
+    public SimulationStatistics buildStatistics() {
+        return state.buildStatistics();
+    }
+}
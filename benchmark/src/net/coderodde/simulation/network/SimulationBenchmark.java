@@ -0,0 +1,95 @@
+package net.coderodde.simulation.network;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures complete simulation runs of each routing algorithm,
+ * from the compilation of the network to the statistics, on closed-loop runs
+ * injecting all packets at once.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationBenchmark {
+
+    /**
+     * The cycle limit of the learning algorithm, which need not converge.
+     */
+    private static final int LEARNING_CYCLE_LIMIT = 4000;
+
+    private static final long SEED = 1L;
+
+    @Param({"random", "learning", "shortest"})
+    public String algorithm;
+
+    @Param({"sparse", "dense", "torus"})
+    public String topology;
+
+    @Param({"256", "1024", "4096"})
+    public int size;
+
+    @Param({"1000"})
+    public int packets;
+
+    private List<PacketRouter> network;
+    private List<Packet> packetList;
+    private AbstractPacketRoutingAlgorithm routingAlgorithm;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        network    = BenchmarkNetworks.create(topology, size, SEED);
+        packetList = BenchmarkNetworks.createPackets(network, packets, SEED);
+        routingAlgorithm = createAlgorithm(algorithm);
+        routingAlgorithm.setSeed(SEED);
+    }
+
+    @Benchmark
+    public SimulationStatistics simulate() {
+        return routingAlgorithm.simulate(network, packetList);
+    }
+
+    /**
+     * Creates the API entry object of the algorithm {@code name}.
+     *
+     * @param name the name of the algorithm.
+     * @return the algorithm.
+     */
+    static AbstractPacketRoutingAlgorithm createAlgorithm(final String name) {
+        switch (name) {
+            case "random":
+                return new RandomPacketRoutingAlgorithm();
+
+            case "learning":
+                final LearningPacketRoutingAlgorithm learning =
+                        new LearningPacketRoutingAlgorithm();
+                learning.setCycleLimit(LEARNING_CYCLE_LIMIT);
+                return learning;
+
+            case "shortest":
+                return new ShortestPathPacketRoutingAlgorithm();
+
+            default:
+                throw new IllegalArgumentException(
+                        "Unknown algorithm: " + name);
+        }
+    }
+}
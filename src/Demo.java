@@ -1,13 +1,7 @@
 
-import java.awt.Point;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Deque;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
-import java.util.Set;
 import net.coderodde.simulation.network.Packet;
 import net.coderodde.simulation.network.PacketRouter;
 import net.coderodde.simulation.network.AbstractPacketRoutingAlgorithm;
@@ -15,6 +9,8 @@ import net.coderodde.simulation.network.LearningPacketRoutingAlgorithm;
 import net.coderodde.simulation.network.RandomPacketRoutingAlgorithm;
 import net.coderodde.simulation.network.ShortestPathPacketRoutingAlgorithm;
 import net.coderodde.simulation.network.SimulationStatistics;
+import net.coderodde.simulation.network.topology.ConnectivityPolicy;
+import net.coderodde.simulation.network.topology.TopologyGenerator;
 
 public class Demo {
 
@@ -49,9 +45,7 @@ public class Demo {
         TOO_LITTLE_LINKS  (4),
 
         BAD_PACKETS_TOKEN (5),
-        TOO_LITTLE_PACKETS(6),
-
-        NETWORK_DISCONNECTED(7);
+        TOO_LITTLE_PACKETS(6);
 
         ErrorCondition(final int returnCode) {
             this.returnCode = returnCode;
@@ -146,17 +140,14 @@ public class Demo {
         long startTime = System.nanoTime();
         final List<PacketRouter> network = createRandomNetwork(routers,
                                                                links, 
-                                                               random);
+                                                               seed);
         long endTime = System.nanoTime();
 
         System.out.printf ("[STATUS] Network build in %.1f milliseconds!\n",
                            (endTime - startTime) / 1e6);
 
-        if (!inputNetworkIsConnected(network)) {
-            System.err.println(
-                    "ERROR: The constructed network is disconnected.");
-            System.exit(ErrorCondition.NETWORK_DISCONNECTED.code());
-        }
+        System.out.println("[INFO] Actual number of links:      " + 
+                           countLinks(network));
 
         final List<Packet> packetList = createRandomPacketList(network, 
                                                                packets, 
@@ -172,6 +163,10 @@ public class Demo {
         final AbstractPacketRoutingAlgorithm algorithm3 = 
                 new ShortestPathPacketRoutingAlgorithm();
 
+        algorithm1.setSeed(seed);
+        algorithm2.setSeed(seed);
+        algorithm3.setSeed(seed);
+
         profile(algorithm1, network, packetList);
         profile(algorithm2, network, packetList);
         profile(algorithm3, network, packetList);
@@ -229,66 +224,27 @@ public class Demo {
         return packetList;
     }
 
-    private static boolean 
-        inputNetworkIsConnected(final List<PacketRouter> network) {
-        if (network.isEmpty()) {
-            throw new IllegalArgumentException("The input network is empty.");
-        }
-
-        final Set<PacketRouter> networkAsSet = new HashSet<>(network);
-        final Set<PacketRouter> visitedSet = new HashSet<>();
-        final Deque<PacketRouter> queue = new ArrayDeque<>();
-
-        queue.add(networkAsSet.iterator().next());
-
-        while (!queue.isEmpty()) {
-            final PacketRouter current = queue.removeFirst();
-
-            for (final PacketRouter neighbor : current.getNeighbors()) {
-                if (!visitedSet.contains(neighbor)) {
-                    visitedSet.add(neighbor);
-                    queue.addLast(neighbor);
-                }
-            }
-        }
-
-        return visitedSet.size() == networkAsSet.size();
-    }    
-
     private static List<PacketRouter> createRandomNetwork(final int routers,
-                                                          int links,
-                                                          final Random random) {
-        final List<PacketRouter> network = new ArrayList<>(routers);
-
-        for (int id = 0; id < routers; ++id) {
-            network.add(new PacketRouter(id));
-        }
-
-        final int maximumNumberOfLinksPossible = routers * (routers - 1) / 2;
-
-        final List<Point> linkDescriptorList = 
-                new ArrayList<>(maximumNumberOfLinksPossible); 
-
-        for (int startId = 0; startId < routers; ++startId) {
-            for (int endId = startId + 1; endId < routers; ++endId) {
-                linkDescriptorList.add(new Point(startId, endId));
-            }
-        }
-
-        if (linkDescriptorList.isEmpty()) {
-            // No links possible due to too small number of routers.
-            return network;
-        }
-
-        Collections.<Point>shuffle(linkDescriptorList, random);
+                                                          final int links,
+                                                          final long seed) {
+        final long maximumNumberOfLinksPossible = 
+                (long) routers * (routers - 1) / 2;
+
+        return TopologyGenerator.random(
+                        routers, 
+                        (int) Math.min(links, maximumNumberOfLinksPossible))
+                                .generate(seed, 
+                                          ConnectivityPolicy.BRIDGE_COMPONENTS)
+                                .getPacketRouters();
+    }
 
-        links = Math.min(links, maximumNumberOfLinksPossible);
+    private static long countLinks(final List<PacketRouter> network) {
+        long degreeSum = 0L;
 
-        for (int i = 0; i < links; ++i) {
-            final Point point = linkDescriptorList.get(i);
-            network.get(point.x).connect(network.get(point.y));
+        for (final PacketRouter packetRouter : network) {
+            degreeSum += packetRouter.getNeighbors().size();
         }
 
-        return network;
+        return degreeSum / 2;
     }
 }
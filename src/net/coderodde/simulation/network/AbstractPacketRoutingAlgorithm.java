@@ -1,12 +1,18 @@
 package net.coderodde.simulation.network;
 
-import java.util.ArrayList;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.Iterator;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import java.util.Set;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * This class defines the API and utility methods of a packet routing algorithm.
@@ -20,35 +26,86 @@ import java.util.Set;
  * <li>The packet queue of each packet router is FIFO.</li>
  * </ul>
  * 
+ * A {@link BandwidthModel} relaxes the second rule: each router then routes 
+ * up to its service rate packets per cycle into the FIFO output queues of its
+ * links, and each link carries up to its capacity packets per cycle.
+ * <p>
+ * By default, all packets are injected at once and the network is simulated
+ * until it drains. An {@link InjectionProcess} turns a run into an open-loop
+ * one: the packets are injected over time, and the statistics are measured 
+ * in the steady state following a warm-up period. A {@link Workload} goes one
+ * step further and generates the packets as they are injected, so that the 
+ * number of packets of a run is not limited by the memory.
+ * 
  * @author Rodion "rodde" Efremov
  * @version 1.6 (Jul 18, 2016)
  */
 public abstract class AbstractPacketRoutingAlgorithm {
 
     /**
-     * This map maps each packet to its transmission history. The history of
-     * each packet is the list of packet routers that the packet had to visit in
-     * order to reach the destination. If a packet spends more than one 
-     * consecutive "network cycle" in a router, it is reflected in the history
-     * list by storing the router ID multiple times in a row.
+     * The history policy requested by the user. The policy actually used is
+     * the stronger of this one and {@link #getMinimumHistoryPolicy()}.
+     */
+    private HistoryPolicy historyPolicy = HistoryPolicy.hopCount();
+
+    /**
+     * Stores the transmission history of each packet. The history of each 
+     * packet is the list of packet routers that the packet had to visit in
+     * order to reach the destination, starting from its source router. How 
+     * much of it is actually retained depends on the history policy, and it
+     * is discarded once the packet is delivered.
      * <p>
-     * For example, if a packet starts from router ID 3, spends two cycles in 
-     * the router with ID 5 and finally reaches its destination (router ID 1),
-     * the history list would contain <code><3, 5, 5, 1></code>.
+     * For example, if a packet starts from router index 3, is sent to the 
+     * router with index 5 (where it may wait for any number of cycles) and 
+     * finally reaches its destination (router index 1), the full history would
+     * be <code><3, 5, 1></code>.
+     */
+    protected PacketHistory packetHistory;
+
+    /**
+     * The total number of packets to deliver.
+     */
+    protected long numberOfPackets;
+
+    /**
+     * The number of packets that have reached their respective targets so 
+     * far. A packet is retired the moment it arrives at its target router, so
+     * delivered packets never occupy any queue.
+     */
+    protected long numberOfDeliveredPackets;
+
+    /**
+     * The number of hops made by the packets so far, each of which appends 
+     * an entry to the packet history, and the number of routing decisions 
+     * made, each of which looks up the routing table of the algorithm.
+     */
+    long numberOfHops;
+    long numberOfRoutingDecisions;
+
+    /**
+     * Accumulates the queue lengths of all packet routers at all network 
+     * cycles.
      */
-    protected Map<Packet, List<PacketRouter>> historyMap;
+    protected final RunningStatistics queueLengthStatistics = 
+            new RunningStatistics();
 
     /**
-     * While simulation is running, this set contains only those packets that
-     * have not yet reached their respective targets.
+     * Accumulates the transmission durations of the packets, recorded as each
+     * packet is delivered. The duration of a packet counts the network 
+     * initialization as well as each cycle the packet spent in the network.
      */
-    protected Set<Packet> undeliveredPacketSet;
+    protected final RunningStatistics transmissionDurationStatistics = 
+            new RunningStatistics();
 
     /**
-     * This list stores all the queue length in all packet routers at all 
-     * network cycles.
+     * The log-bucketed histograms of the queue lengths, the transmission 
+     * durations and the hop counts of the delivered packets, recorded along
+     * with the running statistics. The hop counts are recorded only if the 
+     * history policy keeps them.
      */
-    protected List<Integer> queueLengthList;
+    final LogHistogram queueLengthHistogram = new LogHistogram();
+    final LogHistogram transmissionDurationHistogram = new LogHistogram();
+    final LogHistogram hopCountHistogram = new LogHistogram();
 
     /**
      * The number of network cycles made in a network. Starts form one as we 
@@ -56,6 +113,162 @@ public abstract class AbstractPacketRoutingAlgorithm {
      */
     protected int cycles = 1;
 
+    /**
+     * The integer-indexed representation of the network being simulated.
+     */
+    protected CompiledNetwork compiledNetwork;
+
+    /**
+     * Maps each packet ID to the index of the target router of the packet.
+     * Packet IDs are expected to be small non-negative integers. The packets
+     * generated by a workload get their IDs from a pool of recycled IDs, 
+     * which grows with the number of packets in the network.
+     */
+    protected int[] packetTargetIndices;
+
+    /**
+     * Maps each packet ID to the cycle at which the packet was injected, or 
+     * is {@code null} if all packets are injected at the first cycle.
+     */
+    protected int[] packetInjectionCycles;
+
+    /**
+     * The minimum number of routers per parallel decision task. Networks 
+     * smaller than this are always simulated sequentially.
+     */
+    private static final int PARALLEL_GRAIN = 4096;
+
+    /**
+     * The number of threads used to simulate each cycle. One means the 
+     * sequential engine.
+     */
+    private int parallelism = 1;
+
+    /**
+     * The seed of the random streams. If not set explicitly, a fresh seed is
+     * chosen for each simulation run.
+     */
+    private long seed;
+    private boolean seedSet;
+
+    /**
+     * The random streams of the packet routers, one per router index.
+     */
+    protected PacketRouterRandom random;
+
+    /**
+     * The pool running the parallel parts of the simulation, or {@code null}
+     * if the simulation is sequential.
+     */
+    protected ForkJoinPool forkJoinPool;
+
+    /**
+     * Indicates whether the decision phase of each cycle runs in 
+     * {@link #forkJoinPool}.
+     */
+    private boolean parallelDecisions;
+
+    /**
+     * The link latency model of the discrete-event engine, or {@code null} if
+     * the network is simulated cycle by cycle.
+     */
+    private LinkLatencyModel linkLatencyModel;
+
+    /**
+     * The bandwidth model, or {@code null} if each router sends one packet
+     * per cycle over unlimited links.
+     */
+    private BandwidthModel bandwidthModel;
+
+    /**
+     * The link output queues of the bandwidth model, or {@code null}.
+     */
+    protected LinkOutputQueues linkOutputQueues;
+
+    /**
+     * The default number of packets per router in the network at which an
+     * open-loop run is considered saturated.
+     */
+    private static final int DEFAULT_SATURATION_BACKLOG_PER_ROUTER = 64;
+
+    /**
+     * The open-loop settings: the injection process or {@code null}, the 
+     * number of warm-up cycles and the saturation threshold, zero standing
+     * for the default one.
+     */
+    private InjectionProcess injectionProcess;
+    private int warmUpCycles;
+    private int saturationThreshold;
+
+    /**
+     * The packet injector of an open-loop run, or {@code null}.
+     */
+    protected PacketInjector packetInjector;
+
+    /**
+     * The path of the hop trace written by each run, or {@code null}.
+     */
+    private Path hopTracePath;
+
+    /**
+     * The writer of the hop trace of the current run, or {@code null} if no
+     * trace is written.
+     */
+    HopTraceWriter hopTraceWriter;
+
+    /**
+     * The path of the checkpoint written every {@link #checkpointInterval} 
+     * cycles, or {@code null}, and the path of the checkpoint to resume from,
+     * or {@code null}.
+     */
+    private Path checkpointPath;
+    private int checkpointInterval;
+    private Path resumeCheckpointPath;
+
+    /**
+     * The listener receiving a sample every {@link #samplingInterval} cycles,
+     * or {@code null}, and the monitor of the current run collecting the 
+     * samples, which exists only if there is a listener.
+     */
+    private SimulationListener simulationListener;
+    private int samplingInterval;
+    SimulationMonitor simulationMonitor;
+
+    /**
+     * Indicates whether the statistics include the phase times and the 
+     * counters of the engine.
+     */
+    private boolean profiling;
+
+    /**
+     * The time spent in each {@link SimulationPhase}, and in building the
+     * routing tables before the first cycle, if measured.
+     */
+    private long[] phaseTimes;
+    long tableConstructionTime;
+
+    /**
+     * The Flight Recorder event of the current run.
+     */
+    private SimulationEvents.RunEvent runEvent;
+
+    /**
+     * Scratch arrays indexed by router index, holding the packet each router
+     * sends during the current cycle (or {@code null}) and the index of the 
+     * router it is sent to.
+     */
+    private Packet[] transferPackets;
+    private int[] transferTargets;
+
+    /**
+     * The set of indices of the packet routers with non-empty queues, and its
+     * cardinality. Only these routers are visited during a cycle. A bit set
+     * (rather than a plain worklist) keeps them in the router index order, 
+     * which the sending order depends on.
+     */
+    protected BitSet activePacketRouters;
+    protected int numberOfActivePacketRouters;
+
     /**
      * Runs a packet routing algorithm and returns the statistics of a 
      * simulation run.
@@ -68,115 +281,1169 @@ public abstract class AbstractPacketRoutingAlgorithm {
         simulate(final List<PacketRouter> network,
                  final List<Packet> packetList);
 
-    protected SimulationStatistics buildStatistics() {   
-        int minQueueLength = queueLengthList.get(0);
-        int maxQueueLength = queueLengthList.get(0);
+    /**
+     * Runs a packet routing algorithm on the packets generated by 
+     * {@code workload} and returns the statistics of a simulation run. The 
+     * run is an open-loop one even if no injection process is set.
+     * 
+     * @param network  the list of packet routers comprising the network.
+     * @param workload the workload generating the packets.
+     * @return the object holding the statistical results of the simulation.
+     */
+    public abstract SimulationStatistics 
+        simulate(final List<PacketRouter> network,
+                 final Workload workload);
+
+    /**
+     * Computes the index of the packet router to which the packet router with
+     * index {@code packetRouterIndex} should send {@code packet}.
+     * 
+     * @param packetRouterIndex the index of the current packet router.
+     * @param packet            the packet to send.
+     * @return the index of the next packet router.
+     */
+    protected abstract int computeNextPacketRouterIndex(
+            final int packetRouterIndex,
+            final Packet packet);
+
+    /**
+     * Computes the neighbor slot of the packet router with index 
+     * {@code packetRouterIndex} to which it should send {@code packet}. This
+     * is the decision made by the engines that need the link a packet takes,
+     * such as the bandwidth model. The default implementation looks up the 
+     * router chosen by {@link #computeNextPacketRouterIndex(int, Packet)} 
+     * among the neighbors, which takes time linear in the degree; algorithms
+     * choosing a slot in the first place should override it.
+     * 
+     * @param packetRouterIndex the index of the current packet router.
+     * @param packet            the packet to send.
+     * @return the slot of the next packet router, or <tt>-1</tt> if the next
+     *         router is not a neighbor.
+     */
+    protected int computeNextSlot(final int packetRouterIndex,
+                                  final Packet packet) {
+        return compiledNetwork.getNeighborSlot(
+                packetRouterIndex,
+                computeNextPacketRouterIndex(packetRouterIndex, packet));
+    }
+
+    public HistoryPolicy getHistoryPolicy() {
+        return historyPolicy;
+    }
+
+    /**
+     * Sets how much of the route of each packet is recorded. If the algorithm
+     * needs more detail for its own operation, its minimum policy is used 
+     * instead.
+     * 
+     * @param historyPolicy the history policy.
+     */
+    public void setHistoryPolicy(final HistoryPolicy historyPolicy) {
+        this.historyPolicy = 
+                Objects.requireNonNull(historyPolicy, 
+                                       "The history policy is null.");
+    }
 
-        int queueLengthSum = 0;
-        int squaredQueueLengthSum = 0;
+    public int getParallelism() {
+        return parallelism;
+    }
 
-        for (final int i : queueLengthList) {
-            if (minQueueLength > i) {
-                minQueueLength = i;
-            } else if (maxQueueLength < i) {
-                maxQueueLength = i;
+    /**
+     * Sets the number of threads used to build the routing tables and to 
+     * simulate each network cycle. The results do not depend on the 
+     * parallelism, since only the per-router routing decisions are made in 
+     * parallel and the packets are then sent in the same order as by the 
+     * sequential engine.
+     * 
+     * @param parallelism the number of threads; one for sequential runs.
+     */
+    public void setParallelism(final int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(
+                    "The parallelism must be positive: " + parallelism);
+        }
+
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the seed from which the random stream of each packet router is 
+     * derived. Two runs with the same seed, network and packets produce the 
+     * same results.
+     * 
+     * @param seed the seed.
+     */
+    public void setSeed(final long seed) {
+        this.seed    = seed;
+        this.seedSet = true;
+    }
+
+    public LinkLatencyModel getLinkLatencyModel() {
+        return linkLatencyModel;
+    }
+
+    /**
+     * Sets the latencies of the links and switches to the discrete-event 
+     * engine, which processes only the cycles at which something happens. 
+     * Passing {@code null} restores the default cycle-by-cycle engine, in 
+     * which each link has the latency of one cycle. The discrete-event engine
+     * is always sequential.
+     * 
+     * @param linkLatencyModel the link latency model, or {@code null}.
+     */
+    public void setLinkLatencyModel(final LinkLatencyModel linkLatencyModel) {
+        this.linkLatencyModel = linkLatencyModel;
+    }
+
+    public BandwidthModel getBandwidthModel() {
+        return bandwidthModel;
+    }
+
+    /**
+     * Sets the service rates of the routers and the capacities of the links.
+     * Passing {@code null} restores the default rules, under which each 
+     * router sends at most one packet per cycle and the links are unlimited.
+     * The bandwidth model is supported by the cycle-by-cycle engine only.
+     * 
+     * @param bandwidthModel the bandwidth model, or {@code null}.
+     */
+    public void setBandwidthModel(final BandwidthModel bandwidthModel) {
+        this.bandwidthModel = bandwidthModel;
+    }
+
+    public InjectionProcess getInjectionProcess() {
+        return injectionProcess;
+    }
+
+    /**
+     * Sets the process by which the packets are injected over time, making 
+     * the runs open-loop, or restores the default of injecting all packets at
+     * once if {@code injectionProcess} is {@code null}. Open-loop runs are 
+     * supported by the cycle-by-cycle engine only.
+     * 
+     * @param injectionProcess the injection process, or {@code null}.
+     */
+    public void setInjectionProcess(final InjectionProcess injectionProcess) {
+        this.injectionProcess = injectionProcess;
+    }
+
+    public int getWarmUpCycles() {
+        return warmUpCycles;
+    }
+
+    /**
+     * Sets the number of initial cycles of an open-loop run that are not 
+     * measured, as the network is still filling up.
+     * 
+     * @param warmUpCycles the number of warm-up cycles.
+     */
+    public void setWarmUpCycles(final int warmUpCycles) {
+        if (warmUpCycles < 0) {
+            throw new IllegalArgumentException(
+                    "Negative number of warm-up cycles: " + warmUpCycles);
+        }
+
+        this.warmUpCycles = warmUpCycles;
+    }
+
+    public int getSaturationThreshold() {
+        return saturationThreshold;
+    }
+
+    /**
+     * Sets the number of packets in the network above which an open-loop run
+     * is deemed saturated and is stopped. Zero selects the default of
+     * {@value #DEFAULT_SATURATION_BACKLOG_PER_ROUTER} packets per router.
+     * 
+     * @param saturationThreshold the saturation threshold.
+     */
+    public void setSaturationThreshold(final int saturationThreshold) {
+        if (saturationThreshold < 0) {
+            throw new IllegalArgumentException(
+                    "Negative saturation threshold: " + saturationThreshold);
+        }
+
+        this.saturationThreshold = saturationThreshold;
+    }
+
+    public Path getHopTracePath() {
+        return hopTracePath;
+    }
+
+    /**
+     * Makes each run write a record of every injection, hop and delivery of
+     * the packets to the file {@code hopTracePath}, which is replaced. The 
+     * trace is written while the simulation runs and may be analyzed 
+     * afterwards by {@link HopTrace}. Passing {@code null} disables the 
+     * trace.
+     * 
+     * @param hopTracePath the path of the trace file, or {@code null}.
+     */
+    public void setHopTracePath(final Path hopTracePath) {
+        this.hopTracePath = hopTracePath;
+    }
+
+    public Path getCheckpointPath() {
+        return checkpointPath;
+    }
+
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * Makes each run write its state to the file {@code checkpointPath} every
+     * {@code checkpointInterval} cycles, replacing the previous checkpoint. 
+     * Passing {@code null} disables the checkpoints. Checkpoints are 
+     * supported by the cycle-by-cycle engine only, and not by open-loop runs.
+     * 
+     * @param checkpointPath     the path of the checkpoint, or {@code null}.
+     * @param checkpointInterval the number of cycles between checkpoints.
+     */
+    public void setCheckpoint(final Path checkpointPath,
+                              final int checkpointInterval) {
+        if (checkpointPath != null && checkpointInterval < 1) {
+            throw new IllegalArgumentException(
+                    "The checkpoint interval must be positive: " + 
+                    checkpointInterval);
+        }
+
+        this.checkpointPath     = checkpointPath;
+        this.checkpointInterval = checkpointPath == null ? 
+                                  0 : 
+                                  checkpointInterval;
+    }
+
+    public Path getResumeCheckpointPath() {
+        return resumeCheckpointPath;
+    }
+
+    /**
+     * Makes the runs continue from the checkpoint {@code resumeCheckpointPath}
+     * instead of starting over, or restores the default if the argument is 
+     * {@code null}. The network, the packets and the settings must be the 
+     * same as those of the run that wrote the checkpoint; the resumed run 
+     * then produces exactly the same results as the original run would have. 
+     * A hop trace of the original run is continued as well.
+     * 
+     * @param resumeCheckpointPath the path of the checkpoint, or 
+     *                             {@code null}.
+     */
+    public void setResumeCheckpointPath(final Path resumeCheckpointPath) {
+        this.resumeCheckpointPath = resumeCheckpointPath;
+    }
+
+    public SimulationListener getSimulationListener() {
+        return simulationListener;
+    }
+
+    public int getSamplingInterval() {
+        return samplingInterval;
+    }
+
+    /**
+     * Makes each run pass a {@link SimulationSample} to 
+     * {@code simulationListener} every {@code samplingInterval} cycles, and 
+     * once more when it ends. Passing {@code null} removes the listener, 
+     * whereupon a run does no sampling work at all.
+     * 
+     * @param simulationListener the listener, or {@code null}.
+     * @param samplingInterval   the number of cycles between samples.
+     */
+    public void setSimulationListener(
+            final SimulationListener simulationListener,
+            final int samplingInterval) {
+        if (simulationListener != null && samplingInterval < 1) {
+            throw new IllegalArgumentException(
+                    "The sampling interval must be positive: " + 
+                    samplingInterval);
+        }
+
+        this.simulationListener = simulationListener;
+        this.samplingInterval   = simulationListener == null ? 
+                                  0 : 
+                                  samplingInterval;
+    }
+
+    public boolean isProfiling() {
+        return profiling;
+    }
+
+    /**
+     * Makes the statistics of each run include the time spent in each 
+     * {@link SimulationPhase} and in building the routing tables, along with
+     * the counters of the engine and the algorithm, such as the number of 
+     * routing decisions made. The same data is available from the Flight 
+     * Recorder events of the simulation whenever a recording is running, 
+     * regardless of this setting.
+     * 
+     * @param profiling whether to profile the runs.
+     */
+    public void setProfiling(final boolean profiling) {
+        this.profiling = profiling;
+    }
+
+    /**
+     * Indicates whether {@link #computeNextPacketRouterIndex(int, Packet)} may
+     * be called concurrently for different routers. The default 
+     * implementation returns {@code false}, which keeps the simulation 
+     * sequential regardless of the parallelism.
+     * 
+     * @return {@code true} if routing decisions are thread-safe.
+     */
+    protected boolean supportsParallelDecisions() {
+        return false;
+    }
+
+    /**
+     * Returns the least detailed history policy this algorithm can work with.
+     * The default implementation does not need any history.
+     * 
+     * @return the minimum history policy.
+     */
+    protected HistoryPolicy getMinimumHistoryPolicy() {
+        return HistoryPolicy.off();
+    }
+
+    /**
+     * Copies the user settings of the API entry object {@code entry} to this
+     * state object.
+     * 
+     * @param entry the API entry object.
+     */
+    protected void inheritSettings(final AbstractPacketRoutingAlgorithm entry) {
+        this.historyPolicy        = entry.historyPolicy;
+        this.parallelism          = entry.parallelism;
+        this.seed                 = entry.seedSet ? 
+                                    entry.seed : 
+                                    System.nanoTime();
+        this.seedSet              = true;
+        this.linkLatencyModel     = entry.linkLatencyModel;
+        this.bandwidthModel       = entry.bandwidthModel;
+        this.injectionProcess     = entry.injectionProcess;
+        this.warmUpCycles         = entry.warmUpCycles;
+        this.saturationThreshold  = entry.saturationThreshold;
+        this.hopTracePath         = entry.hopTracePath;
+        this.checkpointPath       = entry.checkpointPath;
+        this.checkpointInterval   = entry.checkpointInterval;
+        this.resumeCheckpointPath = entry.resumeCheckpointPath;
+        this.simulationListener   = entry.simulationListener;
+        this.samplingInterval     = entry.samplingInterval;
+        this.profiling            = entry.profiling;
+    }
+
+    protected void compileNetwork(final List<PacketRouter> network) {
+        compiledNetwork = CompiledNetwork.compile(network);
+        transferPackets = new Packet[compiledNetwork.size()];
+        transferTargets = new int[compiledNetwork.size()];
+        activePacketRouters = new BitSet(compiledNetwork.size());
+        random = new PacketRouterRandom(seed, compiledNetwork.size());
+
+        // A resumed run continues the trace once the checkpoint is read.
+        if (hopTracePath != null && resumeCheckpointPath == null) {
+            hopTraceWriter = new HopTraceWriter(hopTracePath, 
+                                                compiledNetwork.size());
+        }
+
+        if (parallelism > 1) {
+            forkJoinPool = new ForkJoinPool(parallelism);
+            parallelDecisions = supportsParallelDecisions() 
+                             && compiledNetwork.size() > PARALLEL_GRAIN;
+        }
+    }
+
+    /**
+     * Releases the threads of the parallel engine, if any, discards the 
+     * packets left in the network by a run that was stopped early and closes
+     * the hop trace. Must be called once the simulation is over.
+     */
+    protected void releaseEngine() {
+        if (forkJoinPool != null) {
+            forkJoinPool.shutdown();
+            forkJoinPool = null;
+            parallelDecisions = false;
+        }
+
+        if (activePacketRouters != null) {
+            clearNetwork();
+        }
+
+        if (hopTraceWriter != null) {
+            final HopTraceWriter writer = hopTraceWriter;
+            hopTraceWriter = null;
+            writer.close();
+        }
+    }
+
+    /**
+     * Discards all packets in each router.
+     */
+    protected void clearNetwork() {
+        for (int index = activePacketRouters.nextSetBit(0); 
+                index >= 0;
+                index = activePacketRouters.nextSetBit(index + 1)) {
+            compiledNetwork.getPacketRouter(index).clearQueue();
+        }
+
+        activePacketRouters.clear();
+        numberOfActivePacketRouters = 0;
+    }
+
+    /**
+     * Runs the simulation until all packets are delivered or 
+     * {@link #isCycleLimitExceeded()} returns {@code true}, using the engine 
+     * selected by the link latency model. If requested, the run is first 
+     * restored from a checkpoint, and checkpoints are written as it proceeds.
+     * A simulation listener, if any, is passed the samples of the run, and 
+     * the run is timed if it is profiled or recorded by the Flight Recorder.
+     */
+    protected void runSimulation() {
+        if (checkpointPath != null || resumeCheckpointPath != null) {
+            Checkpoint.checkSupported(this);
+        }
+
+        if (bandwidthModel != null) {
+            if (linkLatencyModel != null) {
+                throw new IllegalStateException(
+                        "The discrete-event engine does not support " +
+                        "bandwidth models.");
+            }
+
+            linkOutputQueues = new LinkOutputQueues(
+                    compiledNetwork, 
+                    bandwidthModel,
+                    packetTargetIndices.length);
+        }
+
+        if (linkLatencyModel != null) {
+            if (packetInjector != null) {
+                throw new IllegalStateException(
+                        "The discrete-event engine does not support " +
+                        "open-loop runs.");
+            }
+
+            startMonitoring();
+            new DiscreteEventEngine(this, linkLatencyModel).run();
+            finishMonitoring();
+            return;
+        }
+
+        if (resumeCheckpointPath != null) {
+            Checkpoint.restore(this, resumeCheckpointPath);
+        }
+
+        startMonitoring();
+
+        while (runCycle()) {
+            if (checkpointPath != null && cycles % checkpointInterval == 0) {
+                Checkpoint.write(this, checkpointPath);
             }
+        }
+
+        finishMonitoring();
+    }
 
-            queueLengthSum += i;
-            squaredQueueLengthSum += i * i;
+    private void startMonitoring() {
+        final boolean recordCycleEvents = 
+                SimulationEvents.isCycleEventEnabled();
+
+        if (simulationListener != null || profiling || recordCycleEvents) {
+            simulationMonitor = new SimulationMonitor(this, 
+                                                      simulationListener,
+                                                      samplingInterval,
+                                                      recordCycleEvents);
+        }
+
+        runEvent = new SimulationEvents.RunEvent();
+        runEvent.begin();
+    }
+
+    private void finishMonitoring() {
+        runEvent.end();
+
+        if (runEvent.shouldCommit()) {
+            runEvent.algorithm        = getClass().getSimpleName();
+            runEvent.routers          = compiledNetwork.size();
+            runEvent.cycles           = cycles;
+            runEvent.packets          = numberOfPackets;
+            runEvent.deliveredPackets = numberOfDeliveredPackets;
+            runEvent.hops             = numberOfHops;
+            runEvent.routingDecisions = numberOfRoutingDecisions;
+            runEvent.commit();
+        }
+
+        runEvent = null;
+
+        if (simulationMonitor != null) {
+            final SimulationMonitor monitor = simulationMonitor;
+            simulationMonitor = null;
+            monitor.finish();
+            phaseTimes = monitor.getTotalPhaseTimes();
+        }
+    }
+
+    /**
+     * Runs the next cycle of the cycle-by-cycle engine, injecting the packets
+     * of an open-loop run that are due by then.
+     * 
+     * @return {@code false} if the simulation is over.
+     */
+    protected boolean runCycle() {
+        if (!hasUndeliveredPackets() 
+                && (packetInjector == null 
+                    || !packetInjector.hasPendingPackets())) {
+            return false;
         }
 
+        if (simulationMonitor != null) {
+            simulationMonitor.startCycle();
+        }
+
+        if (packetInjector != null) {
+            if (!hasUndeliveredPackets()) {
+                skipIdleCycles();
+
+                if (isCycleLimitExceeded()) {
+                    return false;
+                }
+            }
+
+            packetInjector.injectPackets(cycles);
+
+            if (simulationMonitor != null) {
+                simulationMonitor.endPhase(SimulationPhase.INJECTION);
+            }
+
+            if (packetInjector.isSaturated()) {
+                return false;
+            }
+        }
+
+        if (packetInjector == null || packetInjector.isMeasured(cycles)) {
+            loadPacketRouterQueueLengths();
+
+            if (simulationMonitor != null) {
+                simulationMonitor.endPhase(SimulationPhase.QUEUE_STATISTICS);
+            }
+        }
+
+        simulateCycle();
+
+        if (simulationMonitor != null) {
+            simulationMonitor.endPhase(SimulationPhase.ROUTING);
+        }
+
+        completeCycle();
+
+        if (packetInjector != null) {
+            packetInjector.recyclePacketIds();
+        }
+
+        if (simulationMonitor != null) {
+            simulationMonitor.endPhase(SimulationPhase.CYCLE_COMPLETION);
+        }
+
+        ++cycles;
+
+        if (simulationMonitor != null) {
+            simulationMonitor.endCycle();
+        }
+
+        return !isCycleLimitExceeded();
+    }
+
+    /**
+     * Advances an empty network to the next injection cycle at once, 
+     * recording the empty queues of the skipped cycles.
+     */
+    private void skipIdleCycles() {
+        final int nextCycle = packetInjector.getNextInjectionCycle();
+        final int firstMeasuredCycle = Math.max(cycles, warmUpCycles + 1);
+
+        if (nextCycle > firstMeasuredCycle) {
+            recordQueueLength(0, 
+                              (long) (nextCycle - firstMeasuredCycle)
+                              * compiledNetwork.size());
+        }
+
+        cycles = Math.max(cycles, nextCycle);
+    }
+
+    /**
+     * Runs a single network cycle: each packet router with a non-empty queue
+     * sends its head packet to the router chosen by 
+     * {@link #computeNextPacketRouterIndex(int, Packet)}. The routing 
+     * decisions are made in parallel if the parallel engine is enabled; the
+     * packets are sent afterwards in the order of the sending routers.
+     */
+    protected void simulateCycle() {
+        // Find out to which packet routers to send the packets:
+        if (parallelDecisions
+                && numberOfActivePacketRouters > PARALLEL_GRAIN) {
+            numberOfRoutingDecisions += forkJoinPool.invoke(
+                    new DecisionTask(0, compiledNetwork.size()));
+        } else {
+            numberOfRoutingDecisions += decide(0, compiledNetwork.size());
+        }
+
+        // Send the packets, retiring those that arrive at their targets. A 
+        // router activated here either has a higher index and no packet to 
+        // send, or a lower index and has been visited already:
+        for (int index = activePacketRouters.nextSetBit(0); 
+                index >= 0;
+                index = activePacketRouters.nextSetBit(index + 1)) {
+            if (linkOutputQueues != null) {
+                sendLinkQueues(index);
+            } else {
+                final Packet packet = transferPackets[index];
+
+                if (packet == null) {
+                    continue;
+                }
+
+                transferPackets[index] = null;
+                receivePacket(index, 
+                              transferTargets[index], 
+                              packet, 
+                              cycles + 1);
+            }
+
+            if (getQueueLength(index) == 0) {
+                activePacketRouters.clear(index);
+                --numberOfActivePacketRouters;
+            }
+        }
+    }
+
+    /**
+     * Sends as many packets from each output queue of the router 
+     * {@code index} as the capacity of the link allows.
+     */
+    private void sendLinkQueues(final int index) {
+        if (linkOutputQueues.getBacklog(index) == 0) {
+            return;
+        }
+
+        final int begin = compiledNetwork.getNeighborOffset(index);
+        final int end = begin + compiledNetwork.getDegree(index);
+
+        for (int link = begin; link < end; ++link) {
+            final int count = Math.min(linkOutputQueues.getQueueLength(link),
+                                       linkOutputQueues.getLinkCapacity(link));
+
+            for (int i = 0; i < count; ++i) {
+                receivePacket(index,
+                              compiledNetwork.getNeighborAt(link),
+                              linkOutputQueues.poll(index, link),
+                              cycles + 1);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of packets waiting at the router 
+     * {@code packetRouterIndex}, including those in its link queues.
+     * 
+     * @param packetRouterIndex the router index.
+     * @return the queue length of the router.
+     */
+    protected int getQueueLength(final int packetRouterIndex) {
+        final int queueLength = 
+                compiledNetwork.getPacketRouter(packetRouterIndex)
+                               .queueLength();
+
+        return linkOutputQueues == null ?
+               queueLength : 
+               queueLength + linkOutputQueues.getBacklog(packetRouterIndex);
+    }
+
+    /**
+     * Lets the router {@code packetRouterIndex} receive {@code packet} sent by
+     * the router {@code senderIndex} at the time {@code time}. The packet is 
+     * retired if the router is its target, and enqueued otherwise.
+     * 
+     * @param senderIndex       the index of the sending router.
+     * @param packetRouterIndex the index of the receiving router.
+     * @param packet            the received packet.
+     * @param time              the cycle at which the packet arrives.
+     */
+    protected void receivePacket(final int senderIndex,
+                                 final int packetRouterIndex,
+                                 final Packet packet,
+                                 final int time) {
+        packetHistory.append(packet.getId(), packetRouterIndex);
+        ++numberOfHops;
+
+        if (hopTraceWriter != null) {
+            hopTraceWriter.writeHop(time, 
+                                    packet.getId(), 
+                                    senderIndex, 
+                                    packetRouterIndex);
+        }
+
+        if (packetTargetIndices[packet.getId()] == packetRouterIndex) {
+            if (hopTraceWriter != null) {
+                hopTraceWriter.writeDelivery(time, 
+                                             packet.getId(), 
+                                             packetRouterIndex);
+            }
+
+            if (packetInjector == null) {
+                recordDelivery(packet.getId(), time);
+            } else {
+                final int injectionCycle = 
+                        packetInjectionCycles[packet.getId()];
+
+                if (packetInjector.isMeasured(injectionCycle)) {
+                    // Followed until delivered, even past the measurement.
+                    recordDelivery(packet.getId(), 
+                                   time - injectionCycle + 1);
+                }
+
+                packetInjector.onPacketDelivered(packet, time);
+            }
+
+            ++numberOfDeliveredPackets;
+            onPacketDelivered(packetRouterIndex, packet);
+            packetHistory.release(packet.getId());
+        } else {
+            enqueuePacket(packetRouterIndex, packet);
+            onPacketReceived(packetRouterIndex, packet);
+        }
+    }
+
+    /**
+     * Appends {@code packet} to the queue of the router 
+     * {@code packetRouterIndex}, marking the router active.
+     * 
+     * @param packetRouterIndex the index of the receiving router.
+     * @param packet            the packet to enqueue.
+     */
+    protected void enqueuePacket(final int packetRouterIndex, 
+                                 final Packet packet) {
+        activatePacketRouter(packetRouterIndex);
+        compiledNetwork.getPacketRouter(packetRouterIndex)
+                       .enqueuePacket(packet);
+    }
+
+    /**
+     * Marks the router {@code packetRouterIndex} active, so that it is 
+     * visited during the next cycle.
+     * 
+     * @param packetRouterIndex the index of the router.
+     */
+    void activatePacketRouter(final int packetRouterIndex) {
+        if (!activePacketRouters.get(packetRouterIndex)) {
+            activePacketRouters.set(packetRouterIndex);
+            ++numberOfActivePacketRouters;
+        }
+    }
+
+    /**
+     * Makes the routing decisions of the active routers with indices within 
+     * <tt>[fromIndex, toIndex)</tt>.
+     * 
+     * @return the number of decisions made.
+     */
+    private long decide(final int fromIndex, final int toIndex) {
+        long decisions = 0;
+
+        for (int index = activePacketRouters.nextSetBit(fromIndex); 
+                index >= 0 && index < toIndex;
+                index = activePacketRouters.nextSetBit(index + 1)) {
+            final PacketRouter packetRouter = 
+                    compiledNetwork.getPacketRouter(index);
+
+            if (linkOutputQueues != null) {
+                // Route a batch of packets into the link queues.
+                final int count = 
+                        Math.min(packetRouter.queueLength(),
+                                 linkOutputQueues.getServiceRate(index));
+
+                for (int i = 0; i < count; ++i) {
+                    final Packet packet = packetRouter.dequeuePacket();
+                    final int slot = computeNextSlot(index, packet);
+
+                    if (slot < 0) {
+                        throw new IllegalStateException(
+                                "Packet " + packet.getId() + " is routed " +
+                                "to a router that is not a neighbor.");
+                    }
+
+                    linkOutputQueues.append(index, slot, packet);
+                }
+
+                decisions += count;
+            } else {
+                final Packet packet = packetRouter.dequeuePacket();
+                transferPackets[index] = packet;
+                transferTargets[index] = 
+                        computeNextPacketRouterIndex(index, packet);
+                ++decisions;
+            }
+        }
 
-        final double queueLengthAverage = 
-                1.0 * queueLengthSum / queueLengthList.size();
+        return decisions;
+    }
 
-        final double queueLengthSd = 
-                Math.sqrt(
-                    (1.0 * squaredQueueLengthSum - 
-                     1.0 * queueLengthSum * queueLengthSum / 
-                           queueLengthList.size()) 
-                  / (queueLengthList.size() - 1)
-                );
+    /**
+     * Splits the decision phase of a cycle into router ranges of at least 
+     * {@link #PARALLEL_GRAIN} routers, summing up the numbers of decisions.
+     */
+    private final class DecisionTask extends RecursiveTask<Long> {
 
-        int minHistoryLength = historyMap.values().iterator().next().size();
-        int maxHistoryLength = minHistoryLength;
+        private static final long serialVersionUID = 1L;
 
-        int historyLengthSum = 0;
-        int squaredHistoryLengthSum = 0;
+        private final int fromIndex;
+        private final int toIndex;
 
-        for (final List<PacketRouter> history : historyMap.values()) {
-            final int length = history.size();
+        DecisionTask(final int fromIndex, final int toIndex) {
+            this.fromIndex = fromIndex;
+            this.toIndex   = toIndex;
+        }
 
-            if (minHistoryLength > length) {
-                minHistoryLength = length;
-            } else if (maxHistoryLength < length) {
-                maxHistoryLength = length;
+        @Override
+        protected Long compute() {
+            if (toIndex - fromIndex <= PARALLEL_GRAIN) {
+                return decide(fromIndex, toIndex);
             }
 
-            historyLengthSum += length;
-            squaredHistoryLengthSum += length * length;
+            final int middleIndex = (fromIndex + toIndex) >>> 1;
+            final DecisionTask left = 
+                    new DecisionTask(fromIndex, middleIndex);
+            final DecisionTask right = 
+                    new DecisionTask(middleIndex, toIndex);
+
+            invokeAll(left, right);
+            return left.join() + right.join();
         }
+    }
 
-        final double historyLengthAverage = 
-                1.0 * historyLengthSum / historyMap.size();
+    /**
+     * Called whenever {@code packet} is enqueued at a router other than its
+     * target. The default implementation does nothing.
+     * 
+     * @param packetRouterIndex the index of the receiving router.
+     * @param packet            the received packet.
+     */
+    protected void onPacketReceived(final int packetRouterIndex,
+                                    final Packet packet) {}
 
-        final double historyLengthSd = 
-                Math.sqrt(
-                    (1.0 * squaredHistoryLengthSum -
-                     1.0 * historyLengthSum * historyLengthSum / 
-                           historyMap.size())
-                  / (historyMap.size() - 1)
-                );
+    /**
+     * Called whenever {@code packet} arrives at its target router. The route
+     * of the packet may be read until the cycle is completed. The default 
+     * implementation does nothing.
+     * 
+     * @param packetRouterIndex the index of the target router.
+     * @param packet            the delivered packet.
+     */
+    protected void onPacketDelivered(final int packetRouterIndex,
+                                     final Packet packet) {}
 
-        return new SimulationStatistics(minQueueLength,
-                                        maxQueueLength,
-                                        queueLengthAverage,
-                                        queueLengthSd,
-                                        minHistoryLength,
-                                        maxHistoryLength,
-                                        historyLengthAverage,
-                                        historyLengthSd,
-                                        cycles);
+    /**
+     * Called whenever {@code packet} of an open-loop run is injected at its
+     * source router. The default implementation does nothing.
+     * 
+     * @param packetRouterIndex the index of the source router.
+     * @param packet            the injected packet.
+     */
+    protected void onPacketInjected(final int packetRouterIndex, 
+                                    final Packet packet) {}
+
+    /**
+     * Called after all packets sent during a cycle have been received. The
+     * default implementation does nothing.
+     */
+    protected void onCycleCompleted() {}
+
+    /**
+     * Ends a cycle once all packets sent during it have been received: lets 
+     * the algorithm do its work and then discards the routes of the packets
+     * delivered during the cycle, which the algorithm may have looked at.
+     */
+    void completeCycle() {
+        onCycleCompleted();
+        packetHistory.discardReleasedRoutes();
+    }
+
+    /**
+     * Writes the algorithm-specific state of a run to a checkpoint. The 
+     * default implementation writes nothing.
+     * 
+     * @param out the output.
+     * @throws IOException if writing fails.
+     */
+    protected void writeCheckpointState(final DataOutput out) 
+    throws IOException {}
+
+    /**
+     * Replaces the algorithm-specific state of a freshly initialized run with
+     * the one written by {@link #writeCheckpointState(DataOutput)}. The 
+     * default implementation reads nothing.
+     * 
+     * @param in the input.
+     * @throws IOException if reading fails.
+     */
+    protected void readCheckpointState(final DataInput in) 
+    throws IOException {}
+
+    /**
+     * Indicates whether the simulation should be abandoned as it has run for
+     * too long. The default implementation never gives up.
+     * 
+     * @return {@code true} if the simulation should stop.
+     */
+    protected boolean isCycleLimitExceeded() {
+        return false;
+    }
+
+    protected boolean hasUndeliveredPackets() {
+        return numberOfDeliveredPackets < numberOfPackets;
+    }
+
+    /**
+     * Adds the algorithm-specific counters of the simulation run to 
+     * {@code counters}. The default implementation adds nothing.
+     * 
+     * @param counters the map from counter names to their values.
+     */
+    protected void reportCounters(final Map<String, Long> counters) {}
+
+    protected SimulationStatistics buildStatistics() {
+        final Map<String, Long> counters = new LinkedHashMap<>();
+
+        if (linkOutputQueues != null) {
+            counters.put("Maximum link queue length",
+                         (long) linkOutputQueues.getMaximumQueueLength());
+        }
+
+        if (packetInjector != null) {
+            counters.put("Maximum packets in network",
+                         packetInjector.getMaximumPacketsInNetwork());
+        }
+
+        reportCounters(counters);
+
+        if (profiling) {
+            reportEngineCounters(counters);
+        }
+
+        return new SimulationStatistics(
+                queueLengthStatistics,
+                transmissionDurationStatistics,
+                queueLengthHistogram.snapshot(),
+                transmissionDurationHistogram.snapshot(),
+                hopCountHistogram.snapshot(),
+                cycles,
+                counters,
+                packetInjector == null ? 
+                        null : 
+                        packetInjector.getStatistics(cycles));
+    }
+
+    /**
+     * Adds the counters and the phase times of a profiled run to 
+     * {@code counters}.
+     */
+    private void reportEngineCounters(final Map<String, Long> counters) {
+        counters.put("Routing decisions", numberOfRoutingDecisions);
+        counters.put("Packet hops", numberOfHops);
+        counters.put("Table construction time (ns)", tableConstructionTime);
+
+        for (final SimulationPhase phase : SimulationPhase.values()) {
+            counters.put(phase.getLabel() + " time (ns)",
+                         phaseTimes == null ? 0L : phaseTimes[phase.ordinal()]);
+        }
     }
 
     protected void initializePackets(final List<Packet> packetList) {
+        int maximumPacketId = -1;
+
         for (final Packet packet : packetList) {
-            packet.getSourcePacketRouter().enqueuePacket(packet);
+            if (packet.getId() < 0) {
+                throw new IllegalArgumentException(
+                        "Negative packet ID: " + packet.getId());
+            }
+
+            maximumPacketId = Math.max(maximumPacketId, packet.getId());
+        }
+
+        packetTargetIndices = new int[maximumPacketId + 1];
+        packetHistory = PacketHistory.create(
+                HistoryPolicy.strongerOf(historyPolicy,
+                                         getMinimumHistoryPolicy()),
+                maximumPacketId + 1);
+
+        Arrays.fill(packetTargetIndices, -1);
+
+        for (final Packet packet : packetList) {
+            final int sourceIndex =
+                    compiledNetwork.getIndexOf(packet.getSourcePacketRouter());
+            final int targetIndex = 
+                    compiledNetwork.getIndexOf(packet.getTargetPacketRouter());
+
+            if (sourceIndex < 0 || targetIndex < 0) {
+                throw new IllegalArgumentException(
+                        "Packet " + packet.getId() + " has a terminal " +
+                        "router that is not in the network.");
+            }
+
+            if (packetTargetIndices[packet.getId()] >= 0) {
+                throw new IllegalArgumentException(
+                        "Duplicate packet ID: " + packet.getId());
+            }
+
+            packetTargetIndices[packet.getId()] = targetIndex;
+
+            if (injectionProcess == null) {
+                packetHistory.start(packet.getId(), sourceIndex);
+                enqueuePacket(sourceIndex, packet);
+
+                if (hopTraceWriter != null) {
+                    hopTraceWriter.writeInjection(cycles, 
+                                                  packet.getId(), 
+                                                  sourceIndex);
+                }
+            }
+        }
+
+        if (injectionProcess == null) {
+            numberOfPackets = packetList.size();
+            return;
+        }
+
+        // The packets of an open-loop run are injected as the run proceeds.
+        packetInjectionCycles = new int[maximumPacketId + 1];
+        packetInjector = new PacketInjector(
+                this,
+                packetList,
+                injectionProcess.createSchedule(new SplittableRandom(seed)),
+                warmUpCycles,
+                getSaturationThresholdOrDefault());
+    }
+
+    /**
+     * Prepares an open-loop run whose packets are generated by 
+     * {@code workload}. The per-packet arrays start small and grow with the
+     * number of packets in the network.
+     * 
+     * @param workload the workload.
+     */
+    protected void initializeWorkload(final Workload workload) {
+        Objects.requireNonNull(workload, "The workload is null.");
 
-            historyMap.put(packet,
-                           new ArrayList<>(
-                                   Arrays.asList(
-                                           packet.getSourcePacketRouter())));
+        packetTargetIndices = new int[PacketInjector.INITIAL_PACKET_CAPACITY];
+        packetInjectionCycles = 
+                new int[PacketInjector.INITIAL_PACKET_CAPACITY];
+        packetHistory = PacketHistory.create(
+                HistoryPolicy.strongerOf(historyPolicy,
+                                         getMinimumHistoryPolicy()),
+                PacketInjector.INITIAL_PACKET_CAPACITY);
+
+        Arrays.fill(packetTargetIndices, -1);
+
+        packetInjector = new PacketInjector(
+                this,
+                workload.open(compiledNetwork, new SplittableRandom(seed)),
+                warmUpCycles,
+                getSaturationThresholdOrDefault());
+    }
+
+    /**
+     * Grows the per-packet arrays so that they accommodate the packet IDs 
+     * below {@code packetCapacity}.
+     * 
+     * @param packetCapacity the number of packet IDs to accommodate.
+     */
+    protected void ensurePacketCapacity(final int packetCapacity) {
+        final int oldCapacity = packetTargetIndices.length;
+
+        if (packetCapacity <= oldCapacity) {
+            return;
+        }
+
+        packetTargetIndices = Arrays.copyOf(packetTargetIndices, 
+                                            packetCapacity);
+        packetInjectionCycles = Arrays.copyOf(packetInjectionCycles,
+                                              packetCapacity);
+        Arrays.fill(packetTargetIndices, oldCapacity, packetCapacity, -1);
+        packetHistory.ensureCapacity(packetCapacity);
+
+        if (linkOutputQueues != null) {
+            linkOutputQueues.ensureCapacity(packetCapacity);
         }
     }
 
-    protected void loadPacketRouterQueueLengths(
-            final List<PacketRouter> network) {
-        network.forEach((router) -> { 
-            queueLengthList.add(router.queueLength()); 
-        });
+    private int getSaturationThresholdOrDefault() {
+        if (saturationThreshold > 0) {
+            return saturationThreshold;
+        }
+
+        return (int) Math.min(Integer.MAX_VALUE,
+                              (long) DEFAULT_SATURATION_BACKLOG_PER_ROUTER *
+                              compiledNetwork.size());
     }
 
-    protected void pruneDeliveredPackets() {
-        final Iterator<Packet> iterator = undeliveredPacketSet.iterator();
+    /**
+     * Injects {@code packet} of an open-loop run at its source router.
+     * 
+     * @param packet      the packet to inject.
+     * @param sourceIndex the index of the source router of the packet.
+     * @param cycle       the current cycle.
+     */
+    protected void injectPacket(final Packet packet, 
+                                final int sourceIndex,
+                                final int cycle) {
+        packetInjectionCycles[packet.getId()] = cycle;
+        packetHistory.start(packet.getId(), sourceIndex);
+
+        if (hopTraceWriter != null) {
+            hopTraceWriter.writeInjection(cycle, packet.getId(), sourceIndex);
+        }
 
-        while (iterator.hasNext()) {
-            final Packet packet = iterator.next();
-            final PacketRouter targetOfPacket = packet.getTargetPacketRouter();
-            final List<PacketRouter> historyOfPacket = historyMap.get(packet);
+        onPacketInjected(sourceIndex, packet);
+        enqueuePacket(sourceIndex, packet);
+        ++numberOfPackets;
+    }
 
-            if (lastOf(historyOfPacket).equals(targetOfPacket)) {
-                iterator.remove();
-                targetOfPacket.remove(packet);
-            }
+    /**
+     * Records the queue length of each packet router. The idle routers are 
+     * accounted for in bulk, so that only the active ones are visited.
+     */
+    protected void loadPacketRouterQueueLengths() {
+        for (int index = activePacketRouters.nextSetBit(0); 
+                index >= 0;
+                index = activePacketRouters.nextSetBit(index + 1)) {
+            recordQueueLength(getQueueLength(index), 1);
         }
+
+        recordQueueLength(
+                0, 
+                compiledNetwork.size() - numberOfActivePacketRouters);
     }
 
-    protected static <T> T lastOf(final List<T> list) {
-        return list.get(list.size() - 1);
+    /**
+     * Records {@code times} samples of the queue length {@code queueLength}.
+     * 
+     * @param queueLength the queue length.
+     * @param times       the number of samples.
+     */
+    void recordQueueLength(final int queueLength, final long times) {
+        queueLengthStatistics.add(queueLength, times);
+        queueLengthHistogram.record(queueLength, times);
     }
 
-    protected static <T> T choose(final List<T> list, final Random random) {
-        return list.get(random.nextInt(list.size()));
+    /**
+     * Records the transmission duration and the hop count of a delivered 
+     * packet.
+     */
+    private void recordDelivery(final int packetId, 
+                                final int transmissionDuration) {
+        transmissionDurationStatistics.add(transmissionDuration);
+        transmissionDurationHistogram.record(transmissionDuration);
+
+        if (packetHistory.recordsHopCounts()) {
+            hopCountHistogram.record(packetHistory.getHopCount(packetId));
+        }
     }
 }
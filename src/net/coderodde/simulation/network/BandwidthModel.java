@@ -0,0 +1,76 @@
+package net.coderodde.simulation.network;
+
+/**
+ * This interface defines the forwarding capacity of a network. Each packet
+ * router may route up to its service rate packets per cycle from its queue to
+ * the output queues of its links, and each link may carry up to its capacity
+ * packets per cycle. The capacity of a link may depend on its direction.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+public interface BandwidthModel {
+
+    /**
+     * The rate or capacity standing for "unlimited."
+     */
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    /**
+     * Returns the number of packets {@code packetRouter} may route per cycle.
+     * Must be positive.
+     *
+     * @param packetRouter the packet router.
+     * @return the service rate of the router.
+     */
+    public int getServiceRate(final PacketRouter packetRouter);
+
+    /**
+     * Returns the number of packets the link from {@code sourcePacketRouter}
+     * to its neighbor {@code targetPacketRouter} may carry per cycle. Must be
+     * positive.
+     *
+     * @param sourcePacketRouter the sending packet router.
+     * @param targetPacketRouter the receiving packet router.
+     * @return the capacity of the link.
+     */
+    public int getLinkCapacity(final PacketRouter sourcePacketRouter,
+                               final PacketRouter targetPacketRouter);
+
+    /**
+     * Returns a model in which all routers have the same service rate and
+     * all links have the same capacity. The model
+     * <tt>uniform(1, UNLIMITED)</tt> is the default behavior of the
+     * simulation.
+     *
+     * @param serviceRate  the service rate of every router.
+     * @param linkCapacity the capacity of every link.
+     * @return a uniform bandwidth model.
+     */
+    public static BandwidthModel uniform(final int serviceRate,
+                                         final int linkCapacity) {
+        if (serviceRate < 1) {
+            throw new IllegalArgumentException(
+                    "The service rate must be positive: " + serviceRate);
+        }
+
+        if (linkCapacity < 1) {
+            throw new IllegalArgumentException(
+                    "The link capacity must be positive: " + linkCapacity);
+        }
+
+        return new BandwidthModel() {
+
+            @Override
+            public int getServiceRate(final PacketRouter packetRouter) {
+                return serviceRate;
+            }
+
+            @Override
+            public int getLinkCapacity(final PacketRouter sourcePacketRouter,
+                                       final PacketRouter targetPacketRouter) {
+                return linkCapacity;
+            }
+        };
+    }
+}
@@ -0,0 +1,336 @@
+package net.coderodde.simulation.network;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * This class writes and restores the checkpoints of a simulation run. A
+ * checkpoint is taken between two cycles of the cycle-by-cycle engine and
+ * holds everything the rest of the run depends on:
+ * <ul>
+ *   <li>the cycle counter and the numbers of delivered packets, hops and
+ *       routing decisions,</li>
+ *   <li>the queue length, transmission duration and hop count 
+ *       accumulators,</li>
+ *   <li>the states of the random streams of the routers,</li>
+ *   <li>the packet histories,</li>
+ *   <li>the packet IDs in the queues of the routers and of the links,</li>
+ *   <li>the length of the hop trace, if any,</li>
+ *   <li>the algorithm-specific state, such as learned routing tables.</li>
+ * </ul>
+ * The network and the packets are not stored; the run is resumed by
+ * simulating the same packets on the same network with the same algorithm
+ * settings, whereupon the state set up by the algorithm is replaced by the
+ * one of the checkpoint. Resuming is deterministic: the resumed run ends
+ * exactly as the original one would have.
+ * <p>
+ * A checkpoint is written to a temporary file first, which then replaces the
+ * previous checkpoint, so that a crash while writing leaves the previous one
+ * intact.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+final class Checkpoint {
+
+    private static final int MAGIC   = 0x534E4B43;
+    private static final int VERSION = 2;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+
+    private Checkpoint() {}
+
+    /**
+     * Throws an {@link IllegalStateException} if the run of
+     * {@code algorithm} may not be checkpointed.
+     */
+    static void checkSupported(final AbstractPacketRoutingAlgorithm algorithm) {
+        if (algorithm.getLinkLatencyModel() != null) {
+            throw new IllegalStateException(
+                    "The discrete-event engine does not support " +
+                    "checkpoints.");
+        }
+
+        if (algorithm.packetInjector != null) {
+            throw new IllegalStateException(
+                    "Open-loop runs do not support checkpoints.");
+        }
+    }
+
+    /**
+     * Writes the current state of {@code algorithm} to the checkpoint file
+     * {@code path}.
+     *
+     * @param algorithm the state object of the run.
+     * @param path      the path of the checkpoint.
+     */
+    static void write(final AbstractPacketRoutingAlgorithm algorithm,
+                      final Path path) {
+        final Path temporaryPath =
+                path.resolveSibling(path.getFileName() +
+                                    TEMPORARY_FILE_SUFFIX);
+
+        try {
+            try (final DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(
+                            Files.newOutputStream(temporaryPath),
+                            BUFFER_SIZE))) {
+                writeState(algorithm, out);
+            }
+
+            try {
+                Files.move(temporaryPath,
+                           path,
+                           StandardCopyOption.REPLACE_EXISTING,
+                           StandardCopyOption.ATOMIC_MOVE);
+            } catch (final AtomicMoveNotSupportedException ex) {
+                Files.move(temporaryPath,
+                           path,
+                           StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(
+                    "Cannot write the checkpoint " + path, ex);
+        }
+    }
+
+    /**
+     * Replaces the state of the freshly initialized run of {@code algorithm}
+     * with the one of the checkpoint {@code path}.
+     *
+     * @param algorithm the state object of the run.
+     * @param path      the path of the checkpoint.
+     */
+    static void restore(final AbstractPacketRoutingAlgorithm algorithm,
+                        final Path path) {
+        try (final DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path),
+                                        BUFFER_SIZE))) {
+            readState(algorithm, in);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(
+                    "Cannot read the checkpoint " + path, ex);
+        }
+    }
+
+    private static void writeState(final AbstractPacketRoutingAlgorithm algorithm,
+                                   final DataOutputStream out)
+    throws IOException {
+        final CompiledNetwork network = algorithm.compiledNetwork;
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(algorithm.getClass().getName());
+        out.writeUTF(getEffectiveHistoryPolicy(algorithm).toString());
+        out.writeInt(network.size());
+        out.writeInt(network.getNumberOfDirectedLinks());
+        out.writeLong(algorithm.numberOfPackets);
+        out.writeLong(getPacketFingerprint(algorithm));
+
+        out.writeInt(algorithm.cycles);
+        out.writeLong(algorithm.numberOfDeliveredPackets);
+        out.writeLong(algorithm.numberOfHops);
+        out.writeLong(algorithm.numberOfRoutingDecisions);
+        algorithm.queueLengthStatistics.writeTo(out);
+        algorithm.transmissionDurationStatistics.writeTo(out);
+        algorithm.queueLengthHistogram.writeTo(out);
+        algorithm.transmissionDurationHistogram.writeTo(out);
+        algorithm.hopCountHistogram.writeTo(out);
+
+        for (int index = 0; index < network.size(); ++index) {
+            out.writeLong(algorithm.random.getState(index));
+        }
+
+        algorithm.packetHistory.writeTo(out);
+
+        // The router queues, in the order of the routers.
+        out.writeInt(algorithm.numberOfActivePacketRouters);
+
+        for (int index = algorithm.activePacketRouters.nextSetBit(0);
+                index >= 0;
+                index = algorithm.activePacketRouters.nextSetBit(index + 1)) {
+            final PacketRouter packetRouter = network.getPacketRouter(index);
+
+            out.writeInt(index);
+            out.writeInt(packetRouter.queueLength());
+
+            for (final Packet packet : packetRouter.getQueue()) {
+                out.writeInt(packet.getId());
+            }
+        }
+
+        out.writeBoolean(algorithm.linkOutputQueues != null);
+
+        if (algorithm.linkOutputQueues != null) {
+            algorithm.linkOutputQueues.writeTo(out);
+        }
+
+        out.writeLong(algorithm.hopTraceWriter == null ?
+                      -1L :
+                      algorithm.hopTraceWriter.synchronize());
+
+        algorithm.writeCheckpointState(out);
+    }
+
+    private static void readState(final AbstractPacketRoutingAlgorithm algorithm,
+                                  final DataInputStream in)
+    throws IOException {
+        final CompiledNetwork network = algorithm.compiledNetwork;
+
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a checkpoint.");
+        }
+
+        final int version = in.readInt();
+
+        if (version != VERSION) {
+            throw new IOException("Unsupported checkpoint version: " +
+                                  version);
+        }
+
+        checkMatch(in.readUTF(),
+                   algorithm.getClass().getName(),
+                   "algorithm");
+        checkMatch(in.readUTF(),
+                   getEffectiveHistoryPolicy(algorithm).toString(),
+                   "history policy");
+        checkMatch(in.readInt(), network.size(), "number of routers");
+        checkMatch(in.readInt(),
+                   network.getNumberOfDirectedLinks(),
+                   "number of directed links");
+        checkMatch(in.readLong(), algorithm.numberOfPackets,
+                   "number of packets");
+        checkMatch(in.readLong(), getPacketFingerprint(algorithm),
+                   "packet fingerprint");
+
+        // All packets wait at their sources now. Collect them by ID.
+        final Packet[] packetsById =
+                new Packet[algorithm.packetTargetIndices.length];
+
+        for (int index = algorithm.activePacketRouters.nextSetBit(0);
+                index >= 0;
+                index = algorithm.activePacketRouters.nextSetBit(index + 1)) {
+            for (final Packet packet :
+                    network.getPacketRouter(index).getQueue()) {
+                packetsById[packet.getId()] = packet;
+            }
+        }
+
+        algorithm.clearNetwork();
+
+        algorithm.cycles = in.readInt();
+        algorithm.numberOfDeliveredPackets = in.readLong();
+        algorithm.numberOfHops = in.readLong();
+        algorithm.numberOfRoutingDecisions = in.readLong();
+        algorithm.queueLengthStatistics.readFrom(in);
+        algorithm.transmissionDurationStatistics.readFrom(in);
+        algorithm.queueLengthHistogram.readFrom(in);
+        algorithm.transmissionDurationHistogram.readFrom(in);
+        algorithm.hopCountHistogram.readFrom(in);
+
+        for (int index = 0; index < network.size(); ++index) {
+            algorithm.random.setState(index, in.readLong());
+        }
+
+        algorithm.packetHistory.readFrom(in);
+
+        final int numberOfActivePacketRouters = in.readInt();
+
+        for (int i = 0; i < numberOfActivePacketRouters; ++i) {
+            final int index = in.readInt();
+            final int queueLength = in.readInt();
+
+            if (index < 0 || index >= network.size()) {
+                throw new IOException("Bad router index: " + index);
+            }
+
+            // A router may be active only for the backlog of its links.
+            algorithm.activatePacketRouter(index);
+
+            for (int j = 0; j < queueLength; ++j) {
+                algorithm.enqueuePacket(index,
+                                        getPacket(packetsById, in.readInt()));
+            }
+        }
+
+        if (in.readBoolean() != (algorithm.linkOutputQueues != null)) {
+            throw new IllegalArgumentException(
+                    "The checkpoint does not match the bandwidth model.");
+        }
+
+        if (algorithm.linkOutputQueues != null) {
+            algorithm.linkOutputQueues.readFrom(in, packetsById);
+        }
+
+        final long hopTraceLength = in.readLong();
+
+        if (algorithm.getHopTracePath() != null) {
+            if (hopTraceLength < 0) {
+                throw new IllegalArgumentException(
+                        "The checkpoint was taken without a hop trace.");
+            }
+
+            algorithm.hopTraceWriter =
+                    new HopTraceWriter(algorithm.getHopTracePath(),
+                                       hopTraceLength);
+        }
+
+        algorithm.readCheckpointState(in);
+    }
+
+    /**
+     * Returns the packet with ID {@code packetId}, checking that the ID is
+     * valid.
+     */
+    static Packet getPacket(final Packet[] packetsById, final int packetId)
+    throws IOException {
+        if (packetId < 0
+                || packetId >= packetsById.length
+                || packetsById[packetId] == null) {
+            throw new IOException("Bad packet ID: " + packetId);
+        }
+
+        return packetsById[packetId];
+    }
+
+    private static HistoryPolicy getEffectiveHistoryPolicy(
+            final AbstractPacketRoutingAlgorithm algorithm) {
+        return HistoryPolicy.strongerOf(algorithm.getHistoryPolicy(),
+                                        algorithm.getMinimumHistoryPolicy());
+    }
+
+    /**
+     * Returns a 64-bit fingerprint of the packet IDs and their targets, so
+     * that a checkpoint is not resumed with other packets.
+     */
+    private static long getPacketFingerprint(
+            final AbstractPacketRoutingAlgorithm algorithm) {
+        long fingerprint = algorithm.packetTargetIndices.length;
+
+        for (final int targetIndex : algorithm.packetTargetIndices) {
+            fingerprint = 31 * fingerprint + targetIndex;
+        }
+
+        return fingerprint;
+    }
+
+    private static void checkMatch(final Object saved,
+                                   final Object actual,
+                                   final String what) {
+        if (!saved.equals(actual)) {
+            throw new IllegalArgumentException(
+                    "The checkpoint does not match the " + what + ": " +
+                    saved + " instead of " + actual + ".");
+        }
+    }
+}
@@ -0,0 +1,550 @@
+package net.coderodde.simulation.network;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * This class implements an immutable, integer-indexed view of a network of
+ * packet routers. Each packet router is assigned a dense index
+ * <tt>0, 1, ..., n - 1</tt> (the position of the router in the input list),
+ * and the links are stored in the compressed sparse row (CSR) format: the
+ * indices of the neighbors of the router with index <tt>i</tt> occupy the
+ * range <tt>neighbors[offsets[i]], ..., neighbors[offsets[i + 1] - 1]</tt>.
+ * <p>
+ * The neighbors of each router appear in the same order as in
+ * {@link PacketRouter#getNeighbors()}, so that a neighbor <i>slot</i>
+ * <tt>0, 1, ..., degree - 1</tt> identifies the same link in both
+ * representations.
+ * <p>
+ * A network may also be built directly from a list of links via
+ * {@link #fromLinks(int, int[], int[], int)} or from the CSR arrays via
+ * {@link #fromCsr(int[], int[])}, in which case the packet router
+ * with index <tt>i</tt> gets the ID <tt>i</tt>. The list returned by
+ * {@link #getPacketRouters()} may then be passed to the routing algorithms,
+ * which recognize it and use this network as is instead of compiling it
+ * again.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+public final class CompiledNetwork {
+
+    /**
+     * Maps each router index to the actual packet router object.
+     */
+    private final PacketRouter[] packetRouters;
+
+    /**
+     * The CSR offset array of length <tt>n + 1</tt>.
+     */
+    private final int[] offsets;
+
+    /**
+     * The CSR neighbor array. Each undirected link appears twice.
+     */
+    private final int[] neighbors;
+
+    /**
+     * Maps each router index to the number of its neighbors.
+     */
+    private final int[] degrees;
+
+    /**
+     * Maps each packet router to its index. Used only when translating
+     * object-based input (such as packets) to indices. Is {@code null} if the
+     * index of each router equals its ID.
+     */
+    private final Map<PacketRouter, Integer> indexMap;
+
+    /**
+     * The list view of {@link #packetRouters}.
+     */
+    private final List<PacketRouter> packetRouterList = new PacketRouterList();
+
+    private final int maximumDegree;
+
+    private CompiledNetwork(final PacketRouter[] packetRouters,
+                            final int[] offsets,
+                            final int[] neighbors,
+                            final int[] degrees,
+                            final Map<PacketRouter, Integer> indexMap) {
+        this.packetRouters = packetRouters;
+        this.offsets       = offsets;
+        this.neighbors     = neighbors;
+        this.degrees       = degrees;
+        this.indexMap      = indexMap;
+
+        int maximumDegree = 0;
+
+        for (final int degree : degrees) {
+            maximumDegree = Math.max(maximumDegree, degree);
+        }
+
+        this.maximumDegree = maximumDegree;
+    }
+
+    /**
+     * Constructs a network of new packet routers, whose neighbors are read
+     * from the CSR arrays.
+     */
+    private CompiledNetwork(final int[] offsets,
+                            final int[] neighbors,
+                            final int[] degrees) {
+        this(new PacketRouter[degrees.length], 
+             offsets, 
+             neighbors, 
+             degrees, 
+             null);
+
+        for (int index = 0; index < packetRouters.length; ++index) {
+            packetRouters[index] = new PacketRouter(index, this);
+        }
+    }
+
+    /**
+     * Compiles the input network into the integer-indexed form.
+     *
+     * @param network the list of packet routers comprising the network.
+     * @return the compiled network.
+     */
+    public static CompiledNetwork compile(final List<PacketRouter> network) {
+        Objects.requireNonNull(network, "The input network is null.");
+
+        if (network instanceof PacketRouterList) {
+            return ((PacketRouterList) network).getCompiledNetwork();
+        }
+
+        final int size = network.size();
+        final PacketRouter[] packetRouters = new PacketRouter[size];
+        final Map<PacketRouter, Integer> indexMap = new HashMap<>(2 * size);
+
+        for (int index = 0; index < size; ++index) {
+            final PacketRouter packetRouter = network.get(index);
+            packetRouters[index] = packetRouter;
+
+            if (indexMap.put(packetRouter, index) != null) {
+                throw new IllegalArgumentException(
+                        "Duplicate packet router in the network: " +
+                        packetRouter.getId());
+            }
+        }
+
+        final int[] offsets = new int[size + 1];
+        final int[] degrees = new int[size];
+
+        for (int index = 0; index < size; ++index) {
+            degrees[index] = packetRouters[index].getNeighbors().size();
+            offsets[index + 1] = offsets[index] + degrees[index];
+        }
+
+        final int[] neighbors = new int[offsets[size]];
+
+        for (int index = 0; index < size; ++index) {
+            int slot = offsets[index];
+
+            for (final PacketRouter neighbor :
+                    packetRouters[index].getNeighbors()) {
+                final Integer neighborIndex = indexMap.get(neighbor);
+
+                if (neighborIndex == null) {
+                    throw new IllegalArgumentException(
+                            "Packet router " + packetRouters[index].getId() +
+                            " is linked to the router " + neighbor.getId() +
+                            ", which is not in the network.");
+                }
+
+                neighbors[slot++] = neighborIndex;
+            }
+        }
+
+        return new CompiledNetwork(packetRouters,
+                                   offsets,
+                                   neighbors,
+                                   degrees,
+                                   indexMap);
+    }
+
+    /**
+     * Builds a network of {@code size} new packet routers and the 
+     * {@code numberOfLinks} undirected links <tt>linkSources[i] -- 
+     * linkTargets[i]</tt>. The router with index <tt>i</tt> gets the ID 
+     * <tt>i</tt>, and the neighbors of each router appear in the order of the
+     * links. Runs in <tt>O(size + numberOfLinks)</tt> time.
+     *
+     * @param size          the number of packet routers.
+     * @param linkSources   the first router index of each link.
+     * @param linkTargets   the second router index of each link.
+     * @param numberOfLinks the number of links.
+     * @return the compiled network.
+     */
+    public static CompiledNetwork fromLinks(final int size,
+                                            final int[] linkSources,
+                                            final int[] linkTargets,
+                                            final int numberOfLinks) {
+        if (size < 0) {
+            throw new IllegalArgumentException(
+                    "Negative number of routers: " + size);
+        }
+
+        if (numberOfLinks < 0
+                || numberOfLinks > linkSources.length
+                || numberOfLinks > linkTargets.length) {
+            throw new IllegalArgumentException(
+                    "Bad number of links: " + numberOfLinks);
+        }
+
+        final int[] degrees = new int[size];
+
+        for (int i = 0; i < numberOfLinks; ++i) {
+            final int source = linkSources[i];
+            final int target = linkTargets[i];
+
+            if (source < 0 || source >= size || target < 0 || target >= size) {
+                throw new IllegalArgumentException(
+                        "Link " + source + " -- " + target + 
+                        " has a terminal out of range.");
+            }
+
+            if (source == target) {
+                throw new IllegalArgumentException(
+                        "Link " + source + " -- " + target + " is a loop.");
+            }
+
+            ++degrees[source];
+            ++degrees[target];
+        }
+
+        final int[] offsets = new int[size + 1];
+
+        for (int index = 0; index < size; ++index) {
+            offsets[index + 1] = 
+                    Math.addExact(offsets[index], degrees[index]);
+        }
+
+        // Distribute the links by a counting sort, keeping their order.
+        final int[] neighbors = new int[offsets[size]];
+        final int[] fill = Arrays.copyOf(offsets, size);
+
+        for (int i = 0; i < numberOfLinks; ++i) {
+            neighbors[fill[linkSources[i]]++] = linkTargets[i];
+            neighbors[fill[linkTargets[i]]++] = linkSources[i];
+        }
+
+        // Reject parallel links, stamping the neighbors of each router.
+        final int[] stamps = fill;
+        Arrays.fill(stamps, -1);
+
+        for (int index = 0; index < size; ++index) {
+            for (int offset = offsets[index]; 
+                    offset < offsets[index + 1]; 
+                    ++offset) {
+                final int neighbor = neighbors[offset];
+
+                if (stamps[neighbor] == index) {
+                    throw new IllegalArgumentException(
+                            "Duplicate link " + index + " -- " + neighbor + 
+                            ".");
+                }
+
+                stamps[neighbor] = index;
+            }
+        }
+
+        return new CompiledNetwork(offsets, neighbors, degrees);
+    }
+
+    /**
+     * Builds a network of new packet routers directly from the CSR arrays,
+     * which are used as is and must not be modified afterwards. The router 
+     * with index <tt>i</tt> gets the ID <tt>i</tt>. The arrays must describe
+     * an undirected network: each link <tt>u -- v</tt> must appear both in the
+     * neighbor range of <tt>u</tt> and in that of <tt>v</tt>, and there may be
+     * neither loops nor parallel links. All this is checked in 
+     * <tt>O(n + m)</tt> time, the symmetry by comparing 64-bit fingerprints 
+     * of the two directions, which misses an asymmetry only with negligible
+     * probability.
+     *
+     * @param offsets   the CSR offset array of length <tt>n + 1</tt>.
+     * @param neighbors the CSR neighbor array.
+     * @return the compiled network.
+     */
+    public static CompiledNetwork fromCsr(final int[] offsets, 
+                                          final int[] neighbors) {
+        Objects.requireNonNull(offsets, "The offset array is null.");
+        Objects.requireNonNull(neighbors, "The neighbor array is null.");
+
+        if (offsets.length == 0 || offsets[0] != 0) {
+            throw new IllegalArgumentException(
+                    "The offset array must start with zero.");
+        }
+
+        final int size = offsets.length - 1;
+
+        if (offsets[size] != neighbors.length) {
+            throw new IllegalArgumentException(
+                    "The last offset " + offsets[size] + " does not match " +
+                    "the length of the neighbor array " + neighbors.length + 
+                    ".");
+        }
+
+        final int[] degrees = new int[size];
+
+        for (int index = 0; index < size; ++index) {
+            degrees[index] = offsets[index + 1] - offsets[index];
+
+            if (degrees[index] < 0) {
+                throw new IllegalArgumentException(
+                        "The offsets decrease at router " + index + ".");
+            }
+        }
+
+        for (int index = 0; index < size; ++index) {
+            for (int offset = offsets[index]; 
+                    offset < offsets[index + 1]; 
+                    ++offset) {
+                final int neighbor = neighbors[offset];
+
+                if (neighbor < 0 || neighbor >= size) {
+                    throw new IllegalArgumentException(
+                            "Link " + index + " -- " + neighbor + 
+                            " has a terminal out of range.");
+                }
+
+                if (neighbor == index) {
+                    throw new IllegalArgumentException(
+                            "Link " + index + " -- " + neighbor + 
+                            " is a loop.");
+                }
+            }
+        }
+
+        // Each link u -- v with u < v adds its fingerprint, and each with
+        // u > v subtracts it, so the sum vanishes if the links are symmetric.
+        // Unlike transposing the arrays, this reads them sequentially.
+        final int[] stamps = new int[size];
+        Arrays.fill(stamps, -1);
+        long fingerprintSum = 0L;
+
+        for (int index = 0; index < size; ++index) {
+            for (int offset = offsets[index]; 
+                    offset < offsets[index + 1]; 
+                    ++offset) {
+                final int neighbor = neighbors[offset];
+
+                if (stamps[neighbor] == index) {
+                    throw new IllegalArgumentException(
+                            "Duplicate link " + index + " -- " + neighbor + 
+                            ".");
+                }
+
+                stamps[neighbor] = index;
+
+                if (index < neighbor) {
+                    fingerprintSum += fingerprint(index, neighbor);
+                } else {
+                    fingerprintSum -= fingerprint(neighbor, index);
+                }
+            }
+        }
+
+        if (fingerprintSum != 0L) {
+            throw new IllegalArgumentException(
+                    "The links are not symmetric.");
+        }
+
+        return new CompiledNetwork(offsets, neighbors, degrees);
+    }
+
+    /**
+     * Returns the number of packet routers in this network.
+     *
+     * @return the number of routers.
+     */
+    public int size() {
+        return packetRouters.length;
+    }
+
+    /**
+     * Returns the number of directed links, which is twice the number of
+     * undirected links.
+     *
+     * @return the number of directed links.
+     */
+    public int getNumberOfDirectedLinks() {
+        return neighbors.length;
+    }
+
+    public PacketRouter getPacketRouter(final int index) {
+        return packetRouters[index];
+    }
+
+    /**
+     * Returns the unmodifiable list of the packet routers in index order. 
+     * Compiling the list returns this network.
+     *
+     * @return the packet routers.
+     */
+    public List<PacketRouter> getPacketRouters() {
+        return packetRouterList;
+    }
+
+    /**
+     * Returns the index of the input packet router, or <tt>-1</tt> if it does
+     * not belong to this network.
+     *
+     * @param packetRouter the packet router to look up.
+     * @return the index of the router or <tt>-1</tt>.
+     */
+    public int getIndexOf(final PacketRouter packetRouter) {
+        if (indexMap == null) {
+            final int id = packetRouter.getId();
+
+            return id >= 0 && id < packetRouters.length 
+                           && packetRouters[id].equals(packetRouter) ? 
+                   id : 
+                   -1;
+        }
+
+        final Integer index = indexMap.get(packetRouter);
+        return index == null ? -1 : index;
+    }
+
+    public int getDegree(final int index) {
+        return degrees[index];
+    }
+
+    public int getMaximumDegree() {
+        return maximumDegree;
+    }
+
+    /**
+     * Returns the position of the first neighbor of the router {@code index}
+     * in the CSR neighbor array.
+     *
+     * @param index the index of the router.
+     * @return the offset of the neighbor range.
+     */
+    public int getNeighborOffset(final int index) {
+        return offsets[index];
+    }
+
+    /**
+     * Returns the index of the {@code slot}th neighbor of the router
+     * {@code index}.
+     *
+     * @param index the index of the router.
+     * @param slot  the neighbor slot within <tt>[0, degree)</tt>.
+     * @return the index of the neighbor router.
+     */
+    public int getNeighbor(final int index, final int slot) {
+        return neighbors[offsets[index] + slot];
+    }
+
+    /**
+     * Returns the neighbor router index stored at position {@code offset} of
+     * the CSR neighbor array.
+     *
+     * @param offset the position in the neighbor array.
+     * @return the index of the neighbor router.
+     */
+    public int getNeighborAt(final int offset) {
+        return neighbors[offset];
+    }
+
+    /**
+     * Returns the neighbor slot of {@code neighborIndex} at the router
+     * {@code index}, or <tt>-1</tt> if the two routers are not linked.
+     *
+     * @param index         the index of the router.
+     * @param neighborIndex the index of the neighbor.
+     * @return the neighbor slot or <tt>-1</tt>.
+     */
+    public int getNeighborSlot(final int index, final int neighborIndex) {
+        final int begin = offsets[index];
+        final int end = offsets[index + 1];
+
+        for (int offset = begin; offset < end; ++offset) {
+            if (neighbors[offset] == neighborIndex) {
+                return offset - begin;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the 64-bit fingerprint of the link <tt>u -- v</tt> by the
+     * MurmurHash3 finalizer.
+     */
+    private static long fingerprint(final int u, final int v) {
+        long key = ((long) u << 32) | v;
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    /**
+     * Returns the unmodifiable list view of the neighbors of the router
+     * {@code index}, in slot order.
+     *
+     * @param index the index of the router.
+     * @return the neighbor routers.
+     */
+    List<PacketRouter> getNeighborList(final int index) {
+        return new NeighborList(index);
+    }
+
+    /**
+     * The list view of the packet routers, recognized by 
+     * {@link #compile(List)}.
+     */
+    private final class PacketRouterList extends AbstractList<PacketRouter>
+    implements RandomAccess {
+
+        @Override
+        public PacketRouter get(final int index) {
+            return packetRouters[index];
+        }
+
+        @Override
+        public int size() {
+            return packetRouters.length;
+        }
+
+        CompiledNetwork getCompiledNetwork() {
+            return CompiledNetwork.this;
+        }
+    }
+
+    /**
+     * The list view of the CSR neighbor range of a router.
+     */
+    private final class NeighborList extends AbstractList<PacketRouter>
+    implements RandomAccess {
+
+        private final int index;
+
+        NeighborList(final int index) {
+            this.index = index;
+        }
+
+        @Override
+        public PacketRouter get(final int slot) {
+            Objects.checkIndex(slot, degrees[index]);
+            return packetRouters[neighbors[offsets[index] + slot]];
+        }
+
+        @Override
+        public int size() {
+            return degrees[index];
+        }
+    }
+}
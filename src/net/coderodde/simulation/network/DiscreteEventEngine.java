@@ -0,0 +1,269 @@
+package net.coderodde.simulation.network;
+
+import java.util.Arrays;
+
+/**
+ * This class implements the discrete-event engine of a packet routing
+ * algorithm. Instead of visiting the network cycle by cycle, the engine
+ * processes timestamped events in time order, so that the running time is
+ * proportional to the number of events rather than the number of cycles times
+ * the number of routers. There are two kinds of events:
+ *
+ * <ul>
+ * <li><b>transmit</b>: a router sends its head packet to the neighbor chosen
+ *     by the routing algorithm; the packet is then in flight for the latency
+ *     of the link. A router with more packets queued transmits again at the
+ *     next cycle.</li>
+ * <li><b>arrive</b>: a packet reaches the router at the other end of a link,
+ *     and is either delivered or enqueued. An idle router receiving a packet
+ *     transmits it during the same cycle.</li>
+ * </ul>
+ *
+ * All arrivals of a cycle precede all transmissions of the cycle, arrivals
+ * are ordered by the sending router and transmissions by the transmitting
+ * router. Hence, if every link has the latency of one cycle, the packets 
+ * move exactly as in the cycle-by-cycle engine, and the results are the same
+ * up to the floating-point rounding of the mean and the standard deviation 
+ * of the queue lengths, which are accumulated in a different order.
+ * <p>
+ * The events are kept in a {@link RadixHeap}, keyed by the time in the upper
+ * 32 bits, the kind of the event in bit 31 and the router index in the lower
+ * bits. The queue lengths are accounted for lazily: a router adds its queue
+ * length once per change, weighted by the number of cycles it was held.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+final class DiscreteEventEngine {
+
+    private static final long TRANSMIT_EVENT = 1L << 31;
+
+    private static final long ROUTER_INDEX_MASK = TRANSMIT_EVENT - 1;
+
+    private final AbstractPacketRoutingAlgorithm algorithm;
+
+    private final CompiledNetwork network;
+
+    /**
+     * The latency of each directed link, indexed like the neighbor array of
+     * the compiled network, or {@code null} if all links have the latency
+     * {@code uniformLatency}.
+     */
+    private final int[] linkLatencies;
+    private final int uniformLatency;
+
+    private final RadixHeap eventQueue = new RadixHeap();
+
+    /**
+     * Map the ID of each packet in flight to the packet and to the index of
+     * the router it is heading to.
+     */
+    private final Packet[] packetsInFlight;
+    private final int[] packetReceiverIndices;
+
+    /**
+     * The cycle up to which (exclusively) the queue length of each router has
+     * been recorded, and the sum of these cycles.
+     */
+    private final int[] queueLengthRecordedUntil;
+    private long queueLengthRecordedUntilSum;
+
+    DiscreteEventEngine(final AbstractPacketRoutingAlgorithm algorithm,
+                        final LinkLatencyModel linkLatencyModel) {
+        this.algorithm = algorithm;
+        this.network   = algorithm.compiledNetwork;
+
+        final int[] latencies =
+                new int[network.getNumberOfDirectedLinks()];
+        boolean uniform = true;
+
+        for (int index = 0; index < network.size(); ++index) {
+            final int offset = network.getNeighborOffset(index);
+
+            for (int slot = 0; slot < network.getDegree(index); ++slot) {
+                final int latency = linkLatencyModel.getLatency(
+                        network.getPacketRouter(index),
+                        network.getPacketRouter(
+                                network.getNeighborAt(offset + slot)));
+
+                if (latency < 1) {
+                    throw new IllegalArgumentException(
+                            "The link latency must be positive: " + latency);
+                }
+
+                latencies[offset + slot] = latency;
+                uniform &= latency == latencies[0];
+            }
+        }
+
+        this.uniformLatency = latencies.length == 0 ? 1 : latencies[0];
+        this.linkLatencies  = uniform ? null : latencies;
+
+        this.packetsInFlight       =
+                new Packet[algorithm.packetTargetIndices.length];
+        this.packetReceiverIndices =
+                new int[algorithm.packetTargetIndices.length];
+        this.queueLengthRecordedUntil = new int[network.size()];
+    }
+
+    /**
+     * Runs the simulation until all packets are delivered or the cycle limit
+     * of the algorithm is exceeded.
+     */
+    void run() {
+        final int startCycle = algorithm.cycles;
+
+        Arrays.fill(queueLengthRecordedUntil, startCycle);
+        queueLengthRecordedUntilSum = (long) startCycle * network.size();
+
+        for (int index = algorithm.activePacketRouters.nextSetBit(0);
+                index >= 0;
+                index = algorithm.activePacketRouters.nextSetBit(index + 1)) {
+            scheduleTransmission(startCycle, index);
+        }
+
+        boolean arrivalsPending = false;
+
+        while (algorithm.hasUndeliveredPackets()) {
+            final long key = eventQueue.extractMinimum();
+            final int time = (int) (key >>> 32);
+            final boolean isTransmission = (key & TRANSMIT_EVENT) != 0;
+
+            // The arrivals of a cycle conclude the previous cycle.
+            if (arrivalsPending && (isTransmission || time > algorithm.cycles)) {
+                algorithm.completeCycle();
+                arrivalsPending = false;
+            }
+
+            if (time > algorithm.cycles) {
+                if (algorithm.isCycleLimitExceeded()) {
+                    return;
+                }
+
+                algorithm.cycles = time;
+
+                if (algorithm.simulationMonitor != null) {
+                    algorithm.simulationMonitor.endPhase(
+                            SimulationPhase.ROUTING);
+                    algorithm.simulationMonitor.endCycle();
+                }
+            }
+
+            // As in the cycle-by-cycle engine, the last cycle within the 
+            // limit is concluded by its arrivals before the run stops.
+            if (isTransmission && algorithm.isCycleLimitExceeded()) {
+                return;
+            }
+
+            if (isTransmission) {
+                transmit(time, (int) (key & ROUTER_INDEX_MASK));
+            } else {
+                arrive(time, 
+                       (int) (key & ROUTER_INDEX_MASK),
+                       eventQueue.getLastValue());
+                arrivalsPending = true;
+            }
+        }
+
+        if (arrivalsPending) {
+            algorithm.completeCycle();
+        }
+
+        // All queues are empty now.
+        algorithm.recordQueueLength(
+                0,
+                (long) algorithm.cycles * network.size()
+                        - queueLengthRecordedUntilSum);
+    }
+
+    private void transmit(final int time, final int packetRouterIndex) {
+        recordQueueLength(packetRouterIndex, time + 1);
+
+        final PacketRouter packetRouter =
+                network.getPacketRouter(packetRouterIndex);
+        final Packet packet = packetRouter.dequeuePacket();
+        final int nextPacketRouterIndex;
+        final int latency;
+
+        if (linkLatencies == null) {
+            nextPacketRouterIndex =
+                    algorithm.computeNextPacketRouterIndex(packetRouterIndex,
+                                                           packet);
+            latency = uniformLatency;
+        } else {
+            // The latency is indexed by the link, so decide on the slot.
+            final int slot = algorithm.computeNextSlot(packetRouterIndex,
+                                                       packet);
+
+            if (slot < 0) {
+                throw new IllegalStateException(
+                        "Packet " + packet.getId() + " is routed to a " +
+                        "router that is not a neighbor.");
+            }
+
+            final int offset = network.getNeighborOffset(packetRouterIndex);
+            nextPacketRouterIndex = network.getNeighborAt(offset + slot);
+            latency = linkLatencies[offset + slot];
+        }
+
+        ++algorithm.numberOfRoutingDecisions;
+
+        packetsInFlight[packet.getId()] = packet;
+        packetReceiverIndices[packet.getId()] = nextPacketRouterIndex;
+        eventQueue.insert(
+                ((long) Math.addExact(time, latency) << 32)
+                | packetRouterIndex,
+                packet.getId());
+
+        if (packetRouter.queueLength() > 0) {
+            scheduleTransmission(time + 1, packetRouterIndex);
+        } else {
+            algorithm.activePacketRouters.clear(packetRouterIndex);
+            --algorithm.numberOfActivePacketRouters;
+        }
+    }
+
+    private void arrive(final int time, 
+                        final int senderIndex,
+                        final int packetId) {
+        final Packet packet = packetsInFlight[packetId];
+        final int packetRouterIndex = packetReceiverIndices[packetId];
+        final boolean wasActive =
+                algorithm.activePacketRouters.get(packetRouterIndex);
+
+        packetsInFlight[packetId] = null;
+        recordQueueLength(packetRouterIndex, time);
+        algorithm.receivePacket(senderIndex, packetRouterIndex, packet, time);
+
+        if (!wasActive
+                && algorithm.activePacketRouters.get(packetRouterIndex)) {
+            scheduleTransmission(time, packetRouterIndex);
+        }
+    }
+
+    private void scheduleTransmission(final int time,
+                                      final int packetRouterIndex) {
+        eventQueue.insert(((long) time << 32)
+                          | TRANSMIT_EVENT
+                          | packetRouterIndex,
+                          packetRouterIndex);
+    }
+
+    /**
+     * Records the current queue length of the router {@code packetRouterIndex}
+     * for each cycle up to {@code time} (exclusively) not yet recorded. The
+     * queue length of a cycle is the one after the arrivals and before the
+     * transmission of the cycle, as sampled by the cycle-by-cycle engine.
+     */
+    private void recordQueueLength(final int packetRouterIndex,
+                                   final int time) {
+        final int recordedUntil = queueLengthRecordedUntil[packetRouterIndex];
+
+        algorithm.recordQueueLength(
+                network.getPacketRouter(packetRouterIndex).queueLength(),
+                time - recordedUntil);
+
+        queueLengthRecordedUntil[packetRouterIndex] = time;
+        queueLengthRecordedUntilSum += time - recordedUntil;
+    }
+}
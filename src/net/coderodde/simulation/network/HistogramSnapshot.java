@@ -0,0 +1,155 @@
+package net.coderodde.simulation.network;
+
+import java.util.Arrays;
+
+/**
+ * This class is an immutable copy of a log-bucketed histogram of integer
+ * samples, such as the transmission durations of a simulation run. The
+ * values below 128 are counted exactly, and larger values within 1/64 of
+ * their magnitude, so the percentiles are accurate to about two significant
+ * digits. The snapshots of several runs may be merged into one without
+ * keeping any samples.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+public final class HistogramSnapshot {
+
+    private static final HistogramSnapshot EMPTY =
+            new HistogramSnapshot(new long[0], 0, Long.MAX_VALUE,
+                                  Long.MIN_VALUE, 0.0);
+
+    /**
+     * The bucket counts up to the last non-empty bucket.
+     */
+    private final long[] counts;
+
+    private final long totalCount;
+    private final long minimum;
+    private final long maximum;
+    private final double sum;
+
+    HistogramSnapshot(final long[] counts,
+                      final long totalCount,
+                      final long minimum,
+                      final long maximum,
+                      final double sum) {
+        int length = counts.length;
+
+        while (length > 0 && counts[length - 1] == 0) {
+            --length;
+        }
+
+        this.counts     = Arrays.copyOf(counts, length);
+        this.totalCount = totalCount;
+        this.minimum    = minimum;
+        this.maximum    = maximum;
+        this.sum        = sum;
+    }
+
+    /**
+     * Returns the snapshot of an empty histogram, which is the neutral
+     * element of {@link #merge(HistogramSnapshot)}.
+     *
+     * @return the empty snapshot.
+     */
+    public static HistogramSnapshot empty() {
+        return EMPTY;
+    }
+
+    public long getCount() {
+        return totalCount;
+    }
+
+    /**
+     * Returns the smallest sample, or zero if there is none.
+     *
+     * @return the minimum sample.
+     */
+    public long getMinimum() {
+        return totalCount == 0 ? 0 : minimum;
+    }
+
+    /**
+     * Returns the largest sample, or zero if there is none.
+     *
+     * @return the maximum sample.
+     */
+    public long getMaximum() {
+        return totalCount == 0 ? 0 : maximum;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? Double.NaN : sum / totalCount;
+    }
+
+    /**
+     * Returns the value below or at which {@code percentile} percent of the
+     * samples fall, reported as the highest value of its bucket, but at most
+     * the maximum sample. For example, {@code getValueAtPercentile(99.9)}
+     * returns the p99.9 of the samples.
+     *
+     * @param percentile the percentile within <tt>[0, 100]</tt>.
+     * @return the value at the percentile, or zero if there are no samples.
+     */
+    public long getValueAtPercentile(final double percentile) {
+        if (!(percentile >= 0.0 && percentile <= 100.0)) {
+            throw new IllegalArgumentException(
+                    "The percentile must be within [0, 100]: " + percentile);
+        }
+
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1L,
+                                   (long) Math.ceil(percentile / 100.0 *
+                                                    totalCount));
+        long cumulativeCount = 0;
+
+        for (int index = 0; index < counts.length; ++index) {
+            cumulativeCount += counts[index];
+
+            if (cumulativeCount >= rank) {
+                return Math.max(minimum,
+                                Math.min(maximum,
+                                         LogHistogram.getHighestValue(index)));
+            }
+        }
+
+        return maximum;
+    }
+
+    /**
+     * Returns the snapshot of the histogram holding the samples of both this
+     * and {@code other}.
+     *
+     * @param other the other snapshot.
+     * @return the merged snapshot.
+     */
+    public HistogramSnapshot merge(final HistogramSnapshot other) {
+        final long[] mergedCounts =
+                Arrays.copyOf(counts, Math.max(counts.length,
+                                               other.counts.length));
+
+        for (int index = 0; index < other.counts.length; ++index) {
+            mergedCounts[index] += other.counts[index];
+        }
+
+        return new HistogramSnapshot(mergedCounts,
+                                     totalCount + other.totalCount,
+                                     Math.min(minimum, other.minimum),
+                                     Math.max(maximum, other.maximum),
+                                     sum + other.sum);
+    }
+
+    @Override
+    public String toString() {
+        return "[count = " + getCount() +
+               ", min = " + getMinimum() +
+               ", p50 = " + getValueAtPercentile(50.0) +
+               ", p99 = " + getValueAtPercentile(99.0) +
+               ", p99.9 = " + getValueAtPercentile(99.9) +
+               ", max = " + getMaximum() + "]";
+    }
+}
@@ -0,0 +1,116 @@
+package net.coderodde.simulation.network;
+
+/**
+ * This class specifies how much of the route of each packet is recorded
+ * during a simulation. The available policies, from the cheapest to the most
+ * detailed, are:
+ * <ul>
+ *   <li>{@link #off()}: nothing is recorded,</li>
+ *   <li>{@link #hopCount()}: only the number of hops of each packet,</li>
+ *   <li>{@link #lastHops(int)}: the last <tt>K</tt> routers visited by each
+ *       packet,</li>
+ *   <li>{@link #full()}: the entire route of each packet.</li>
+ * </ul>
+ * The routes recorded by the full policy are discarded once the packets are
+ * delivered, so that the memory taken depends on the packets in the network
+ * rather than on all packets of a run.
+ * A policy <i>covers</i> another if it records at least as much detail.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+public final class HistoryPolicy {
+
+    public enum Mode {
+        OFF,
+        HOP_COUNT,
+        LAST_HOPS,
+        FULL
+    }
+
+    private static final HistoryPolicy OFF = new HistoryPolicy(Mode.OFF, 0);
+    private static final HistoryPolicy HOP_COUNT =
+            new HistoryPolicy(Mode.HOP_COUNT, 0);
+    private static final HistoryPolicy FULL = new HistoryPolicy(Mode.FULL, 0);
+
+    private final Mode mode;
+
+    /**
+     * The number of most recent routers retained per packet. Meaningful only
+     * in the mode {@link Mode#LAST_HOPS}.
+     */
+    private final int capacity;
+
+    private HistoryPolicy(final Mode mode, final int capacity) {
+        this.mode = mode;
+        this.capacity = capacity;
+    }
+
+    public static HistoryPolicy off() {
+        return OFF;
+    }
+
+    public static HistoryPolicy hopCount() {
+        return HOP_COUNT;
+    }
+
+    /**
+     * Returns a policy retaining the last {@code capacity} routers visited by
+     * each packet.
+     *
+     * @param capacity the number of routers to retain per packet.
+     * @return the history policy.
+     */
+    public static HistoryPolicy lastHops(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(
+                    "The history capacity must be positive: " + capacity);
+        }
+
+        return new HistoryPolicy(Mode.LAST_HOPS, capacity);
+    }
+
+    public static HistoryPolicy full() {
+        return FULL;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Checks whether this policy records at least as much as {@code other}.
+     *
+     * @param other the policy to compare against.
+     * @return {@code true} if this policy covers {@code other}.
+     */
+    public boolean covers(final HistoryPolicy other) {
+        if (mode != other.mode) {
+            return mode.compareTo(other.mode) > 0;
+        }
+
+        return capacity >= other.capacity;
+    }
+
+    /**
+     * Returns whichever of the two policies covers the other.
+     *
+     * @param a the first policy.
+     * @param b the second policy.
+     * @return the more detailed of the two policies.
+     */
+    static HistoryPolicy strongerOf(final HistoryPolicy a,
+                                    final HistoryPolicy b) {
+        return a.covers(b) ? a : b;
+    }
+
+    @Override
+    public String toString() {
+        return mode == Mode.LAST_HOPS ? mode + "(" + capacity + ")"
+                                      : mode.toString();
+    }
+}
@@ -0,0 +1,385 @@
+package net.coderodde.simulation.network;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * This class analyzes the hop trace written by a simulation run for which
+ * {@link AbstractPacketRoutingAlgorithm#setHopTracePath(Path)} was set. The
+ * trace is a little-endian file of a 16-byte header
+ * <pre>
+ *   int magic           (0x50524854, "THRP")
+ *   int version         (1)
+ *   int numberOfRouters
+ *   int recordSize      (16)
+ * </pre>
+ * followed by fixed-width records of four integers
+ * <tt>(cycle, packetId, fromRouter, toRouter)</tt> in the order of the events.
+ * A record with <tt>fromRouter = -1</tt> marks the injection of a packet at
+ * the router <tt>toRouter</tt>, a record with <tt>toRouter = -1</tt> marks
+ * its delivery at the router <tt>fromRouter</tt>, and the other records are
+ * the hops, the cycle being the one at which the packet arrives. Since the
+ * packet IDs of a workload are reused, the route of a packet extends from its
+ * injection record to its delivery record.
+ * <p>
+ * The trace is mapped into memory rather than read, so even traces of
+ * hundreds of millions of hops are analyzed without loading them. Only the
+ * routes of the packets in flight are held in memory while the routes are
+ * rebuilt.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+public final class HopTrace {
+
+    static final int MAGIC       = 0x50524854;
+    static final int VERSION     = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 16;
+
+    /**
+     * The router index standing for the missing end of an injection or a
+     * delivery record.
+     */
+    public static final int NO_ROUTER = -1;
+
+    /**
+     * The number of records per mapped chunk, so that a chunk never exceeds
+     * the 2 GiB limit of a buffer.
+     */
+    private static final int RECORDS_PER_CHUNK = 1 << 26;
+
+    private final int numberOfRouters;
+    private final long numberOfRecords;
+    private final ByteBuffer[] chunks;
+
+    private HopTrace(final int numberOfRouters,
+                     final long numberOfRecords,
+                     final ByteBuffer[] chunks) {
+        this.numberOfRouters = numberOfRouters;
+        this.numberOfRecords = numberOfRecords;
+        this.chunks          = chunks;
+    }
+
+    /**
+     * Maps the hop trace file {@code path} into memory.
+     *
+     * @param path the path of the trace file.
+     * @return the trace.
+     * @throws IOException if mapping fails or the file is not a hop trace.
+     */
+    public static HopTrace open(final Path path) throws IOException {
+        Objects.requireNonNull(path, "The input path is null.");
+
+        try (final FileChannel channel =
+                FileChannel.open(path, StandardOpenOption.READ)) {
+            final long fileSize = channel.size();
+
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("The file is too short: " + path);
+            }
+
+            final ByteBuffer header =
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                           .order(ByteOrder.LITTLE_ENDIAN);
+
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a hop trace: " + path);
+            }
+
+            final int version = header.getInt();
+
+            if (version != VERSION) {
+                throw new IOException(
+                        "Unsupported hop trace version: " + version);
+            }
+
+            final int numberOfRouters = header.getInt();
+
+            if (numberOfRouters < 0
+                    || header.getInt() != RECORD_SIZE
+                    || (fileSize - HEADER_SIZE) % RECORD_SIZE != 0) {
+                throw new IOException("Corrupted hop trace: " + path);
+            }
+
+            final long numberOfRecords = (fileSize - HEADER_SIZE) / RECORD_SIZE;
+            final int numberOfChunks =
+                    (int) ((numberOfRecords + RECORDS_PER_CHUNK - 1)
+                           / RECORDS_PER_CHUNK);
+            final ByteBuffer[] chunks = new ByteBuffer[numberOfChunks];
+
+            for (int i = 0; i < numberOfChunks; ++i) {
+                final long firstRecord = (long) i * RECORDS_PER_CHUNK;
+                final long records = Math.min(RECORDS_PER_CHUNK,
+                                              numberOfRecords - firstRecord);
+
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                                        HEADER_SIZE +
+                                                firstRecord * RECORD_SIZE,
+                                        records * RECORD_SIZE)
+                                   .order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+            return new HopTrace(numberOfRouters, numberOfRecords, chunks);
+        }
+    }
+
+    public int getNumberOfRouters() {
+        return numberOfRouters;
+    }
+
+    public long getNumberOfRecords() {
+        return numberOfRecords;
+    }
+
+    public int getCycle(final long record) {
+        return getField(record, 0);
+    }
+
+    public int getPacketId(final long record) {
+        return getField(record, 1);
+    }
+
+    public int getFromRouter(final long record) {
+        return getField(record, 2);
+    }
+
+    public int getToRouter(final long record) {
+        return getField(record, 3);
+    }
+
+    private int getField(final long record, final int field) {
+        Objects.checkIndex(record, numberOfRecords);
+
+        return chunks[(int) (record / RECORDS_PER_CHUNK)]
+               .getInt((int) (record % RECORDS_PER_CHUNK) * RECORD_SIZE
+                       + field * Integer.BYTES);
+    }
+
+    /**
+     * This interface receives the routes rebuilt by
+     * {@link HopTrace#forEachRoute(RouteVisitor)}.
+     */
+    @FunctionalInterface
+    public interface RouteVisitor {
+
+        /**
+         * Receives the route of a packet, from its source router to the last
+         * router it reached. The array is reused for the next routes, so only
+         * its first {@code length} entries are valid, and only until this
+         * method returns.
+         *
+         * @param packetId       the ID of the packet.
+         * @param injectionCycle the cycle at which the packet was injected.
+         * @param deliveryCycle  the cycle at which the packet was delivered,
+         *                       or <tt>-1</tt> if it never was.
+         * @param routers        the indices of the routers of the route.
+         * @param length         the number of routers in the route.
+         */
+        void visitRoute(final int packetId,
+                        final int injectionCycle,
+                        final int deliveryCycle,
+                        final int[] routers,
+                        final int length);
+    }
+
+    /**
+     * Rebuilds the route of each packet and passes it to {@code visitor}. The
+     * routes of the delivered packets are passed in the order of delivery,
+     * and those of the packets still in the network at the end of the trace
+     * follow in the order of their IDs.
+     *
+     * @param visitor the route visitor.
+     */
+    public void forEachRoute(final RouteVisitor visitor) {
+        Objects.requireNonNull(visitor, "The route visitor is null.");
+
+        final RouteBuilder builder = new RouteBuilder();
+
+        for (long record = 0; record < numberOfRecords; ++record) {
+            final int cycle      = getCycle(record);
+            final int packetId   = getPacketId(record);
+            final int fromRouter = getFromRouter(record);
+            final int toRouter   = getToRouter(record);
+
+            if (packetId < 0) {
+                throw new IllegalStateException(
+                        "Negative packet ID in record " + record + ".");
+            }
+
+            if (fromRouter == NO_ROUTER) {
+                builder.start(packetId, cycle, toRouter);
+            } else if (toRouter == NO_ROUTER) {
+                builder.checkInFlight(packetId, record);
+                visitor.visitRoute(packetId,
+                                   builder.injectionCycles[packetId],
+                                   cycle,
+                                   builder.routes[packetId],
+                                   builder.lengths[packetId]);
+                builder.finish(packetId);
+            } else {
+                builder.checkInFlight(packetId, record);
+                builder.append(packetId, toRouter);
+            }
+        }
+
+        for (int packetId = 0; packetId < builder.lengths.length; ++packetId) {
+            if (builder.lengths[packetId] > 0) {
+                visitor.visitRoute(packetId,
+                                   builder.injectionCycles[packetId],
+                                   -1,
+                                   builder.routes[packetId],
+                                   builder.lengths[packetId]);
+            }
+        }
+    }
+
+    /**
+     * Computes the summary statistics of the trace.
+     *
+     * @return the summary.
+     */
+    public Summary summarize() {
+        final Summary summary = new Summary(numberOfRouters);
+
+        forEachRoute((packetId, injectionCycle, deliveryCycle,
+                      routers, length) -> {
+            ++summary.injectedPackets;
+
+            for (int i = 1; i < length; ++i) {
+                ++summary.routerLoads[routers[i]];
+            }
+
+            if (deliveryCycle >= 0) {
+                ++summary.deliveredPackets;
+                summary.hopCountStatistics.add(length - 1);
+                summary.transmissionDurationStatistics.add(
+                        deliveryCycle - injectionCycle + 1);
+            }
+        });
+
+        return summary;
+    }
+
+    /**
+     * This class holds the statistics computed from a hop trace.
+     */
+    public static final class Summary {
+
+        private long injectedPackets;
+        private long deliveredPackets;
+        private final RunningStatistics hopCountStatistics =
+                new RunningStatistics();
+        private final RunningStatistics transmissionDurationStatistics =
+                new RunningStatistics();
+        private final long[] routerLoads;
+
+        private Summary(final int numberOfRouters) {
+            this.routerLoads = new long[numberOfRouters];
+        }
+
+        public long getInjectedPackets() {
+            return injectedPackets;
+        }
+
+        public long getDeliveredPackets() {
+            return deliveredPackets;
+        }
+
+        /**
+         * Returns the statistics of the number of hops of the delivered
+         * packets.
+         *
+         * @return the hop count statistics.
+         */
+        public RunningStatistics getHopCountStatistics() {
+            return hopCountStatistics;
+        }
+
+        /**
+         * Returns the statistics of the transmission durations of the
+         * delivered packets, counted as by the simulation.
+         *
+         * @return the transmission duration statistics.
+         */
+        public RunningStatistics getTransmissionDurationStatistics() {
+            return transmissionDurationStatistics;
+        }
+
+        /**
+         * Returns the number of hops that arrived at the router
+         * {@code packetRouterIndex}.
+         *
+         * @param packetRouterIndex the router index.
+         * @return the number of hops received by the router.
+         */
+        public long getRouterLoad(final int packetRouterIndex) {
+            return routerLoads[packetRouterIndex];
+        }
+    }
+
+    /**
+     * Holds the routes of the packets in flight, indexed by packet ID. A
+     * length of zero marks an ID not in flight.
+     */
+    private static final class RouteBuilder {
+
+        private static final int INITIAL_ROUTE_CAPACITY = 8;
+
+        int[][] routes = new int[0][];
+        int[] lengths = new int[0];
+        int[] injectionCycles = new int[0];
+
+        void start(final int packetId,
+                   final int cycle,
+                   final int sourceIndex) {
+            if (packetId >= lengths.length) {
+                final int capacity = Math.max(packetId + 1,
+                                              2 * lengths.length);
+                routes = Arrays.copyOf(routes, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+                injectionCycles = Arrays.copyOf(injectionCycles, capacity);
+            }
+
+            if (routes[packetId] == null) {
+                routes[packetId] = new int[INITIAL_ROUTE_CAPACITY];
+            }
+
+            routes[packetId][0] = sourceIndex;
+            lengths[packetId] = 1;
+            injectionCycles[packetId] = cycle;
+        }
+
+        void append(final int packetId, final int packetRouterIndex) {
+            if (lengths[packetId] == routes[packetId].length) {
+                routes[packetId] = Arrays.copyOf(routes[packetId],
+                                                 2 * lengths[packetId]);
+            }
+
+            routes[packetId][lengths[packetId]++] = packetRouterIndex;
+        }
+
+        void finish(final int packetId) {
+            lengths[packetId] = 0;
+
+            if (routes[packetId].length > INITIAL_ROUTE_CAPACITY) {
+                // Do not hold on to the longest route ever seen.
+                routes[packetId] = null;
+            }
+        }
+
+        void checkInFlight(final int packetId, final long record) {
+            if (packetId >= lengths.length || lengths[packetId] == 0) {
+                throw new IllegalStateException(
+                        "Packet " + packetId + " of record " + record +
+                        " was not injected.");
+            }
+        }
+    }
+}
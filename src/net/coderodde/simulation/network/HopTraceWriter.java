@@ -0,0 +1,179 @@
+package net.coderodde.simulation.network;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class streams the hop records of a simulation run to a file, as
+ * described in {@link HopTrace}. The records are collected in a direct buffer
+ * and written through a file channel whenever the buffer fills up, so the
+ * memory used does not depend on the length of the run.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+final class HopTraceWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE)
+                                                .order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Creates the trace file {@code path}, replacing any existing file, and
+     * writes its header.
+     *
+     * @param path            the path of the trace file.
+     * @param numberOfRouters the number of routers in the network.
+     */
+    HopTraceWriter(final Path path, final int numberOfRouters) {
+        this.path = path;
+
+        try {
+            this.channel = FileChannel.open(
+                    path,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(
+                    "Cannot create the hop trace " + path, ex);
+        }
+
+        buffer.putInt(HopTrace.MAGIC)
+              .putInt(HopTrace.VERSION)
+              .putInt(numberOfRouters)
+              .putInt(HopTrace.RECORD_SIZE);
+    }
+
+    /**
+     * Reopens the trace file {@code path} written up to the byte 
+     * {@code position} by a run being resumed from a checkpoint, dropping the
+     * records written after the checkpoint.
+     *
+     * @param path     the path of the trace file.
+     * @param position the length of the trace at the checkpoint.
+     */
+    HopTraceWriter(final Path path, final long position) {
+        this.path = path;
+
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.WRITE);
+
+            if (channel.size() < position) {
+                channel.close();
+                throw new IOException("The trace is shorter than at the " +
+                                      "checkpoint.");
+            }
+
+            channel.truncate(position);
+            channel.position(position);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(
+                    "Cannot reopen the hop trace " + path, ex);
+        }
+    }
+
+    /**
+     * Writes the buffered records, so that the file holds the whole trace so
+     * far, and returns its length.
+     *
+     * @return the length of the trace in bytes.
+     */
+    long synchronize() {
+        flush();
+
+        try {
+            channel.force(false);
+            return channel.position();
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(
+                    "Cannot write the hop trace " + path, ex);
+        }
+    }
+
+    /**
+     * Records that {@code packetId} was injected at the router
+     * {@code sourceIndex} at the cycle {@code cycle}.
+     */
+    void writeInjection(final int cycle,
+                        final int packetId,
+                        final int sourceIndex) {
+        write(cycle, packetId, HopTrace.NO_ROUTER, sourceIndex);
+    }
+
+    /**
+     * Records that {@code packetId} arrived at the router {@code toIndex}
+     * from the router {@code fromIndex} at the cycle {@code cycle}.
+     */
+    void writeHop(final int cycle,
+                  final int packetId,
+                  final int fromIndex,
+                  final int toIndex) {
+        write(cycle, packetId, fromIndex, toIndex);
+    }
+
+    /**
+     * Records that {@code packetId} was delivered at the router
+     * {@code targetIndex} at the cycle {@code cycle}.
+     */
+    void writeDelivery(final int cycle,
+                       final int packetId,
+                       final int targetIndex) {
+        write(cycle, packetId, targetIndex, HopTrace.NO_ROUTER);
+    }
+
+    private void write(final int cycle,
+                       final int packetId,
+                       final int fromIndex,
+                       final int toIndex) {
+        if (buffer.remaining() < HopTrace.RECORD_SIZE) {
+            flush();
+        }
+
+        buffer.putInt(cycle)
+              .putInt(packetId)
+              .putInt(fromIndex)
+              .putInt(toIndex);
+    }
+
+    private void flush() {
+        buffer.flip();
+
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(
+                    "Cannot write the hop trace " + path, ex);
+        }
+
+        buffer.clear();
+    }
+
+    /**
+     * Writes the buffered records and closes the file.
+     */
+    @Override
+    public void close() {
+        try {
+            flush();
+        } finally {
+            try {
+                channel.close();
+            } catch (final IOException ex) {
+                throw new UncheckedIOException(
+                        "Cannot close the hop trace " + path, ex);
+            }
+        }
+    }
+}
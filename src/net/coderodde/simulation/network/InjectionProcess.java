@@ -0,0 +1,220 @@
+package net.coderodde.simulation.network;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.SplittableRandom;
+
+/**
+ * This class specifies when the packets of an open-loop simulation enter the
+ * network. Instead of injecting all packets at once, the packets of the input
+ * list are injected one by one, in list order, at the cycles produced by the
+ * process. The available processes are:
+ * <ul>
+ *   <li>{@link #poisson(double)}: a Poisson process with a constant rate,</li>
+ *   <li>{@link #onOff(double, double, double)}: a bursty process alternating
+ *       between exponentially distributed "on" periods, during which the
+ *       packets arrive as a Poisson process, and silent "off" periods,</li>
+ *   <li>{@link #trace(int[])}: the injection cycles recorded in a trace.</li>
+ * </ul>
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+public abstract class InjectionProcess {
+
+    private InjectionProcess() {}
+
+    /**
+     * Returns a Poisson process injecting {@code rate} packets per cycle on
+     * average.
+     *
+     * @param rate the mean number of packets injected per cycle.
+     * @return the injection process.
+     */
+    public static InjectionProcess poisson(final double rate) {
+        checkPositive(rate, "injection rate");
+        return new OnOffInjectionProcess(rate,
+                                         Double.POSITIVE_INFINITY,
+                                         0.0);
+    }
+
+    /**
+     * Returns a bursty process injecting {@code onRate} packets per cycle on
+     * average during its "on" periods and nothing during its "off" periods.
+     * The lengths of the periods are exponentially distributed with the given
+     * means. The process starts in an "on" period.
+     *
+     * @param onRate          the mean number of packets per cycle when on.
+     * @param meanOnDuration  the mean length of an "on" period in cycles.
+     * @param meanOffDuration the mean length of an "off" period in cycles.
+     * @return the injection process.
+     */
+    public static InjectionProcess onOff(final double onRate,
+                                         final double meanOnDuration,
+                                         final double meanOffDuration) {
+        checkPositive(onRate, "injection rate");
+        checkPositive(meanOnDuration, "mean on duration");
+        checkPositive(meanOffDuration, "mean off duration");
+        return new OnOffInjectionProcess(onRate,
+                                         meanOnDuration,
+                                         meanOffDuration);
+    }
+
+    /**
+     * Returns a process injecting the packets at the cycles listed in
+     * {@code injectionCycles}. The cycles must be positive and
+     * non-decreasing. Once the trace is exhausted, no more packets are
+     * injected.
+     *
+     * @param injectionCycles the injection cycle of each packet.
+     * @return the injection process.
+     */
+    public static InjectionProcess trace(final int[] injectionCycles) {
+        for (int i = 0; i < injectionCycles.length; ++i) {
+            if (injectionCycles[i] < 1) {
+                throw new IllegalArgumentException(
+                        "Non-positive injection cycle: " +
+                        injectionCycles[i]);
+            }
+
+            if (i > 0 && injectionCycles[i] < injectionCycles[i - 1]) {
+                throw new IllegalArgumentException(
+                        "The injection cycles are not sorted at index " +
+                        i + ".");
+            }
+        }
+
+        return new TraceInjectionProcess(
+                Arrays.copyOf(injectionCycles, injectionCycles.length));
+    }
+
+    /**
+     * Starts a new run of this process, returning the non-decreasing sequence
+     * of the injection cycles.
+     *
+     * @param random the random number generator of the run.
+     * @return the injection cycles.
+     */
+    abstract PrimitiveIterator.OfInt createSchedule(
+            final SplittableRandom random);
+
+    private static void checkPositive(final double value, final String name) {
+        if (!(value > 0.0)) {
+            throw new IllegalArgumentException(
+                    "The " + name + " must be positive: " + value);
+        }
+    }
+
+    private static double nextExponential(final SplittableRandom random,
+                                          final double mean) {
+        return -mean * Math.log(1.0 - random.nextDouble());
+    }
+
+    /**
+     * Implements both the Poisson process, which is "on" for good, and the
+     * on-off process. The time is continuous, the cycle <tt>c</tt> covering
+     * the time interval <tt>[c - 1, c)</tt>.
+     */
+    private static final class OnOffInjectionProcess extends InjectionProcess {
+
+        private final double onRate;
+        private final double meanOnDuration;
+        private final double meanOffDuration;
+
+        OnOffInjectionProcess(final double onRate,
+                              final double meanOnDuration,
+                              final double meanOffDuration) {
+            this.onRate          = onRate;
+            this.meanOnDuration  = meanOnDuration;
+            this.meanOffDuration = meanOffDuration;
+        }
+
+        @Override
+        PrimitiveIterator.OfInt createSchedule(final SplittableRandom random) {
+            return new PrimitiveIterator.OfInt() {
+
+                private double time;
+
+                private double onPeriodEnd =
+                        Double.isInfinite(meanOnDuration) ?
+                        Double.POSITIVE_INFINITY :
+                        nextExponential(random, meanOnDuration);
+
+                @Override
+                public boolean hasNext() {
+                    return true;
+                }
+
+                @Override
+                public int nextInt() {
+                    double arrival = time + nextExponential(random,
+                                                            1.0 / onRate);
+
+                    while (arrival >= onPeriodEnd) {
+                        // Skip the off period and start a new on period.
+                        final double onPeriodStart =
+                                onPeriodEnd +
+                                nextExponential(random, meanOffDuration);
+
+                        onPeriodEnd = onPeriodStart +
+                                      nextExponential(random, meanOnDuration);
+                        arrival = onPeriodStart +
+                                  nextExponential(random, 1.0 / onRate);
+                    }
+
+                    time = arrival;
+                    return 1 + (int) Math.min(time, Integer.MAX_VALUE - 2);
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            if (Double.isInfinite(meanOnDuration)) {
+                return "[Poisson injection: rate = " + onRate + "]";
+            }
+
+            return "[On-off injection: rate = " + onRate +
+                   ", mean on = " + meanOnDuration +
+                   ", mean off = " + meanOffDuration + "]";
+        }
+    }
+
+    private static final class TraceInjectionProcess extends InjectionProcess {
+
+        private final int[] injectionCycles;
+
+        TraceInjectionProcess(final int[] injectionCycles) {
+            this.injectionCycles = injectionCycles;
+        }
+
+        @Override
+        PrimitiveIterator.OfInt createSchedule(final SplittableRandom random) {
+            return new PrimitiveIterator.OfInt() {
+
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return index < injectionCycles.length;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+
+                    return injectionCycles[index++];
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return "[Trace injection: " + injectionCycles.length +
+                   " packets]";
+        }
+    }
+}
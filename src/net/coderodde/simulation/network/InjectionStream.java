@@ -0,0 +1,46 @@
+package net.coderodde.simulation.network;
+
+/**
+ * This interface defines a lazily generated stream of packet injections, each
+ * consisting of a source router, a target router and an injection cycle. The
+ * routers are identified by their indices in the {@link CompiledNetwork}. The
+ * stream works as a cursor: {@link #advance()} moves to the next injection,
+ * whose components are then available via the getters, so that no object is
+ * created per injection.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+public interface InjectionStream {
+
+    /**
+     * Moves to the next injection.
+     *
+     * @return {@code false} if the stream is exhausted.
+     */
+    public boolean advance();
+
+    /**
+     * Returns the index of the source router of the current injection.
+     *
+     * @return the source router index.
+     */
+    public int getSourceIndex();
+
+    /**
+     * Returns the index of the target router of the current injection, which
+     * must differ from the source router index.
+     *
+     * @return the target router index.
+     */
+    public int getTargetIndex();
+
+    /**
+     * Returns the cycle of the current injection. The injection cycles must
+     * not decrease along the stream; injections due at past cycles are
+     * performed at the current cycle.
+     *
+     * @return the injection cycle.
+     */
+    public int getInjectionCycle();
+}
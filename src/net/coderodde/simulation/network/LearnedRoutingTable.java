@@ -0,0 +1,341 @@
+package net.coderodde.simulation.network;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * This class stores the distance and dispatch tables of
+ * {@link LearningPacketRoutingAlgorithm}. The tables are organized in rows,
+ * one per destination router, and each row is allocated only when the
+ * destination is first seen. A row maps each router index to the length of
+ * the shortest path towards the destination learned so far, and to the slot
+ * of the neighbor the packets bound to the destination are sent to.
+ * <p>
+ * If the network is small enough, the rows are stored as {@code short}
+ * arrays, and as {@code int} arrays otherwise. Distances that do not fit the
+ * row type are not recorded, which only matters for paths looping through the
+ * network tens of thousands of times.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+abstract class LearnedRoutingTable {
+
+    /**
+     * The distance of an unknown path.
+     */
+    static final int UNKNOWN_DISTANCE = Integer.MAX_VALUE;
+
+    private static final int NONE = -1;
+
+    protected final CompiledNetwork network;
+
+    /**
+     * Maps each destination router index to its row, or {@link #NONE}.
+     */
+    protected final int[] rowOfDestination;
+
+    protected int numberOfRows;
+
+    LearnedRoutingTable(final CompiledNetwork network) {
+        this.network          = network;
+        this.rowOfDestination = new int[network.size()];
+        Arrays.fill(rowOfDestination, NONE);
+    }
+
+    /**
+     * Creates an empty table for the input network using the narrowest row
+     * type that accommodates it.
+     *
+     * @param network the network.
+     * @return an empty table.
+     */
+    static LearnedRoutingTable create(final CompiledNetwork network) {
+        if (network.size() < Short.MAX_VALUE
+                && network.getMaximumDegree() < Short.MAX_VALUE) {
+            return new ShortLearnedRoutingTable(network);
+        }
+
+        return new IntLearnedRoutingTable(network);
+    }
+
+    boolean hasDestination(final int destination) {
+        return rowOfDestination[destination] != NONE;
+    }
+
+    int getNumberOfDestinations() {
+        return numberOfRows;
+    }
+
+    /**
+     * Allocates the row of {@code destination}. Each router starts with an
+     * unknown distance and a next hop chosen uniformly at random among its
+     * neighbors from its own random stream.
+     *
+     * @param destination the destination router index.
+     * @param random      the random streams of the routers.
+     */
+    void addDestination(final int destination,
+                        final PacketRouterRandom random) {
+        if (hasDestination(destination)) {
+            return;
+        }
+
+        final int row = allocateRow();
+        rowOfDestination[destination] = row;
+
+        for (int router = 0; router < network.size(); ++router) {
+            final int degree = network.getDegree(router);
+            setSlotAt(row, router, degree == 0 ? 
+                                   NONE : 
+                                   random.nextInt(router, degree));
+        }
+    }
+
+    /**
+     * Returns the learned distance from {@code router} to {@code destination},
+     * or {@link #UNKNOWN_DISTANCE}.
+     *
+     * @param router      the router index.
+     * @param destination the destination router index.
+     * @return the distance.
+     */
+    int getDistance(final int router, final int destination) {
+        return getDistanceAt(rowOfDestination[destination], router);
+    }
+
+    /**
+     * Returns the slot of the neighbor {@code router} sends the packets bound
+     * to {@code destination}, or <tt>-1</tt> if the router has no neighbors.
+     *
+     * @param router      the router index.
+     * @param destination the destination router index.
+     * @return the neighbor slot.
+     */
+    int getSlot(final int router, final int destination) {
+        return getSlotAt(rowOfDestination[destination], router);
+    }
+
+    /**
+     * Records a path of length {@code distance} from {@code router} to
+     * {@code destination} starting via the neighbor slot {@code slot}.
+     *
+     * @param router      the router index.
+     * @param destination the destination router index.
+     * @param distance    the length of the path.
+     * @param slot        the neighbor slot.
+     */
+    void update(final int router,
+                final int destination,
+                final int distance,
+                final int slot) {
+        final int row = rowOfDestination[destination];
+        setDistanceAt(row, router, distance);
+        setSlotAt(row, router, slot);
+    }
+
+    /**
+     * Writes the rows to {@code out} in the order they were allocated.
+     *
+     * @param out the output.
+     * @throws IOException if writing fails.
+     */
+    void writeTo(final DataOutput out) throws IOException {
+        final int[] destinationOfRow = new int[numberOfRows];
+
+        for (int destination = 0; 
+                destination < rowOfDestination.length; 
+                ++destination) {
+            if (rowOfDestination[destination] != NONE) {
+                destinationOfRow[rowOfDestination[destination]] = destination;
+            }
+        }
+
+        out.writeInt(numberOfRows);
+
+        for (int row = 0; row < numberOfRows; ++row) {
+            out.writeInt(destinationOfRow[row]);
+
+            for (int router = 0; router < network.size(); ++router) {
+                out.writeInt(getDistanceAt(row, router));
+                out.writeInt(getSlotAt(row, router));
+            }
+        }
+    }
+
+    /**
+     * Adds the rows written by {@link #writeTo(DataOutput)} to this empty
+     * table.
+     *
+     * @param in the input.
+     * @throws IOException if reading fails or the rows do not fit the network.
+     */
+    void readFrom(final DataInput in) throws IOException {
+        final int rows = in.readInt();
+
+        if (rows < 0 || rows > network.size()) {
+            throw new IOException("Bad number of table rows: " + rows);
+        }
+
+        for (int i = 0; i < rows; ++i) {
+            final int destination = in.readInt();
+
+            if (destination < 0
+                    || destination >= network.size()
+                    || hasDestination(destination)) {
+                throw new IOException("Bad destination: " + destination);
+            }
+
+            final int row = allocateRow();
+            rowOfDestination[destination] = row;
+
+            for (int router = 0; router < network.size(); ++router) {
+                final int distance = in.readInt();
+                final int slot = in.readInt();
+
+                if (slot < NONE || slot >= network.getDegree(router)) {
+                    throw new IOException("Bad neighbor slot: " + slot);
+                }
+
+                // A new row has unknown distances.
+                if (distance != UNKNOWN_DISTANCE) {
+                    setDistanceAt(row, router, distance);
+                }
+
+                setSlotAt(row, router, slot);
+            }
+        }
+    }
+
+    /**
+     * Returns the largest distance that may be recorded.
+     *
+     * @return the maximum distance.
+     */
+    abstract int getMaximumDistance();
+
+    protected abstract int allocateRow();
+
+    protected abstract int getDistanceAt(final int row, final int router);
+
+    protected abstract void setDistanceAt(final int row,
+                                          final int router,
+                                          final int distance);
+
+    protected abstract int getSlotAt(final int row, final int router);
+
+    protected abstract void setSlotAt(final int row,
+                                      final int router,
+                                      final int slot);
+
+    private static final class ShortLearnedRoutingTable
+    extends LearnedRoutingTable {
+
+        private static final short UNKNOWN = Short.MAX_VALUE;
+
+        private short[][] distances = new short[4][];
+        private short[][] slots = new short[4][];
+
+        ShortLearnedRoutingTable(final CompiledNetwork network) {
+            super(network);
+        }
+
+        @Override
+        int getMaximumDistance() {
+            return UNKNOWN - 1;
+        }
+
+        @Override
+        protected int allocateRow() {
+            if (numberOfRows == distances.length) {
+                distances = Arrays.copyOf(distances, 2 * numberOfRows);
+                slots = Arrays.copyOf(slots, 2 * numberOfRows);
+            }
+
+            distances[numberOfRows] = new short[network.size()];
+            slots[numberOfRows] = new short[network.size()];
+            Arrays.fill(distances[numberOfRows], UNKNOWN);
+            return numberOfRows++;
+        }
+
+        @Override
+        protected int getDistanceAt(final int row, final int router) {
+            final short distance = distances[row][router];
+            return distance == UNKNOWN ? UNKNOWN_DISTANCE : distance;
+        }
+
+        @Override
+        protected void setDistanceAt(final int row,
+                                     final int router,
+                                     final int distance) {
+            distances[row][router] = (short) distance;
+        }
+
+        @Override
+        protected int getSlotAt(final int row, final int router) {
+            return slots[row][router];
+        }
+
+        @Override
+        protected void setSlotAt(final int row,
+                                 final int router,
+                                 final int slot) {
+            slots[row][router] = (short) slot;
+        }
+    }
+
+    private static final class IntLearnedRoutingTable
+    extends LearnedRoutingTable {
+
+        private int[][] distances = new int[4][];
+        private int[][] slots = new int[4][];
+
+        IntLearnedRoutingTable(final CompiledNetwork network) {
+            super(network);
+        }
+
+        @Override
+        int getMaximumDistance() {
+            return UNKNOWN_DISTANCE - 1;
+        }
+
+        @Override
+        protected int allocateRow() {
+            if (numberOfRows == distances.length) {
+                distances = Arrays.copyOf(distances, 2 * numberOfRows);
+                slots = Arrays.copyOf(slots, 2 * numberOfRows);
+            }
+
+            distances[numberOfRows] = new int[network.size()];
+            slots[numberOfRows] = new int[network.size()];
+            Arrays.fill(distances[numberOfRows], UNKNOWN_DISTANCE);
+            return numberOfRows++;
+        }
+
+        @Override
+        protected int getDistanceAt(final int row, final int router) {
+            return distances[row][router];
+        }
+
+        @Override
+        protected void setDistanceAt(final int row,
+                                     final int router,
+                                     final int distance) {
+            distances[row][router] = distance;
+        }
+
+        @Override
+        protected int getSlotAt(final int row, final int router) {
+            return slots[row][router];
+        }
+
+        @Override
+        protected void setSlotAt(final int row,
+                                 final int router,
+                                 final int slot) {
+            slots[row][router] = slot;
+        }
+    }
+}
@@ -1,11 +1,12 @@
 package net.coderodde.simulation.network;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 
 /**
  * This class implements a packet routing algorithm that learns shorter paths
@@ -23,21 +24,41 @@ import java.util.Random;
 public final class LearningPacketRoutingAlgorithm 
 extends AbstractPacketRoutingAlgorithm {
 
-    private Map<PacketRouter, Map<PacketRouter, PacketRouter>> dispatchTable;
-    private Map<PacketRouter, Map<PacketRouter, Integer>> distanceTable;
-    private Random random;
+    /**
+     * Maps each router index <tt>S</tt> and target router index <tt>D</tt> to
+     * the length of the shortest path from <tt>S</tt> to <tt>D</tt> learned so
+     * far, and to the neighbor slot to which <tt>S</tt> forwards packets bound
+     * to <tt>D</tt>. Only the targets of the packets get a row.
+     */
+    private LearnedRoutingTable routingTable;
+
+    /**
+     * Holds the packets delivered during the current cycle along with the 
+     * indices of their target routers, so that the targets may learn from
+     * them as well.
+     */
+    private final List<Packet> deliveredPacketList = new ArrayList<>();
+    private final List<Integer> deliveredPacketRouterIndexList = 
+            new ArrayList<>();
+
     private int cycleLimit;
 
+    /**
+     * The number of improvements made to the routing table while learning.
+     */
+    private long routingTableUpdates;
+
+    /**
+     * The number of learned destinations at the injection of each packet of a
+     * workload run, or {@code null} if all destinations are learned about 
+     * before the first cycle.
+     */
+    private int[] packetDestinationCounts;
+
     public LearningPacketRoutingAlgorithm() {}
 
     private LearningPacketRoutingAlgorithm(final int cycleLimit) {
-        this.historyMap           = new HashMap<>();
-        this.undeliveredPacketSet = new HashSet<>();
-        this.queueLengthList      = new ArrayList<>();
-        this.dispatchTable        = new HashMap<>();
-        this.distanceTable        = new HashMap<>();
-        this.random               = new Random();
-        this.cycleLimit           = cycleLimit;
+        this.cycleLimit = cycleLimit;
     }
 
     public void setCycleLimit(final int cycleLimit) {
@@ -49,162 +70,273 @@ extends AbstractPacketRoutingAlgorithm {
                                          final List<Packet> packetList) {
         final LearningPacketRoutingAlgorithm state =
                 new LearningPacketRoutingAlgorithm(cycleLimit);
+        state.inheritSettings(this);
 
-        return state.simulateImpl(network, packetList);
+        try {
+            return state.simulateImpl(network, packetList, null);
+        } finally {
+            state.releaseEngine();
+        }
     }
 
-    private SimulationStatistics simulateImpl(final List<PacketRouter> network,
-                                              final List<Packet> packetList) {
-        initializePackets(packetList);
-        buildDispatchTable(network);
-
-        undeliveredPacketSet.addAll(packetList);
-
-        while (!undeliveredPacketSet.isEmpty()) {
-            loadPacketRouterQueueLengths(network);
-            simulateCycle(network);
-            relearnDispatchTable(network);
-            pruneDeliveredPackets();
-            ++cycles;
-
-            if (cycleLimit != 0) {
-                if (cycles > cycleLimit) {
-                    // Discard all packets in each router.
-                    clearNetwork(network);
-                    return null;
-                }
-            }
-        }
+    @Override
+    public SimulationStatistics simulate(final List<PacketRouter> network,
+                                         final Workload workload) {
+        final LearningPacketRoutingAlgorithm state = 
+                new LearningPacketRoutingAlgorithm(cycleLimit);
+        state.inheritSettings(this);
 
-        return buildStatistics();
+        try {
+            return state.simulateImpl(network, null, workload);
+        } finally {
+            state.releaseEngine();
+        }
     }
 
-    private void clearNetwork(final List<PacketRouter> network) {
-        for (final PacketRouter packetRouter : network) {
-            packetRouter.clearQueue();
+    /**
+     * Runs the simulation on the packets of either {@code packetList} or 
+     * {@code workload}, the other one being {@code null}.
+     */
+    private SimulationStatistics simulateImpl(final List<PacketRouter> network,
+                                              final List<Packet> packetList,
+                                              final Workload workload) {
+        compileNetwork(network);
+
+        if (workload != null) {
+            initializeWorkload(workload);
+            packetDestinationCounts = new int[packetTargetIndices.length];
+        } else {
+            initializePackets(packetList);
         }
-    }
 
-    private void buildDispatchTable(final List<PacketRouter> network) {
-        // Initialize the distance table:
-        for (final PacketRouter source : network) {
-            final Map<PacketRouter, Integer> localDistanceTable = 
-                    new HashMap<>(network.size());
+        buildRoutingTable(packetList);
 
-            distanceTable.put(source, localDistanceTable);
+        runSimulation();
 
-            for (final PacketRouter target : network) {
-                if (!target.equals(source)) {
-                    localDistanceTable.put(target, Integer.MAX_VALUE);
-                }
-            }
+        if (isCycleLimitExceeded()) {
+            // Discard all packets in each router.
+            clearNetwork();
+            return null;
         }
 
-        // Randomly initialize the dispatch table:
-        for (final PacketRouter source : network) {
-            final Map<PacketRouter, PacketRouter> localDispatchTable = 
-                    new HashMap<>();
+        return buildStatistics();
+    }
 
-            dispatchTable.put(source, localDispatchTable);
+    @Override
+    protected boolean isCycleLimitExceeded() {
+        return cycleLimit != 0 && cycles > cycleLimit;
+    }
 
-            for (final PacketRouter target : network) {
-                if (!target.equals(source)) {
-                    PacketRouter nextRouter;
+    /**
+     * Creates the routing table with a row for the target of each listed 
+     * packet. The targets of the packets generated by a workload get their 
+     * rows as the packets are injected.
+     */
+    void buildRoutingTable(final List<Packet> packetList) {
+        final SimulationEvents.TableConstructionEvent event = 
+                new SimulationEvents.TableConstructionEvent();
+        event.begin();
+
+        final long startTime = System.nanoTime();
+
+        routingTable = LearnedRoutingTable.create(compiledNetwork);
+
+        if (packetList != null) {
+            for (final Packet packet : packetList) {
+                routingTable.addDestination(
+                        packetTargetIndices[packet.getId()],
+                        random);
+            }
+        }
 
-                    do {
-                        nextRouter = choose(network, random);
-                    } while (nextRouter.equals(source));
+        tableConstructionTime = System.nanoTime() - startTime;
+        event.end();
 
-                    localDispatchTable.put(target, nextRouter);
-                }
-            }
+        if (event.shouldCommit()) {
+            event.algorithm = getClass().getSimpleName();
+            event.routers   = compiledNetwork.size();
+            event.commit();
         }
     }
 
-    private void simulateCycle(final List<PacketRouter> network) {
-        final Map<Packet, PacketRouter> map = new HashMap<>();
+    @Override
+    protected void writeCheckpointState(final DataOutput out) 
+    throws IOException {
+        routingTable.writeTo(out);
+        out.writeLong(routingTableUpdates);
+    }
 
-        // Find out to which packet routers to send the packets:
-        for (final PacketRouter packetRouter : network) {
-            if (packetRouter.queueLength() > 0) {
-                final Packet packet = packetRouter.dequeuePacket();
-                final PacketRouter targetRouterOfPacket = 
-                        packet.getTargetPacketRouter();
+    @Override
+    protected void readCheckpointState(final DataInput in) 
+    throws IOException {
+        routingTable = LearnedRoutingTable.create(compiledNetwork);
+        routingTable.readFrom(in);
+        routingTableUpdates = in.readLong();
+    }
 
-                final PacketRouter nextPacketRouter = 
-                        dispatchTable.get(packetRouter)
-                                     .get(targetRouterOfPacket);
+    @Override
+    protected boolean supportsParallelDecisions() {
+        // The dispatch table is only read while the decisions are made.
+        return true;
+    }
 
-                map.put(packet, nextPacketRouter);
-            }
+    @Override
+    protected int computeNextPacketRouterIndex(final int packetRouterIndex,
+                                               final Packet packet) {
+        return compiledNetwork.getNeighbor(
+                packetRouterIndex,
+                computeNextSlot(packetRouterIndex, packet));
+    }
+
+    @Override
+    protected int computeNextSlot(final int packetRouterIndex,
+                                  final Packet packet) {
+        final int slot = 
+                routingTable.getSlot(packetRouterIndex,
+                                     packetTargetIndices[packet.getId()]);
+
+        if (slot < 0) {
+            throw new IllegalStateException(
+                    "Packet router " + 
+                    compiledNetwork.getPacketRouter(packetRouterIndex).getId() +
+                    " has no links.");
         }
 
-        // Send the packets:
-        for (final Map.Entry<Packet, PacketRouter> entry : map.entrySet()) {
-            final Packet packet = entry.getKey();
-            final PacketRouter packetRouter = entry.getValue();
-            packetRouter.enqueuePacket(packet);
+        return slot;
+    }
+
+    @Override
+    protected void reportCounters(final Map<String, Long> counters) {
+        counters.put("Learned destinations", 
+                     (long) routingTable.getNumberOfDestinations());
+
+        if (isProfiling()) {
+            counters.put("Routing table updates", routingTableUpdates);
         }
+    }
 
-        // Update the history of each packet.
-        for (final PacketRouter packetRouter : network) {
-            for (final Packet packet : packetRouter.getQueue()) {
-                historyMap.get(packet).add(packetRouter);
-            }
+    /**
+     * Relearns from a packet the moment it is enqueued. The packets waiting in
+     * a queue need no attention, since their histories have not changed since
+     * they were received, and the tables only ever improve.
+     */
+    @Override
+    protected void onPacketReceived(final int packetRouterIndex,
+                                    final Packet packet) {
+        relearnFrom(packetRouterIndex, packet);
+    }
+
+    @Override
+    protected void onPacketInjected(final int packetRouterIndex,
+                                    final Packet packet) {
+        routingTable.addDestination(packetTargetIndices[packet.getId()],
+                                    random);
+
+        if (packetDestinationCounts != null) {
+            packetDestinationCounts[packet.getId()] = 
+                    routingTable.getNumberOfDestinations();
         }
     }
 
-    private void relearnDispatchTable(final List<PacketRouter> network) {
-        for (final PacketRouter packetRouter : network) {
-            final Map<PacketRouter, PacketRouter> localDispatchTable = 
-                    dispatchTable.get(packetRouter);
+    @Override
+    protected void ensurePacketCapacity(final int packetCapacity) {
+        super.ensurePacketCapacity(packetCapacity);
 
-            final Map<PacketRouter, Integer> localDistanceTable =
-                    distanceTable.get(packetRouter);
+        if (packetDestinationCounts != null
+                && packetDestinationCounts.length < packetCapacity) {
+            packetDestinationCounts = Arrays.copyOf(packetDestinationCounts,
+                                                    packetCapacity);
+        }
+    }
 
-            final List<Packet> queue = new ArrayList<>(packetRouter.getQueue());
+    @Override
+    protected void onPacketDelivered(final int packetRouterIndex,
+                                     final Packet packet) {
+        deliveredPacketList.add(packet);
+        deliveredPacketRouterIndexList.add(packetRouterIndex);
+    }
 
-            for (final Packet packet : queue) {
-                final List<PacketRouter> history = historyMap.get(packet);
-                final List<PacketRouter> compressedHistory = 
-                        removeDuplicatesFromHistoryList(history);
+    /**
+     * Lets the targets learn from the packets delivered during the last cycle.
+     * This is done after all the queued packets have been learned from, in 
+     * order to keep the order of the table updates intact.
+     */
+    @Override
+    protected void onCycleCompleted() {
+        for (int i = 0; i < deliveredPacketList.size(); ++i) {
+            relearnFrom(deliveredPacketRouterIndexList.get(i),
+                        deliveredPacketList.get(i));
+        }
 
-                for (int i = 0; i < compressedHistory.size(); ++i) {
-                    final PacketRouter pr = compressedHistory.get(i);
+        deliveredPacketList.clear();
+        deliveredPacketRouterIndexList.clear();
+    }
 
-                    if (!packetRouter.equals(pr)) {
-                        final int distance = compressedHistory.size() - i - 1;
+    /**
+     * Lets the router {@code index} learn from the history of {@code packet},
+     * which ends at that router. Walking the history backwards, the distance
+     * to each earlier router grows by one whenever the router changes, and
+     * the router learns to reach it via the previous router on the history,
+     * which is always a neighbor. Only the routers that are packet targets 
+     * are learned about.
+     * <p>
+     * If the packet has visited the router before, the walk stops there: the
+     * router learned from the rest of the history at that visit, at shorter
+     * distances, and the tables only ever improve. This does not hold if a 
+     * destination has been added since, which happens only in a workload run.
+     * Hence a router walks only the part of the history since the packet last
+     * left it, which spares the random walks of the early cycles from
+     * rescanning their long histories at every revisited router.
+     */
+    private void relearnFrom(final int index, final Packet packet) {
+        final int packetId = packet.getId();
+        final int length = packetHistory.getLength(packetId);
+        final int maximumDistance = routingTable.getMaximumDistance();
+        final boolean learnedBefore = 
+                packetDestinationCounts == null ||
+                packetDestinationCounts[packetId] == 
+                        routingTable.getNumberOfDestinations();
+
+        int previousRouter = -1;
+        int previousRouterSlot = -1;
+        int distance = 0;
+        int next = index;
+
+        for (int i = length - 2; i >= 0 && distance < maximumDistance; --i) {
+            final int pr = packetHistory.get(packetId, i);
+
+            if (pr == next) {
+                continue;
+            }
 
-                        if (localDistanceTable.get(pr) > distance) {
-                            localDistanceTable.put(pr, distance);
-                            localDispatchTable.put(
-                                    pr, 
-                                    compressedHistory.get(
-                                            compressedHistory.size() - 2));
-                        }
-                    }
-                }
+            if (pr == index && learnedBefore) {
+                break;
             }
-        }
-    }
 
-    public static List<PacketRouter> 
-        removeDuplicatesFromHistoryList(final List<PacketRouter> history) {
-        final List<PacketRouter> compressedHistory = 
-                new ArrayList<>(history.size());
+            ++distance;
+            next = pr;
 
-        PacketRouter previous = history.get(0);
-        compressedHistory.add(previous);
+            if (previousRouter < 0) {
+                previousRouter = pr;
+            }
 
-        for (int i = 1; i < history.size(); ++i) {
-            final PacketRouter current = history.get(i);
+            if (pr != index
+                    && routingTable.hasDestination(pr)
+                    && routingTable.getDistance(index, pr) > distance) {
+                if (previousRouterSlot < 0) {
+                    previousRouterSlot = 
+                            compiledNetwork.getNeighborSlot(index, 
+                                                            previousRouter);
+                }
 
-            if (!current.equals(previous)) {
-                compressedHistory.add(current);
-                previous = current;
+                routingTable.update(index, pr, distance, previousRouterSlot);
+                ++routingTableUpdates;
             }
         }
+    }
 
-        return compressedHistory;
+    @Override
+    protected HistoryPolicy getMinimumHistoryPolicy() {
+        return HistoryPolicy.full();
     }
 }
@@ -0,0 +1,44 @@
+package net.coderodde.simulation.network;
+
+/**
+ * This interface defines how many network cycles it takes a packet to travel
+ * across each link. The latency of a link may depend on its direction.
+ * Setting a latency model on a routing algorithm switches it to the
+ * discrete-event engine.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+@FunctionalInterface
+public interface LinkLatencyModel {
+
+    /**
+     * Returns the number of cycles it takes a packet sent by
+     * {@code sourcePacketRouter} to arrive at its neighbor
+     * {@code targetPacketRouter}. Must be positive.
+     *
+     * @param sourcePacketRouter the sending packet router.
+     * @param targetPacketRouter the receiving packet router.
+     * @return the latency of the link in cycles.
+     */
+    public int getLatency(final PacketRouter sourcePacketRouter,
+                          final PacketRouter targetPacketRouter);
+
+    /**
+     * Returns a model in which every link has the latency {@code latency}.
+     * With the latency of one cycle, the discrete-event engine moves the
+     * packets exactly as the cycle-by-cycle engine, and produces the same 
+     * results up to the rounding of the queue length mean and deviation.
+     *
+     * @param latency the latency of every link.
+     * @return a constant latency model.
+     */
+    public static LinkLatencyModel constant(final int latency) {
+        if (latency < 1) {
+            throw new IllegalArgumentException(
+                    "The link latency must be positive: " + latency);
+        }
+
+        return (sourcePacketRouter, targetPacketRouter) -> latency;
+    }
+}
@@ -0,0 +1,270 @@
+package net.coderodde.simulation.network;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * This class holds the output queues of the directed links of a compiled
+ * network along with the service rates of the routers and the capacities of
+ * the links. The links are indexed like the neighbor array of the network.
+ * Each queue is a FIFO list threaded through an array indexed by packet ID,
+ * which works since a packet waits in at most one queue at a time, so no
+ * memory is allocated as packets are queued.
+ * <p>
+ * Distinct routers may append to their own link queues concurrently.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+final class LinkOutputQueues {
+
+    private static final int NONE = -1;
+
+    private final CompiledNetwork network;
+
+    private final int[] serviceRates;
+    private final int[] linkCapacities;
+
+    /**
+     * The first and the last packet ID of each link queue, and its length.
+     */
+    private final int[] queueHeads;
+    private final int[] queueTails;
+    private final int[] queueLengths;
+
+    /**
+     * Map each queued packet ID to the packet and to the ID of the packet
+     * following it in its queue.
+     */
+    private Packet[] packets;
+    private int[] nextPacketIds;
+
+    /**
+     * The total length of the link queues of each router.
+     */
+    private final int[] backlogs;
+
+    private int maximumQueueLength;
+
+    LinkOutputQueues(final CompiledNetwork network,
+                     final BandwidthModel bandwidthModel,
+                     final int packetCapacity) {
+        final int links = network.getNumberOfDirectedLinks();
+
+        this.network        = network;
+        this.serviceRates   = new int[network.size()];
+        this.linkCapacities = new int[links];
+        this.queueHeads     = new int[links];
+        this.queueTails     = new int[links];
+        this.queueLengths   = new int[links];
+        this.packets        = new Packet[packetCapacity];
+        this.nextPacketIds  = new int[packetCapacity];
+        this.backlogs       = new int[network.size()];
+
+        for (int index = 0; index < network.size(); ++index) {
+            final PacketRouter packetRouter = network.getPacketRouter(index);
+            final int offset = network.getNeighborOffset(index);
+
+            serviceRates[index] =
+                    checkPositive(bandwidthModel.getServiceRate(packetRouter),
+                                  "service rate");
+
+            for (int slot = 0; slot < network.getDegree(index); ++slot) {
+                linkCapacities[offset + slot] = checkPositive(
+                        bandwidthModel.getLinkCapacity(
+                                packetRouter,
+                                network.getPacketRouter(
+                                        network.getNeighborAt(offset + slot))),
+                        "link capacity");
+            }
+        }
+
+        Arrays.fill(queueHeads, NONE);
+        Arrays.fill(queueTails, NONE);
+    }
+
+    /**
+     * Makes room for the packets with IDs below {@code packetCapacity}.
+     *
+     * @param packetCapacity the number of packet IDs to accommodate.
+     */
+    void ensureCapacity(final int packetCapacity) {
+        if (packetCapacity > packets.length) {
+            packets = Arrays.copyOf(packets, packetCapacity);
+            nextPacketIds = Arrays.copyOf(nextPacketIds, packetCapacity);
+        }
+    }
+
+    int getServiceRate(final int packetRouterIndex) {
+        return serviceRates[packetRouterIndex];
+    }
+
+    int getLinkCapacity(final int link) {
+        return linkCapacities[link];
+    }
+
+    int getQueueLength(final int link) {
+        return queueLengths[link];
+    }
+
+    /**
+     * Returns the number of packets waiting in the link queues of the router
+     * {@code packetRouterIndex}.
+     *
+     * @param packetRouterIndex the router index.
+     * @return the backlog of the router.
+     */
+    int getBacklog(final int packetRouterIndex) {
+        return backlogs[packetRouterIndex];
+    }
+
+    int getMaximumQueueLength() {
+        return maximumQueueLength;
+    }
+
+    /**
+     * Appends {@code packet} to the queue of the link leaving the router
+     * {@code packetRouterIndex} via the neighbor slot {@code slot}.
+     *
+     * @param packetRouterIndex the index of the sending router.
+     * @param slot              the neighbor slot.
+     * @param packet            the packet to queue.
+     */
+    void append(final int packetRouterIndex,
+                final int slot,
+                final Packet packet) {
+        final int link = network.getNeighborOffset(packetRouterIndex) + slot;
+        final int packetId = packet.getId();
+
+        packets[packetId] = packet;
+        nextPacketIds[packetId] = NONE;
+
+        if (queueTails[link] == NONE) {
+            queueHeads[link] = packetId;
+        } else {
+            nextPacketIds[queueTails[link]] = packetId;
+        }
+
+        queueTails[link] = packetId;
+        ++queueLengths[link];
+        ++backlogs[packetRouterIndex];
+    }
+
+    /**
+     * Removes and returns the head packet of the queue of the link
+     * {@code link} leaving the router {@code packetRouterIndex}.
+     *
+     * @param packetRouterIndex the index of the sending router.
+     * @param link              the link index.
+     * @return the head packet.
+     */
+    Packet poll(final int packetRouterIndex, final int link) {
+        final int packetId = queueHeads[link];
+        final Packet packet = packets[packetId];
+
+        if (queueLengths[link] > maximumQueueLength) {
+            maximumQueueLength = queueLengths[link];
+        }
+
+        packets[packetId] = null;
+        queueHeads[link] = nextPacketIds[packetId];
+
+        if (queueHeads[link] == NONE) {
+            queueTails[link] = NONE;
+        }
+
+        --queueLengths[link];
+        --backlogs[packetRouterIndex];
+        return packet;
+    }
+
+    /**
+     * Writes the packet IDs of each non-empty link queue to {@code out}.
+     *
+     * @param out the output.
+     * @throws IOException if writing fails.
+     */
+    void writeTo(final DataOutput out) throws IOException {
+        int nonEmptyQueues = 0;
+
+        for (final int queueLength : queueLengths) {
+            if (queueLength > 0) {
+                ++nonEmptyQueues;
+            }
+        }
+
+        out.writeInt(maximumQueueLength);
+        out.writeInt(nonEmptyQueues);
+
+        for (int index = 0; index < network.size(); ++index) {
+            if (backlogs[index] == 0) {
+                continue;
+            }
+
+            final int offset = network.getNeighborOffset(index);
+
+            for (int slot = 0; slot < network.getDegree(index); ++slot) {
+                final int link = offset + slot;
+
+                if (queueLengths[link] == 0) {
+                    continue;
+                }
+
+                out.writeInt(index);
+                out.writeInt(slot);
+                out.writeInt(queueLengths[link]);
+
+                for (int packetId = queueHeads[link]; 
+                        packetId != NONE; 
+                        packetId = nextPacketIds[packetId]) {
+                    out.writeInt(packetId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills these empty queues with the packets written by 
+     * {@link #writeTo(DataOutput)}.
+     *
+     * @param in          the input.
+     * @param packetsById maps each packet ID to the packet.
+     * @throws IOException if reading fails or the queues do not fit.
+     */
+    void readFrom(final DataInput in, final Packet[] packetsById) 
+    throws IOException {
+        final int savedMaximumQueueLength = in.readInt();
+        final int nonEmptyQueues = in.readInt();
+
+        for (int i = 0; i < nonEmptyQueues; ++i) {
+            final int index = in.readInt();
+            final int slot = in.readInt();
+            final int length = in.readInt();
+
+            if (index < 0 
+                    || index >= network.size()
+                    || slot < 0 
+                    || slot >= network.getDegree(index)) {
+                throw new IOException("Bad link: " + index + "/" + slot);
+            }
+
+            for (int j = 0; j < length; ++j) {
+                append(index, slot, 
+                       Checkpoint.getPacket(packetsById, in.readInt()));
+            }
+        }
+
+        maximumQueueLength = savedMaximumQueueLength;
+    }
+
+    private static int checkPositive(final int value, final String name) {
+        if (value < 1) {
+            throw new IllegalArgumentException(
+                    "The " + name + " must be positive: " + value);
+        }
+
+        return value;
+    }
+}
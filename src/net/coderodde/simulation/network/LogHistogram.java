@@ -0,0 +1,170 @@
+package net.coderodde.simulation.network;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * This class records a stream of non-negative integer samples into
+ * logarithmic buckets, in the manner of HdrHistogram. The values below
+ * {@value #SUB_BUCKET_COUNT} get a bucket each; above that, each power of two
+ * is split into {@value #HALF_SUB_BUCKET_COUNT} buckets of equal width, so
+ * that a bucket is narrower than 1/64 of its values. Recording takes constant
+ * time, and the memory is fixed regardless of the number of samples.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+final class LogHistogram {
+
+    /**
+     * The number of bits of precision of the buckets.
+     */
+    static final int SUB_BUCKET_BITS = 7;
+
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+
+    /**
+     * The number of buckets covering all non-negative {@code long} values.
+     */
+    static final int NUMBER_OF_BUCKETS =
+            getBucketIndex(Long.MAX_VALUE) + 1;
+
+    private final long[] counts = new long[NUMBER_OF_BUCKETS];
+
+    private long totalCount;
+    private long minimum = Long.MAX_VALUE;
+    private long maximum = Long.MIN_VALUE;
+
+    /**
+     * The sum of the samples, used for the mean.
+     */
+    private double sum;
+
+    void record(final long value) {
+        ++counts[getBucketIndex(value)];
+        ++totalCount;
+        sum += value;
+
+        if (minimum > value) {
+            minimum = value;
+        }
+
+        if (maximum < value) {
+            maximum = value;
+        }
+    }
+
+    /**
+     * Records {@code times} copies of {@code value} at once.
+     *
+     * @param value the sample value.
+     * @param times the number of copies to record.
+     */
+    void record(final long value, final long times) {
+        if (times <= 0) {
+            return;
+        }
+
+        counts[getBucketIndex(value)] += times;
+        totalCount += times;
+        sum += (double) value * times;
+
+        if (minimum > value) {
+            minimum = value;
+        }
+
+        if (maximum < value) {
+            maximum = value;
+        }
+    }
+
+    /**
+     * Returns an immutable copy of the current state of this histogram.
+     *
+     * @return the snapshot.
+     */
+    HistogramSnapshot snapshot() {
+        return new HistogramSnapshot(counts, totalCount, minimum, maximum, sum);
+    }
+
+    void writeTo(final DataOutput out) throws IOException {
+        out.writeLong(totalCount);
+        out.writeLong(minimum);
+        out.writeLong(maximum);
+        out.writeDouble(sum);
+
+        for (int i = 0; i < NUMBER_OF_BUCKETS; ++i) {
+            if (counts[i] != 0) {
+                out.writeInt(i);
+                out.writeLong(counts[i]);
+            }
+        }
+
+        out.writeInt(-1);
+    }
+
+    void readFrom(final DataInput in) throws IOException {
+        totalCount = in.readLong();
+        minimum    = in.readLong();
+        maximum    = in.readLong();
+        sum        = in.readDouble();
+
+        Arrays.fill(counts, 0L);
+
+        for (int i = in.readInt(); i >= 0; i = in.readInt()) {
+            if (i >= NUMBER_OF_BUCKETS) {
+                throw new IOException("Bad histogram bucket: " + i);
+            }
+
+            counts[i] = in.readLong();
+        }
+    }
+
+    /**
+     * Returns the index of the bucket of the non-negative {@code value}.
+     *
+     * @param value the value.
+     * @return the bucket index.
+     */
+    static int getBucketIndex(final long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        // The shift keeps the top SUB_BUCKET_BITS bits of the value.
+        final int shift = 64 - Long.numberOfLeadingZeros(value)
+                             - SUB_BUCKET_BITS;
+        return HALF_SUB_BUCKET_COUNT * shift + (int) (value >>> shift);
+    }
+
+    /**
+     * Returns the smallest value of the bucket {@code index}.
+     *
+     * @param index the bucket index.
+     * @return the lowest value of the bucket.
+     */
+    static long getLowestValue(final int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        final int shift = index / HALF_SUB_BUCKET_COUNT - 1;
+        return (long) (index - HALF_SUB_BUCKET_COUNT * shift) << shift;
+    }
+
+    /**
+     * Returns the largest value of the bucket {@code index}.
+     *
+     * @param index the bucket index.
+     * @return the highest value of the bucket.
+     */
+    static long getHighestValue(final int index) {
+        return index + 1 == NUMBER_OF_BUCKETS ?
+               Long.MAX_VALUE :
+               getLowestValue(index + 1) - 1;
+    }
+}
@@ -0,0 +1,283 @@
+package net.coderodde.simulation.network;
+
+import java.util.Arrays;
+
+/**
+ * This class implements a bit-parallel multi-source breadth-first search that
+ * computes next hops towards up to 64 target routers at a time. Bit <tt>i</tt>
+ * of a router's word says whether the search from the <tt>i</tt>th target has
+ * reached the router, so a single pass over the links advances all 64
+ * searches by one level.
+ * <p>
+ * Since the links are undirected, a router <tt>S</tt> first reached by the
+ * search from target <tt>D</tt> at level <tt>L</tt> has, among its neighbors,
+ * at least one router on the previous frontier of <tt>D</tt>, that is, at
+ * distance <tt>L - 1</tt> from <tt>D</tt>. Sending a packet bound to
+ * <tt>D</tt> to such a neighbor follows a shortest path, so the first hop is
+ * obtained directly, without reconstructing any path. Among several candidate
+ * neighbors, the one with the smallest slot is chosen.
+ * <p>
+ * The routers of the frontiers are kept in a list as well. While the
+ * frontier has few links, a level looks only at the neighbors of the
+ * frontier, which keeps the searches on networks of a large diameter, such as
+ * tori, linear in the size of the network. Once the frontier has many links,
+ * scanning all routers in index order is cheaper than gathering the
+ * neighbors, and a level does that instead.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+final class MultiSourceBreadthFirstSearch {
+
+    /**
+     * The maximum number of targets processed at a time.
+     */
+    static final int BATCH_SIZE = Long.SIZE;
+
+    /**
+     * A level gathers the neighbors of the frontier only if the frontier has
+     * less than one link per this many routers of the network.
+     */
+    private static final int SPARSE_FRONTIER_RATIO = 4;
+
+    private final CompiledNetwork network;
+
+    /**
+     * The searches that have reached each router so far.
+     */
+    private final long[] visited;
+
+    /**
+     * The searches whose current frontier contains each router.
+     */
+    private long[] frontier;
+    private long[] nextFrontier;
+
+    /**
+     * The routers of the current and of the next frontier of any search.
+     */
+    private int[] frontierRouters;
+    private int[] nextFrontierRouters;
+
+    /**
+     * The routers adjacent to the current frontier that some search has yet
+     * to reach.
+     */
+    private final int[] candidates;
+
+    /**
+     * The level at which each router was last made a candidate. The levels 
+     * are counted across the calls, so that the stamps need no clearing.
+     */
+    private final int[] candidateLevel;
+    private int level;
+
+    /**
+     * The number of routers and of links of the next frontier.
+     */
+    private int numberOfNextFrontierRouters;
+    private long nextFrontierLinks;
+
+    MultiSourceBreadthFirstSearch(final CompiledNetwork network) {
+        final int size = network.size();
+
+        this.network             = network;
+        this.visited             = new long[size];
+        this.frontier            = new long[size];
+        this.nextFrontier        = new long[size];
+        this.frontierRouters     = new int[size];
+        this.nextFrontierRouters = new int[size];
+        this.candidates          = new int[size];
+        this.candidateLevel      = new int[size];
+    }
+
+    /**
+     * Fills the columns <tt>[fromTarget, toTarget)</tt> of the input next-hop
+     * matrix. At most {@link #BATCH_SIZE} targets may be processed per call.
+     *
+     * @param matrix     the matrix to fill.
+     * @param fromTarget the first target router index.
+     * @param toTarget   one past the last target router index.
+     * @return the number of router visits, a router being visited once per
+     *         level at which some search has yet to reach it, and which is
+     *         adjacent to the frontier or the frontier has many links.
+     */
+    long fillNextHops(final NextHopMatrix matrix,
+                      final int fromTarget,
+                      final int toTarget) {
+        final int batchSize = toTarget - fromTarget;
+
+        if (batchSize < 1 || batchSize > BATCH_SIZE) {
+            throw new IllegalArgumentException(
+                    "Bad target batch size: " + batchSize);
+        }
+
+        final long allSearches = batchSize == BATCH_SIZE ?
+                                 -1L :
+                                 (1L << batchSize) - 1;
+
+        final int size = network.size();
+
+        // The frontier words are all zero between the calls.
+        Arrays.fill(visited, 0L);
+
+        int numberOfFrontierRouters = 0;
+
+        for (int i = 0; i < batchSize; ++i) {
+            visited[fromTarget + i] = 1L << i;
+            frontier[fromTarget + i] = 1L << i;
+            frontierRouters[numberOfFrontierRouters++] = fromTarget + i;
+        }
+
+        long routerVisits = 0;
+        nextFrontierLinks = 0;
+
+        for (int i = 0; i < batchSize; ++i) {
+            nextFrontierLinks += network.getDegree(fromTarget + i);
+        }
+
+        while (numberOfFrontierRouters > 0) {
+            final boolean sparse = 
+                    nextFrontierLinks < size / SPARSE_FRONTIER_RATIO;
+
+            numberOfNextFrontierRouters = 0;
+            nextFrontierLinks = 0;
+
+            if (sparse) {
+                final int numberOfCandidates = 
+                        gatherCandidates(numberOfFrontierRouters, allSearches);
+
+                for (int i = 0; i < numberOfCandidates; ++i) {
+                    final int router = candidates[i];
+                    final long reached = 
+                            visit(matrix,
+                                  fromTarget,
+                                  router,
+                                  allSearches & ~visited[router]);
+                    ++routerVisits;
+
+                    if (reached != 0L) {
+                        reach(router, reached);
+                    }
+                }
+            } else {
+                for (int router = 0; router < size; ++router) {
+                    final long pending = allSearches & ~visited[router];
+
+                    if (pending == 0L) {
+                        continue;
+                    }
+
+                    final long reached = 
+                            visit(matrix, fromTarget, router, pending);
+                    ++routerVisits;
+
+                    if (reached != 0L) {
+                        reach(router, reached);
+                    }
+                }
+            }
+
+            if (numberOfFrontierRouters > size / SPARSE_FRONTIER_RATIO) {
+                Arrays.fill(frontier, 0L);
+            } else {
+                for (int i = 0; i < numberOfFrontierRouters; ++i) {
+                    frontier[frontierRouters[i]] = 0L;
+                }
+            }
+
+            final long[] tmp = frontier;
+            frontier = nextFrontier;
+            nextFrontier = tmp;
+
+            final int[] tmpRouters = frontierRouters;
+            frontierRouters = nextFrontierRouters;
+            nextFrontierRouters = tmpRouters;
+            numberOfFrontierRouters = numberOfNextFrontierRouters;
+        }
+
+        return routerVisits;
+    }
+
+    /**
+     * Collects the neighbors of the current frontier that some search has yet
+     * to reach into {@link #candidates}.
+     *
+     * @return the number of candidates.
+     */
+    private int gatherCandidates(final int numberOfFrontierRouters,
+                                 final long allSearches) {
+        int numberOfCandidates = 0;
+        ++level;
+
+        for (int i = 0; i < numberOfFrontierRouters; ++i) {
+            final int router = frontierRouters[i];
+            final int begin = network.getNeighborOffset(router);
+            final int end = begin + network.getDegree(router);
+
+            for (int offset = begin; offset < end; ++offset) {
+                final int neighbor = network.getNeighborAt(offset);
+
+                if (candidateLevel[neighbor] != level
+                        && (allSearches & ~visited[neighbor]) != 0L) {
+                    candidateLevel[neighbor] = level;
+                    candidates[numberOfCandidates++] = neighbor;
+                }
+            }
+        }
+
+        return numberOfCandidates;
+    }
+
+    /**
+     * Adds {@code router}, just reached by the searches {@code reached}, to 
+     * the next frontier.
+     */
+    private void reach(final int router, final long reached) {
+        // Only the frontier is read for the other routers, so the visited set
+        // of this router may be updated right away.
+        visited[router] |= reached;
+        nextFrontier[router] = reached;
+        nextFrontierRouters[numberOfNextFrontierRouters++] = router;
+        nextFrontierLinks += network.getDegree(router);
+    }
+
+    /**
+     * Sends the searches {@code pending} that have a neighbor of 
+     * {@code router} on their frontier to the neighbor of the smallest slot.
+     *
+     * @return the searches reaching {@code router} at this level.
+     */
+    private long visit(final NextHopMatrix matrix,
+                       final int fromTarget,
+                       final int router,
+                       long pending) {
+        final int begin = network.getNeighborOffset(router);
+        final int degree = network.getDegree(router);
+        long reached = 0L;
+
+        for (int slot = 0; slot < degree; ++slot) {
+            final long hit =
+                    frontier[network.getNeighborAt(begin + slot)] & pending;
+
+            if (hit == 0L) {
+                continue;
+            }
+
+            reached |= hit;
+            pending &= ~hit;
+
+            for (long bits = hit; bits != 0L; bits &= bits - 1) {
+                matrix.setSlot(router,
+                               fromTarget + Long.numberOfTrailingZeros(bits),
+                               slot);
+            }
+
+            if (pending == 0L) {
+                break;
+            }
+        }
+
+        return reached;
+    }
+}
@@ -0,0 +1,167 @@
+package net.coderodde.simulation.network;
+
+import java.util.Arrays;
+
+/**
+ * This class implements a dense <tt>n x n</tt> matrix of next-hop neighbor
+ * slots stored in one primitive array per source router. The entry at
+ * <tt>(source, target)</tt> is the slot of the neighbor of <tt>source</tt> to
+ * which the packets bound to <tt>target</tt> are sent, or <tt>-1</tt> if there
+ * is none. The element type is the narrowest of {@code byte}, {@code short}
+ * and {@code int} that can hold every slot of the network, the all-ones
+ * pattern being reserved for <tt>-1</tt>.
+ * <p>
+ * Since each row is an array of its own, the size of the matrix is bounded 
+ * by the heap only; for example, a network of 100 000 routers of degree below
+ * 255 takes 10 GB. Beyond that, the lazy mode of 
+ * {@link ShortestPathPacketRoutingAlgorithm} is the way to go.
+ * <p>
+ * Distinct rows may be written concurrently.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+abstract class NextHopMatrix {
+
+    protected final int size;
+
+    NextHopMatrix(final int size) {
+        this.size = size;
+    }
+
+    /**
+     * Creates a matrix for a network of {@code size} routers, none of which
+     * has more than {@code maximumDegree} neighbors. All entries are initially
+     * <tt>-1</tt>.
+     *
+     * @param size          the number of routers.
+     * @param maximumDegree the maximum degree of the network.
+     * @return a new next-hop matrix.
+     */
+    static NextHopMatrix create(final int size, final int maximumDegree) {
+        if (maximumDegree <= 0xff) {
+            return new ByteNextHopMatrix(size);
+        }
+
+        if (maximumDegree <= 0xffff) {
+            return new ShortNextHopMatrix(size);
+        }
+
+        return new IntNextHopMatrix(size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the slot stored at <tt>(source, target)</tt>, or <tt>-1</tt>.
+     *
+     * @param source the source router index.
+     * @param target the target router index.
+     * @return the neighbor slot.
+     */
+    abstract int getSlot(final int source, final int target);
+
+    abstract void setSlot(final int source, final int target, final int slot);
+
+    /**
+     * Returns the number of bytes taken by the matrix entries.
+     *
+     * @return the size of the entry arrays in bytes.
+     */
+    abstract long getSizeInBytes();
+
+    private static final class ByteNextHopMatrix extends NextHopMatrix {
+
+        private static final int NONE = 0xff;
+
+        private final byte[][] rows;
+
+        ByteNextHopMatrix(final int size) {
+            super(size);
+            this.rows = new byte[size][size];
+
+            for (final byte[] row : rows) {
+                Arrays.fill(row, (byte) NONE);
+            }
+        }
+
+        @Override
+        int getSlot(final int source, final int target) {
+            final int slot = rows[source][target] & 0xff;
+            return slot == NONE ? -1 : slot;
+        }
+
+        @Override
+        void setSlot(final int source, final int target, final int slot) {
+            rows[source][target] = (byte) slot;
+        }
+
+        @Override
+        long getSizeInBytes() {
+            return (long) size * size;
+        }
+    }
+
+    private static final class ShortNextHopMatrix extends NextHopMatrix {
+
+        private static final int NONE = 0xffff;
+
+        private final short[][] rows;
+
+        ShortNextHopMatrix(final int size) {
+            super(size);
+            this.rows = new short[size][size];
+
+            for (final short[] row : rows) {
+                Arrays.fill(row, (short) NONE);
+            }
+        }
+
+        @Override
+        int getSlot(final int source, final int target) {
+            final int slot = rows[source][target] & 0xffff;
+            return slot == NONE ? -1 : slot;
+        }
+
+        @Override
+        void setSlot(final int source, final int target, final int slot) {
+            rows[source][target] = (short) slot;
+        }
+
+        @Override
+        long getSizeInBytes() {
+            return 2L * size * size;
+        }
+    }
+
+    private static final class IntNextHopMatrix extends NextHopMatrix {
+
+        private final int[][] rows;
+
+        IntNextHopMatrix(final int size) {
+            super(size);
+            this.rows = new int[size][size];
+
+            for (final int[] row : rows) {
+                Arrays.fill(row, -1);
+            }
+        }
+
+        @Override
+        int getSlot(final int source, final int target) {
+            return rows[source][target];
+        }
+
+        @Override
+        void setSlot(final int source, final int target, final int slot) {
+            rows[source][target] = slot;
+        }
+
+        @Override
+        long getSizeInBytes() {
+            return 4L * size * size;
+        }
+    }
+}
@@ -0,0 +1,470 @@
+package net.coderodde.simulation.network;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * This class stores the routes of packets according to a
+ * {@link HistoryPolicy}. Packets are identified by their IDs, and routers by
+ * their indices in the {@link CompiledNetwork}. The route of a packet consists
+ * of its source router followed by every router the packet was sent to.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+abstract class PacketHistory {
+
+    /**
+     * Creates the history storage for the packets with IDs
+     * <tt>0, 1, ..., packetCapacity - 1</tt>.
+     *
+     * @param policy         the history policy.
+     * @param packetCapacity the number of packet IDs to accommodate.
+     * @return the history storage.
+     */
+    static PacketHistory create(final HistoryPolicy policy,
+                                final int packetCapacity) {
+        switch (policy.getMode()) {
+            case OFF:
+                return new NoPacketHistory();
+
+            case HOP_COUNT:
+                return new HopCountPacketHistory(packetCapacity);
+
+            case LAST_HOPS:
+                return new RingBufferPacketHistory(packetCapacity,
+                                                   policy.getCapacity());
+
+            case FULL:
+                return new FullPacketHistory(packetCapacity);
+
+            default:
+                throw new IllegalStateException(
+                        "Unknown history mode: " + policy.getMode());
+        }
+    }
+
+    /**
+     * Makes room for the packets with IDs below {@code packetCapacity}.
+     *
+     * @param packetCapacity the number of packet IDs to accommodate.
+     */
+    abstract void ensureCapacity(final int packetCapacity);
+
+    /**
+     * Starts the history of a packet at its source router. The history of a
+     * packet ID that is reused is started over.
+     *
+     * @param packetId          the ID of the packet.
+     * @param packetRouterIndex the index of the source router.
+     */
+    abstract void start(final int packetId, final int packetRouterIndex);
+
+    /**
+     * Records that a packet was sent to the router {@code packetRouterIndex}.
+     *
+     * @param packetId          the ID of the packet.
+     * @param packetRouterIndex the index of the receiving router.
+     */
+    abstract void append(final int packetId, final int packetRouterIndex);
+
+    /**
+     * Schedules the route of a delivered packet to be discarded by the next
+     * call to {@link #discardReleasedRoutes()}. The default implementation
+     * does nothing, as the other histories take constant memory per packet.
+     *
+     * @param packetId the ID of the delivered packet.
+     */
+    void release(final int packetId) {}
+
+    /**
+     * Discards the routes of the packets released since the previous call.
+     * The routes, as well as the hop counts of the packets, may not be read
+     * afterwards. The default implementation does nothing.
+     */
+    void discardReleasedRoutes() {}
+
+    /**
+     * Indicates whether {@link #getHopCount(int)} is supported.
+     *
+     * @return {@code true} if the hop counts are recorded.
+     */
+    boolean recordsHopCounts() {
+        return true;
+    }
+
+    /**
+     * Returns the number of hops made by the packet so far.
+     *
+     * @param packetId the ID of the packet.
+     * @return the number of hops.
+     */
+    abstract int getHopCount(final int packetId);
+
+    /**
+     * Returns the number of routers retained in the history of the packet.
+     *
+     * @param packetId the ID of the packet.
+     * @return the number of retained routers.
+     */
+    abstract int getLength(final int packetId);
+
+    /**
+     * Returns the {@code index}th retained router of the packet, the oldest
+     * one being at index zero.
+     *
+     * @param packetId the ID of the packet.
+     * @param index    the index within the retained part of the history.
+     * @return the router index.
+     */
+    abstract int get(final int packetId, final int index);
+
+    /**
+     * Writes the recorded routes to {@code out}.
+     *
+     * @param out the output.
+     * @throws IOException if writing fails.
+     */
+    abstract void writeTo(final DataOutput out) throws IOException;
+
+    /**
+     * Replaces the recorded routes with the ones written by 
+     * {@link #writeTo(DataOutput)} from a history of the same policy.
+     *
+     * @param in the input.
+     * @throws IOException if reading fails.
+     */
+    abstract void readFrom(final DataInput in) throws IOException;
+
+    static void writeInts(final DataOutput out, 
+                          final int[] array, 
+                          final int length) throws IOException {
+        out.writeInt(length);
+
+        for (int i = 0; i < length; ++i) {
+            out.writeInt(array[i]);
+        }
+    }
+
+    /**
+     * Reads an array written by {@link #writeInts(DataOutput, int[], int)}.
+     * 
+     * @param in             the input.
+     * @param expectedLength the expected length, or <tt>-1</tt> for any.
+     * @return the array.
+     * @throws IOException if reading fails or the length is unexpected.
+     */
+    static int[] readInts(final DataInput in, final int expectedLength)
+    throws IOException {
+        final int length = in.readInt();
+
+        if (length < 0 || (expectedLength >= 0 && length != expectedLength)) {
+            throw new IOException("Unexpected array length: " + length);
+        }
+
+        final int[] array = new int[length];
+
+        for (int i = 0; i < length; ++i) {
+            array[i] = in.readInt();
+        }
+
+        return array;
+    }
+
+    private static final class NoPacketHistory extends PacketHistory {
+
+        @Override
+        void ensureCapacity(final int packetCapacity) {}
+
+        @Override
+        void start(final int packetId, final int packetRouterIndex) {}
+
+        @Override
+        void append(final int packetId, final int packetRouterIndex) {}
+
+        @Override
+        boolean recordsHopCounts() {
+            return false;
+        }
+
+        @Override
+        int getHopCount(final int packetId) {
+            throw new UnsupportedOperationException(
+                    "Packet history is not recorded.");
+        }
+
+        @Override
+        int getLength(final int packetId) {
+            return 0;
+        }
+
+        @Override
+        int get(final int packetId, final int index) {
+            throw new IndexOutOfBoundsException(
+                    "Packet history is not recorded.");
+        }
+
+        @Override
+        void writeTo(final DataOutput out) {}
+
+        @Override
+        void readFrom(final DataInput in) {}
+    }
+
+    private static final class HopCountPacketHistory extends PacketHistory {
+
+        private int[] hopCounts;
+
+        HopCountPacketHistory(final int packetCapacity) {
+            this.hopCounts = new int[packetCapacity];
+        }
+
+        @Override
+        void ensureCapacity(final int packetCapacity) {
+            if (packetCapacity > hopCounts.length) {
+                hopCounts = Arrays.copyOf(hopCounts, packetCapacity);
+            }
+        }
+
+        @Override
+        void start(final int packetId, final int packetRouterIndex) {
+            hopCounts[packetId] = 0;
+        }
+
+        @Override
+        void append(final int packetId, final int packetRouterIndex) {
+            ++hopCounts[packetId];
+        }
+
+        @Override
+        int getHopCount(final int packetId) {
+            return hopCounts[packetId];
+        }
+
+        @Override
+        int getLength(final int packetId) {
+            return 0;
+        }
+
+        @Override
+        int get(final int packetId, final int index) {
+            throw new IndexOutOfBoundsException(
+                    "Only hop counts are recorded.");
+        }
+
+        @Override
+        void writeTo(final DataOutput out) throws IOException {
+            writeInts(out, hopCounts, hopCounts.length);
+        }
+
+        @Override
+        void readFrom(final DataInput in) throws IOException {
+            hopCounts = readInts(in, hopCounts.length);
+        }
+    }
+
+    /**
+     * Keeps the last <tt>K</tt> routers of each packet in a slice of one flat
+     * array used as a ring buffer.
+     */
+    private static final class RingBufferPacketHistory extends PacketHistory {
+
+        private final int capacity;
+        private int[] routers;
+
+        /**
+         * The total number of routers recorded per packet, including the ones
+         * already overwritten.
+         */
+        private int[] lengths;
+
+        RingBufferPacketHistory(final int packetCapacity, final int capacity) {
+            this.capacity = capacity;
+            this.routers  = new int[Math.multiplyExact(packetCapacity,
+                                                       capacity)];
+            this.lengths  = new int[packetCapacity];
+        }
+
+        @Override
+        void ensureCapacity(final int packetCapacity) {
+            if (packetCapacity > lengths.length) {
+                routers = Arrays.copyOf(routers,
+                                        Math.multiplyExact(packetCapacity,
+                                                           capacity));
+                lengths = Arrays.copyOf(lengths, packetCapacity);
+            }
+        }
+
+        @Override
+        void start(final int packetId, final int packetRouterIndex) {
+            routers[packetId * capacity] = packetRouterIndex;
+            lengths[packetId] = 1;
+        }
+
+        @Override
+        void append(final int packetId, final int packetRouterIndex) {
+            final int length = lengths[packetId]++;
+            routers[packetId * capacity + length % capacity] =
+                    packetRouterIndex;
+        }
+
+        @Override
+        int getHopCount(final int packetId) {
+            return lengths[packetId] - 1;
+        }
+
+        @Override
+        int getLength(final int packetId) {
+            return Math.min(lengths[packetId], capacity);
+        }
+
+        @Override
+        int get(final int packetId, final int index) {
+            final int length = lengths[packetId];
+            final int retained = Math.min(length, capacity);
+
+            if (index < 0 || index >= retained) {
+                throw new IndexOutOfBoundsException(
+                        "History index " + index + " out of " + retained);
+            }
+
+            return routers[packetId * capacity +
+                           (length - retained + index) % capacity];
+        }
+
+        @Override
+        void writeTo(final DataOutput out) throws IOException {
+            writeInts(out, lengths, lengths.length);
+            writeInts(out, routers, routers.length);
+        }
+
+        @Override
+        void readFrom(final DataInput in) throws IOException {
+            lengths = readInts(in, lengths.length);
+            routers = readInts(in, routers.length);
+        }
+    }
+
+    /**
+     * Keeps the route of each packet in the network in an array of its own,
+     * which is freed once the packet is delivered.
+     */
+    private static final class FullPacketHistory extends PacketHistory {
+
+        private static final int INITIAL_CAPACITY = 4;
+
+        private int[][] routers;
+        private int[] lengths;
+
+        /**
+         * The IDs of the packets whose routes are to be discarded.
+         */
+        private int[] releasedPacketIds = new int[INITIAL_CAPACITY];
+        private int numberOfReleasedPacketIds;
+
+        FullPacketHistory(final int packetCapacity) {
+            this.routers = new int[packetCapacity][];
+            this.lengths = new int[packetCapacity];
+        }
+
+        @Override
+        void ensureCapacity(final int packetCapacity) {
+            if (packetCapacity > lengths.length) {
+                routers = Arrays.copyOf(routers, packetCapacity);
+                lengths = Arrays.copyOf(lengths, packetCapacity);
+            }
+        }
+
+        @Override
+        void start(final int packetId, final int packetRouterIndex) {
+            routers[packetId] = new int[INITIAL_CAPACITY];
+            routers[packetId][0] = packetRouterIndex;
+            lengths[packetId] = 1;
+        }
+
+        @Override
+        void append(final int packetId, final int packetRouterIndex) {
+            int[] route = routers[packetId];
+            final int length = lengths[packetId];
+
+            if (length == route.length) {
+                route = Arrays.copyOf(route, 2 * length);
+                routers[packetId] = route;
+            }
+
+            route[length] = packetRouterIndex;
+            lengths[packetId] = length + 1;
+        }
+
+        @Override
+        void release(final int packetId) {
+            if (numberOfReleasedPacketIds == releasedPacketIds.length) {
+                releasedPacketIds = 
+                        Arrays.copyOf(releasedPacketIds, 
+                                      2 * numberOfReleasedPacketIds);
+            }
+
+            releasedPacketIds[numberOfReleasedPacketIds++] = packetId;
+        }
+
+        @Override
+        void discardReleasedRoutes() {
+            for (int i = 0; i < numberOfReleasedPacketIds; ++i) {
+                routers[releasedPacketIds[i]] = null;
+                lengths[releasedPacketIds[i]] = 0;
+            }
+
+            numberOfReleasedPacketIds = 0;
+        }
+
+        @Override
+        int getHopCount(final int packetId) {
+            return lengths[packetId] - 1;
+        }
+
+        @Override
+        int getLength(final int packetId) {
+            return lengths[packetId];
+        }
+
+        @Override
+        int get(final int packetId, final int index) {
+            if (index < 0 || index >= lengths[packetId]) {
+                throw new IndexOutOfBoundsException(
+                        "History index " + index + " out of " +
+                        lengths[packetId]);
+            }
+
+            return routers[packetId][index];
+        }
+
+        @Override
+        void writeTo(final DataOutput out) throws IOException {
+            out.writeInt(lengths.length);
+
+            for (int packetId = 0; packetId < lengths.length; ++packetId) {
+                writeInts(out, routers[packetId], lengths[packetId]);
+            }
+        }
+
+        @Override
+        void readFrom(final DataInput in) throws IOException {
+            if (in.readInt() != lengths.length) {
+                throw new IOException("Unexpected number of packets.");
+            }
+
+            for (int packetId = 0; packetId < lengths.length; ++packetId) {
+                final int[] route = readInts(in, -1);
+
+                lengths[packetId] = route.length;
+                routers[packetId] = route.length == 0 ? 
+                                    null : 
+                                    Arrays.copyOf(route, 
+                                                  Math.max(INITIAL_CAPACITY,
+                                                           route.length));
+            }
+        }
+    }
+}
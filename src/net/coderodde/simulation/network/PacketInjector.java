@@ -0,0 +1,334 @@
+package net.coderodde.simulation.network;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+/**
+ * This class injects the packets of an open-loop simulation and keeps the
+ * books of the steady-state measurement. The packets are either taken from a
+ * list and injected according to an {@link InjectionProcess}, or created on
+ * the fly from an {@link InjectionStream}. In the latter case, the packet IDs
+ * are recycled once the packets are delivered, so that the memory taken by
+ * the simulation depends only on the number of packets in the network.
+ * <p>
+ * The measured cycles are those following the warm-up period up to the last
+ * injection, since the network drains afterwards. The packets injected during
+ * the measured cycles are followed until they are delivered.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+final class PacketInjector {
+
+    /**
+     * The injection cycle standing for "never."
+     */
+    static final int NEVER = Integer.MAX_VALUE;
+
+    /**
+     * The initial number of packet IDs in a streamed run.
+     */
+    static final int INITIAL_PACKET_CAPACITY = 1024;
+
+    private final AbstractPacketRoutingAlgorithm algorithm;
+
+    /**
+     * The packet list and the injection schedule, or {@code null} in a
+     * streamed run.
+     */
+    private final List<Packet> packetList;
+    private final PrimitiveIterator.OfInt schedule;
+
+    /**
+     * The injection stream, or {@code null} if the packets are listed.
+     */
+    private final InjectionStream injectionStream;
+
+    private final int warmUpCycles;
+
+    /**
+     * The number of packets in the network that indicates saturation.
+     */
+    private final int saturationThreshold;
+
+    /**
+     * The index of the next listed packet to inject.
+     */
+    private int nextPacketIndex;
+
+    /**
+     * The injection cycle of the next packet, and the terminals of the next
+     * streamed packet.
+     */
+    private int nextInjectionCycle;
+    private int nextSourceIndex;
+    private int nextTargetIndex;
+
+    /**
+     * The cycle of the last injection, or {@link #NEVER} while there are
+     * packets to inject.
+     */
+    private int lastInjectionCycle = NEVER;
+
+    /**
+     * The stack of the recycled packet IDs of a streamed run, the IDs of the
+     * packets delivered during the current cycle, and the number of packet
+     * IDs ever used.
+     */
+    private int[] freePacketIds;
+    private int numberOfFreePacketIds;
+    private int[] releasedPacketIds;
+    private int numberOfReleasedPacketIds;
+    private int numberOfPacketIds;
+
+    private long injectedPackets;
+    private long deliveredPackets;
+    private long maximumPacketsInNetwork;
+    private boolean saturated;
+
+    PacketInjector(final AbstractPacketRoutingAlgorithm algorithm,
+                   final List<Packet> packetList,
+                   final PrimitiveIterator.OfInt schedule,
+                   final int warmUpCycles,
+                   final int saturationThreshold) {
+        this(algorithm,
+             packetList,
+             schedule,
+             null,
+             warmUpCycles,
+             saturationThreshold);
+    }
+
+    PacketInjector(final AbstractPacketRoutingAlgorithm algorithm,
+                   final InjectionStream injectionStream,
+                   final int warmUpCycles,
+                   final int saturationThreshold) {
+        this(algorithm,
+             null,
+             null,
+             injectionStream,
+             warmUpCycles,
+             saturationThreshold);
+    }
+
+    private PacketInjector(final AbstractPacketRoutingAlgorithm algorithm,
+                           final List<Packet> packetList,
+                           final PrimitiveIterator.OfInt schedule,
+                           final InjectionStream injectionStream,
+                           final int warmUpCycles,
+                           final int saturationThreshold) {
+        this.algorithm           = algorithm;
+        this.packetList          = packetList;
+        this.schedule            = schedule;
+        this.injectionStream     = injectionStream;
+        this.warmUpCycles        = warmUpCycles;
+        this.saturationThreshold = saturationThreshold;
+
+        if (injectionStream != null) {
+            this.freePacketIds     = new int[INITIAL_PACKET_CAPACITY];
+            this.releasedPacketIds = new int[INITIAL_PACKET_CAPACITY];
+        }
+
+        this.nextInjectionCycle = pollNextInjection();
+
+        if (nextInjectionCycle == NEVER) {
+            lastInjectionCycle = 0;
+        }
+    }
+
+    boolean hasPendingPackets() {
+        return nextInjectionCycle != NEVER;
+    }
+
+    int getNextInjectionCycle() {
+        return nextInjectionCycle;
+    }
+
+    boolean isSaturated() {
+        return saturated;
+    }
+
+    long getMaximumPacketsInNetwork() {
+        return maximumPacketsInNetwork;
+    }
+
+    /**
+     * Indicates whether the cycle {@code cycle} follows the warm-up period and
+     * does not follow the last injection.
+     *
+     * @param cycle the cycle.
+     * @return {@code true} if the cycle is measured.
+     */
+    boolean isMeasured(final int cycle) {
+        return cycle > warmUpCycles && cycle <= lastInjectionCycle;
+    }
+
+    /**
+     * Injects all packets due by the cycle {@code cycle}, and checks whether
+     * the network has saturated.
+     *
+     * @param cycle the current cycle.
+     */
+    void injectPackets(final int cycle) {
+        while (nextInjectionCycle <= cycle) {
+            final CompiledNetwork network = algorithm.compiledNetwork;
+
+            if (packetList != null) {
+                final Packet packet = packetList.get(nextPacketIndex++);
+
+                algorithm.injectPacket(
+                        packet,
+                        network.getIndexOf(packet.getSourcePacketRouter()),
+                        cycle);
+            } else {
+                final int packetId = acquirePacketId();
+
+                algorithm.packetTargetIndices[packetId] = nextTargetIndex;
+                algorithm.injectPacket(
+                        new Packet(packetId,
+                                   network.getPacketRouter(nextSourceIndex),
+                                   network.getPacketRouter(nextTargetIndex)),
+                        nextSourceIndex,
+                        cycle);
+            }
+
+            if (isMeasured(cycle)) {
+                ++injectedPackets;
+            }
+
+            nextInjectionCycle = pollNextInjection();
+
+            if (nextInjectionCycle == NEVER) {
+                lastInjectionCycle = cycle;
+            }
+        }
+
+        final long packetsInNetwork = algorithm.numberOfPackets -
+                                      algorithm.numberOfDeliveredPackets;
+
+        maximumPacketsInNetwork = Math.max(maximumPacketsInNetwork,
+                                           packetsInNetwork);
+
+        if (packetsInNetwork > saturationThreshold) {
+            saturated = true;
+        }
+    }
+
+    /**
+     * Records the delivery of {@code packet} arriving at the time
+     * {@code time}, that is, during the cycle <tt>time - 1</tt>.
+     *
+     * @param packet the delivered packet.
+     * @param time   the arrival time.
+     */
+    void onPacketDelivered(final Packet packet, final int time) {
+        if (isMeasured(time - 1)) {
+            ++deliveredPackets;
+        }
+
+        if (injectionStream != null) {
+            if (numberOfReleasedPacketIds == releasedPacketIds.length) {
+                releasedPacketIds =
+                        Arrays.copyOf(releasedPacketIds,
+                                      2 * numberOfReleasedPacketIds);
+            }
+
+            releasedPacketIds[numberOfReleasedPacketIds++] = packet.getId();
+        }
+    }
+
+    /**
+     * Makes the IDs of the packets delivered during the last cycle available
+     * for new packets. This must wait until the cycle is over, since the
+     * algorithm may look at the histories of the delivered packets until
+     * then.
+     */
+    void recyclePacketIds() {
+        if (numberOfReleasedPacketIds == 0) {
+            return;
+        }
+
+        if (numberOfFreePacketIds + numberOfReleasedPacketIds
+                > freePacketIds.length) {
+            freePacketIds =
+                    Arrays.copyOf(freePacketIds,
+                                  Math.max(2 * freePacketIds.length,
+                                           numberOfFreePacketIds +
+                                           numberOfReleasedPacketIds));
+        }
+
+        System.arraycopy(releasedPacketIds,
+                         0,
+                         freePacketIds,
+                         numberOfFreePacketIds,
+                         numberOfReleasedPacketIds);
+
+        numberOfFreePacketIds += numberOfReleasedPacketIds;
+        numberOfReleasedPacketIds = 0;
+    }
+
+    /**
+     * Returns the steady-state statistics of a run that has lasted until the
+     * cycle {@code cycles}, exclusively.
+     *
+     * @param cycles the number of cycles including the initialization.
+     * @return the steady-state statistics.
+     */
+    SteadyStateStatistics getStatistics(final int cycles) {
+        final int lastMeasuredCycle = Math.min(cycles - 1, lastInjectionCycle);
+
+        return new SteadyStateStatistics(
+                warmUpCycles,
+                Math.max(0, lastMeasuredCycle - warmUpCycles),
+                injectedPackets,
+                deliveredPackets,
+                saturated);
+    }
+
+    private int acquirePacketId() {
+        if (numberOfFreePacketIds > 0) {
+            return freePacketIds[--numberOfFreePacketIds];
+        }
+
+        if (numberOfPacketIds == algorithm.packetTargetIndices.length) {
+            algorithm.ensurePacketCapacity(2 * numberOfPacketIds);
+        }
+
+        return numberOfPacketIds++;
+    }
+
+    private int pollNextInjection() {
+        if (packetList != null) {
+            if (nextPacketIndex == packetList.size() || !schedule.hasNext()) {
+                return NEVER;
+            }
+
+            return Math.max(1, schedule.nextInt());
+        }
+
+        if (!injectionStream.advance()) {
+            return NEVER;
+        }
+
+        final int size = algorithm.compiledNetwork.size();
+
+        nextSourceIndex = injectionStream.getSourceIndex();
+        nextTargetIndex = injectionStream.getTargetIndex();
+
+        if (nextSourceIndex < 0 || nextSourceIndex >= size
+                || nextTargetIndex < 0 || nextTargetIndex >= size) {
+            throw new IllegalArgumentException(
+                    "Injection terminal out of range: " + nextSourceIndex +
+                    " -> " + nextTargetIndex + ".");
+        }
+
+        if (nextSourceIndex == nextTargetIndex) {
+            throw new IllegalArgumentException(
+                    "Injection terminals are the same: " + nextSourceIndex +
+                    " -> " + nextTargetIndex + ".");
+        }
+
+        return Math.max(1, injectionStream.getInjectionCycle());
+    }
+}
@@ -21,6 +21,13 @@ import java.util.Objects;
  */
 public final class PacketRouter {
 
+    /**
+     * The initial capacity of the packet queue. Most queues stay short, and a
+     * small capacity keeps the footprint of large networks down; the queue
+     * grows as needed.
+     */
+    private static final int INITIAL_QUEUE_CAPACITY = 4;
+
     /**
      * The ID of the packet router. The IDs must be unique.
      */
@@ -28,23 +35,58 @@ public final class PacketRouter {
 
     /**
      * The list of packet routers to which there is an undirected link from this
-     * packet router.
+     * packet router, or {@code null} if the router belongs to a network built
+     * directly in the compiled form by 
+     * {@link #PacketRouter(int, CompiledNetwork)}.
      */
-    private final List<PacketRouter> neighbors = new ArrayList<>();
+    private final List<PacketRouter> neighbors;
+
+    /**
+     * The network holding the links of this router, or {@code null} if the
+     * router keeps its own neighbor list.
+     */
+    private final CompiledNetwork compiledNetwork;
 
     /**
      * The internal queue of packets not yet emitted.
      */
-    private final Deque<Packet> queue = new ArrayDeque<>();
+    private final Deque<Packet> queue = 
+            new ArrayDeque<>(INITIAL_QUEUE_CAPACITY);
 
     public PacketRouter(final int id) {
         this.id = id;
+        this.neighbors = new ArrayList<>();
+        this.compiledNetwork = null;
+    }
+
+    /**
+     * Constructs a packet router of a network built directly in the compiled
+     * form. Its neighbors are read from the links of the network, so the 
+     * router may not be connected to any more routers.
+     * 
+     * @param id              the ID and the index of the router.
+     * @param compiledNetwork the network holding the links.
+     */
+    PacketRouter(final int id, final CompiledNetwork compiledNetwork) {
+        this.id = id;
+        this.neighbors = null;
+        this.compiledNetwork = compiledNetwork;
+    }
+
+    public int getId() {
+        return id;
     }
 
     public final void connect(final PacketRouter neighborPacketRouter) {
         Objects.requireNonNull(neighborPacketRouter,
                                "The input neighbor packet router is null.");
 
+        if (compiledNetwork != null 
+                || neighborPacketRouter.compiledNetwork != null) {
+            throw new UnsupportedOperationException(
+                    "The links of a compiled network cannot be changed.");
+        }
+
         if (!neighbors.contains(neighborPacketRouter)) {
             neighbors.add(neighborPacketRouter);
             neighborPacketRouter.neighbors.add(this);
@@ -52,6 +94,10 @@ public final class PacketRouter {
     }
 
     public final List<PacketRouter> getNeighbors() {
+        if (compiledNetwork != null) {
+            return compiledNetwork.getNeighborList(id);
+        }
+
         return Collections.<PacketRouter>unmodifiableList(neighbors);
     }
 
@@ -59,22 +105,6 @@ public final class PacketRouter {
         return Collections.<Packet>unmodifiableCollection(queue);
     }
 
-    /**
-     * Removes the delivered packet from the queue. This {@code PacketRouter} 
-     * must be the target packet router of {@code packet}.
-     * 
-     * @param packet 
-     */
-    public void remove(final Packet packet) {
-        if (!packet.getTargetPacketRouter().equals(this)) {
-            throw new IllegalArgumentException(
-                    "The input packet is not in its " +
-                    "destination packet router.");
-        }
-
-        queue.remove(packet);
-    }
-
     public int queueLength() {
         return queue.size();
     }
@@ -113,12 +143,14 @@ public final class PacketRouter {
           .append(id)
           .append(", neighbors = <");
 
-        if (!neighbors.isEmpty()) {
-            sb.append(neighbors.get(0).id);
+        final List<PacketRouter> neighborList = getNeighbors();
+
+        if (!neighborList.isEmpty()) {
+            sb.append(neighborList.get(0).id);
         }
 
-        for (int i = 1; i < neighbors.size(); ++i) {
-            sb.append(", ").append(neighbors.get(i).id);
+        for (int i = 1; i < neighborList.size(); ++i) {
+            sb.append(", ").append(neighborList.get(i).id);
         }
 
         sb.append(">, queue = <");
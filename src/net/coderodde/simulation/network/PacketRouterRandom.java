@@ -0,0 +1,86 @@
+package net.coderodde.simulation.network;
+
+/**
+ * This class implements a family of independent pseudorandom streams, one per
+ * packet router, all derived from a single seed. Each stream is a SplitMix64
+ * generator (the algorithm behind {@link java.util.SplittableRandom}) whose
+ * whole state is a single {@code long}, so that the routers may draw random
+ * numbers concurrently without any contention and the state of all streams
+ * fits in one primitive array.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+final class PacketRouterRandom {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final long[] states;
+
+    PacketRouterRandom(final long seed, final int numberOfStreams) {
+        this.states = new long[numberOfStreams];
+
+        for (int i = 0; i < numberOfStreams; ++i) {
+            // Scatter the starting points of the streams over the period.
+            states[i] = mix64(seed + (i + 1) * GOLDEN_GAMMA);
+        }
+    }
+
+    /**
+     * Returns a pseudorandom integer within <tt>[0, bound)</tt> from the
+     * stream {@code stream}.
+     *
+     * @param stream the stream index, usually the router index.
+     * @param bound  the exclusive upper bound; must be positive.
+     * @return a pseudorandom integer.
+     * @throws IllegalArgumentException if {@code bound} is not positive.
+     */
+    int nextInt(final int stream, final int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException(
+                    "The bound is not positive: " + bound + ".");
+        }
+
+        int r = next31(stream);
+        final int m = bound - 1;
+
+        if ((bound & m) == 0) {
+            // 'bound' is a power of two.
+            return (int) ((bound * (long) r) >> 31);
+        }
+
+        for (int u = r; u - (r = u % bound) + m < 0; u = next31(stream)) {
+            // Reject the values from the incomplete last interval.
+        }
+
+        return r;
+    }
+
+    /**
+     * Returns the current state of the stream {@code stream}.
+     *
+     * @param stream the stream index.
+     * @return the state of the stream.
+     */
+    long getState(final int stream) {
+        return states[stream];
+    }
+
+    void setState(final int stream, final long state) {
+        states[stream] = state;
+    }
+
+    int getNumberOfStreams() {
+        return states.length;
+    }
+
+    private int next31(final int stream) {
+        return (int) (mix64(states[stream] += GOLDEN_GAMMA) >>> 33);
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,154 @@
+package net.coderodde.simulation.network;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * This class implements a monotone radix heap of {@code long} keys, each
+ * carrying an {@code int} value. The keys are compared as unsigned numbers, and
+ * no key smaller than the last extracted one may be inserted, which is always
+ * the case for the event queue of a simulation that never schedules events in
+ * the past.
+ * <p>
+ * An element with the key <tt>k</tt> is kept in the bucket indexed by the
+ * position of the highest bit in which <tt>k</tt> differs from the last
+ * extracted key. Each extraction empties at most one bucket, redistributing
+ * its elements into lower buckets, so each element moves at most 64 times. All
+ * buckets are growable primitive arrays.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+final class RadixHeap {
+
+    private static final int NUMBER_OF_BUCKETS = Long.SIZE + 1;
+
+    private static final int INITIAL_BUCKET_CAPACITY = 8;
+
+    private final long[][] bucketKeys = new long[NUMBER_OF_BUCKETS][];
+    private final int[][] bucketValues = new int[NUMBER_OF_BUCKETS][];
+    private final int[] bucketSizes = new int[NUMBER_OF_BUCKETS];
+
+    /**
+     * The last extracted key and its value.
+     */
+    private long lastKey;
+    private int lastValue;
+
+    private int size;
+
+    RadixHeap() {
+        for (int i = 0; i < NUMBER_OF_BUCKETS; ++i) {
+            bucketKeys[i] = new long[INITIAL_BUCKET_CAPACITY];
+            bucketValues[i] = new int[INITIAL_BUCKET_CAPACITY];
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Inserts the element {@code value} with the key {@code key}.
+     *
+     * @param key   the key, not smaller than the last extracted key.
+     * @param value the value.
+     */
+    void insert(final long key, final int value) {
+        if (Long.compareUnsigned(key, lastKey) < 0) {
+            throw new IllegalArgumentException(
+                    "The key " + Long.toUnsignedString(key) + " precedes " +
+                    "the last extracted key " +
+                    Long.toUnsignedString(lastKey) + ".");
+        }
+
+        append(getBucketIndex(key), key, value);
+        ++size;
+    }
+
+    /**
+     * Removes an element with the smallest key and returns the key. The value
+     * of the element is available via {@link #getLastValue()}.
+     *
+     * @return the smallest key.
+     */
+    long extractMinimum() {
+        if (size == 0) {
+            throw new NoSuchElementException("The radix heap is empty.");
+        }
+
+        if (bucketSizes[0] == 0) {
+            redistribute();
+        }
+
+        final int index = --bucketSizes[0];
+        lastValue = bucketValues[0][index];
+        --size;
+        return lastKey;
+    }
+
+    /**
+     * Returns the value of the element extracted last.
+     *
+     * @return the last extracted value.
+     */
+    int getLastValue() {
+        return lastValue;
+    }
+
+    /**
+     * Empties the lowest non-empty bucket: its minimum key becomes the new
+     * reference key, and all its elements move to lower buckets, those with
+     * the minimum key landing in bucket zero.
+     */
+    private void redistribute() {
+        int bucket = 1;
+
+        while (bucketSizes[bucket] == 0) {
+            ++bucket;
+        }
+
+        final long[] keys = bucketKeys[bucket];
+        final int[] values = bucketValues[bucket];
+        final int bucketSize = bucketSizes[bucket];
+        long minimumKey = keys[0];
+
+        for (int i = 1; i < bucketSize; ++i) {
+            if (Long.compareUnsigned(keys[i], minimumKey) < 0) {
+                minimumKey = keys[i];
+            }
+        }
+
+        lastKey = minimumKey;
+        bucketSizes[bucket] = 0;
+
+        // Bucket zero is popped from its end, so iterating backwards makes the
+        // elements with the minimum key leave it in their insertion order.
+        for (int i = bucketSize - 1; i >= 0; --i) {
+            append(getBucketIndex(keys[i]), keys[i], values[i]);
+        }
+    }
+
+    private int getBucketIndex(final long key) {
+        return Long.SIZE - Long.numberOfLeadingZeros(key ^ lastKey);
+    }
+
+    private void append(final int bucket, final long key, final int value) {
+        final int bucketSize = bucketSizes[bucket];
+
+        if (bucketSize == bucketKeys[bucket].length) {
+            bucketKeys[bucket] = Arrays.copyOf(bucketKeys[bucket],
+                                               2 * bucketSize);
+            bucketValues[bucket] = Arrays.copyOf(bucketValues[bucket],
+                                                 2 * bucketSize);
+        }
+
+        bucketKeys[bucket][bucketSize] = key;
+        bucketValues[bucket][bucketSize] = value;
+        bucketSizes[bucket] = bucketSize + 1;
+    }
+}
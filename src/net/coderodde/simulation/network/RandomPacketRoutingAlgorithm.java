@@ -1,11 +1,6 @@
 package net.coderodde.simulation.network;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Random;
 
 /**
  * This class implements a packet routing algorithm that sends each packet to a
@@ -16,11 +11,6 @@ import java.util.Random;
  */
 public final class RandomPacketRoutingAlgorithm extends AbstractPacketRoutingAlgorithm {
 
-    /**
-     * The random number generator.
-     */
-    private Random random;
-
     /**
      * Constructs the API entry object.
      */
@@ -32,63 +22,81 @@ public final class RandomPacketRoutingAlgorithm extends AbstractPacketRoutingAlg
      * @param dummy ignored. Used for distinction between the public and
      *              non-public constructors.
      */
-    private RandomPacketRoutingAlgorithm(final boolean dummy) {
-        this.historyMap           = new HashMap<>();
-        this.undeliveredPacketSet = new HashSet<>();
-        this.queueLengthList      = new ArrayList<>();
-        this.random               = new Random();
-    }
+    private RandomPacketRoutingAlgorithm(final boolean dummy) {}
 
     @Override
     public SimulationStatistics simulate(final List<PacketRouter> network, 
                                          final List<Packet> packetList) {
         final RandomPacketRoutingAlgorithm state = 
                 new RandomPacketRoutingAlgorithm(true);
+        state.inheritSettings(this);
 
-        return state.simulateImpl(network, packetList);
+        try {
+            return state.simulateImpl(network, packetList, null);
+        } finally {
+            state.releaseEngine();
+        }
     }
 
-    private SimulationStatistics simulateImpl(final List<PacketRouter> network,
-                                              final List<Packet> packetList) {
-        initializePackets(packetList);
+    @Override
+    public SimulationStatistics simulate(final List<PacketRouter> network,
+                                         final Workload workload) {
+        final RandomPacketRoutingAlgorithm state = 
+                new RandomPacketRoutingAlgorithm(true);
+        state.inheritSettings(this);
+
+        try {
+            return state.simulateImpl(network, null, workload);
+        } finally {
+            state.releaseEngine();
+        }
+    }
 
-        undeliveredPacketSet.addAll(packetList);
+    /**
+     * Runs the simulation on the packets of either {@code packetList} or 
+     * {@code workload}, the other one being {@code null}.
+     */
+    private SimulationStatistics simulateImpl(final List<PacketRouter> network,
+                                              final List<Packet> packetList,
+                                              final Workload workload) {
+        compileNetwork(network);
 
-        while (!undeliveredPacketSet.isEmpty()) {
-            loadPacketRouterQueueLengths(network);
-            simulateCycle(network);
-            pruneDeliveredPackets();
-            ++cycles;
+        if (workload != null) {
+            initializeWorkload(workload);
+        } else {
+            initializePackets(packetList);
         }
 
+        runSimulation();
         return buildStatistics();
     }
 
-    private void simulateCycle(final List<PacketRouter> network) {
-        final Map<Packet, PacketRouter> map = new HashMap<>();
-
-        // Find out to which packet router to send the packets:
-        for (final PacketRouter packetRouter : network) {
-            if (packetRouter.queueLength() > 0) {
-                final Packet packet = packetRouter.dequeuePacket();
-                final PacketRouter nextPacketRouter = 
-                        choose(packetRouter.getNeighbors(), random);
-                map.put(packet, nextPacketRouter);
-            }
-        }
+    @Override
+    protected boolean supportsParallelDecisions() {
+        // Each router draws from its own random stream.
+        return true;
+    }
 
-        // Send the packets:
-        for (final Map.Entry<Packet, PacketRouter> entry : map.entrySet()) {
-            final Packet packet = entry.getKey();
-            final PacketRouter packetRouter = entry.getValue();
-            packetRouter.enqueuePacket(packet);
-        }
+    @Override
+    protected int computeNextPacketRouterIndex(final int packetRouterIndex,
+                                               final Packet packet) {
+        return compiledNetwork.getNeighbor(
+                packetRouterIndex,
+                computeNextSlot(packetRouterIndex, packet));
+    }
 
-        // Update the history of each packet.
-        for (final PacketRouter packetRouter : network) {
-            for (final Packet packet : packetRouter.getQueue()) {
-                historyMap.get(packet).add(packetRouter);
-            }
+    @Override
+    protected int computeNextSlot(final int packetRouterIndex,
+                                  final Packet packet) {
+        final int degree = compiledNetwork.getDegree(packetRouterIndex);
+
+        if (degree == 0) {
+            throw new IllegalStateException(
+                    "Packet router " + 
+                    compiledNetwork.getPacketRouter(packetRouterIndex).getId() +
+                    " has no links.");
         }
+
+        return random.nextInt(packetRouterIndex, degree);
     }
 }
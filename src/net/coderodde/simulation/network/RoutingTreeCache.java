@@ -0,0 +1,306 @@
+package net.coderodde.simulation.network;
+
+import java.util.Arrays;
+
+/**
+ * This class implements a size-bounded, least-recently-used cache of shortest
+ * path trees rooted at destination routers. The tree of a destination
+ * <tt>D</tt> maps each router index to the neighbor slot of the next router
+ * on a shortest path towards <tt>D</tt>, and is computed by a breadth-first search
+ * from <tt>D</tt> the first time it is needed. Since the links are undirected,
+ * this is the reverse of the shortest path tree of the routers towards
+ * <tt>D</tt>. All bookkeeping is done in primitive arrays: the recency order
+ * is an intrusive doubly-linked list over the cache entries.
+ * <p>
+ * A plain LRU cache thrashes as soon as the packets in flight are bound to 
+ * more destinations than it holds, since each routing decision then evicts a
+ * tree that is needed again shortly. Hence the cache counts the lookups of
+ * each destination, halving all counts once per cycle, and admits a new tree
+ * unless its destination has been looked up less often than that of the 
+ * least recently used tree. A rejected tree is kept aside until another 
+ * rejected tree is built, so that the consecutive lookups of its destination
+ * do not rebuild it. This keeps the trees of the busy destinations in the 
+ * cache, but cannot help if all destinations are equally busy: the capacity
+ * should then cover the destinations of the packets in flight.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+final class RoutingTreeCache {
+
+    private static final int NONE = -1;
+
+    private final CompiledNetwork network;
+
+    /**
+     * Maps each destination router index to its cache entry, or {@link #NONE}.
+     */
+    private final int[] entryOfDestination;
+
+    /**
+     * Maps each cache entry to its destination and its tree.
+     */
+    private final int[] destinationOfEntry;
+    private final int[][] trees;
+
+    /**
+     * The recency list; {@code head} is the most recently used entry.
+     */
+    private final int[] previousEntry;
+    private final int[] nextEntry;
+    private int head = NONE;
+    private int tail = NONE;
+
+    private int numberOfEntries;
+
+    /**
+     * The scratch queue and distance arrays of the breadth-first search.
+     */
+    private final int[] queue;
+    private final int[] distances;
+
+    /**
+     * The lookup counts of the destinations, halved once per cycle.
+     */
+    private final int[] lookupCounts;
+
+    /**
+     * The destinations with a positive lookup count, so that an aging takes 
+     * time proportional to the lookups since the previous one.
+     */
+    private final int[] countedDestinations;
+    private int numberOfCountedDestinations;
+
+    /**
+     * The last tree not admitted to the cache and its destination, or 
+     * {@code null} and {@link #NONE}.
+     */
+    private int[] rejectedTree;
+    private int rejectedDestination = NONE;
+
+    private long hits;
+    private long misses;
+    private long rejections;
+
+    /**
+     * The number of routers visited by the breadth-first searches.
+     */
+    private long routerVisits;
+
+    RoutingTreeCache(final CompiledNetwork network, final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(
+                    "The cache capacity must be positive: " + capacity);
+        }
+
+        final int entries = Math.min(capacity, network.size());
+
+        this.network             = network;
+        this.entryOfDestination  = new int[network.size()];
+        this.destinationOfEntry  = new int[entries];
+        this.trees               = new int[entries][];
+        this.previousEntry       = new int[entries];
+        this.nextEntry           = new int[entries];
+        this.queue               = new int[network.size()];
+        this.distances           = new int[network.size()];
+        this.lookupCounts        = new int[network.size()];
+        this.countedDestinations = new int[network.size()];
+
+        Arrays.fill(entryOfDestination, NONE);
+    }
+
+    /**
+     * Returns the neighbor slot of the router following {@code router} on a
+     * shortest path to {@code destination}, or <tt>-1</tt> if there is no 
+     * such path or {@code router} is the destination.
+     *
+     * @param router      the current router index.
+     * @param destination the destination router index.
+     * @return the slot of the next router.
+     */
+    int getNextSlot(final int router, final int destination) {
+        return getTree(destination)[router];
+    }
+
+    /**
+     * Halves the lookup counts. Called once per cycle, during which each 
+     * packet at the head of a queue is routed once, so that the count of a 
+     * destination follows the number of its packets in flight, and the
+     * destination whose packets have been delivered soon gives way to a new 
+     * one.
+     */
+    void age() {
+        int numberOfRemaining = 0;
+
+        for (int i = 0; i < numberOfCountedDestinations; ++i) {
+            final int destination = countedDestinations[i];
+
+            if ((lookupCounts[destination] >>>= 1) > 0) {
+                countedDestinations[numberOfRemaining++] = destination;
+            }
+        }
+
+        numberOfCountedDestinations = numberOfRemaining;
+    }
+
+    long getHits() {
+        return hits;
+    }
+
+    long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of misses whose tree was not admitted to the cache.
+     *
+     * @return the number of rejected trees.
+     */
+    long getRejections() {
+        return rejections;
+    }
+
+    long getRouterVisits() {
+        return routerVisits;
+    }
+
+    private int[] getTree(final int destination) {
+        countLookup(destination);
+
+        int entry = entryOfDestination[destination];
+
+        if (entry != NONE) {
+            ++hits;
+            moveToFront(entry);
+            return trees[entry];
+        }
+
+        if (destination == rejectedDestination) {
+            ++hits;
+            return rejectedTree;
+        }
+
+        ++misses;
+
+        if (numberOfEntries < trees.length) {
+            entry = numberOfEntries++;
+            trees[entry] = new int[network.size()];
+        } else if (lookupCounts[destination] < 
+                   lookupCounts[destinationOfEntry[tail]]) {
+            // The cached trees are in at least as much demand.
+            ++rejections;
+
+            if (rejectedTree == null) {
+                rejectedTree = new int[network.size()];
+            }
+
+            buildTree(destination, rejectedTree);
+            rejectedDestination = destination;
+            return rejectedTree;
+        } else {
+            // Evict the least recently used tree and reuse its array.
+            entry = tail;
+            unlink(entry);
+            entryOfDestination[destinationOfEntry[entry]] = NONE;
+        }
+
+        buildTree(destination, trees[entry]);
+        destinationOfEntry[entry] = destination;
+        entryOfDestination[destination] = entry;
+        linkFirst(entry);
+        return trees[entry];
+    }
+
+    private void countLookup(final int destination) {
+        if (lookupCounts[destination]++ == 0) {
+            countedDestinations[numberOfCountedDestinations++] = destination;
+        }
+    }
+
+    /**
+     * Runs a breadth-first search from {@code destination}, and then lets 
+     * each router pick its first neighbor (in the slot order) that is one 
+     * step closer to {@code destination}. This is the same choice the 
+     * all-pairs table makes, so both modes route packets identically.
+     */
+    private void buildTree(final int destination, final int[] tree) {
+        Arrays.fill(distances, NONE);
+        distances[destination] = 0;
+        queue[0] = destination;
+
+        int queueHead = 0;
+        int queueTail = 1;
+
+        while (queueHead < queueTail) {
+            final int current = queue[queueHead++];
+            final int begin = network.getNeighborOffset(current);
+            final int end = begin + network.getDegree(current);
+
+            for (int offset = begin; offset < end; ++offset) {
+                final int neighbor = network.getNeighborAt(offset);
+
+                if (distances[neighbor] == NONE) {
+                    distances[neighbor] = distances[current] + 1;
+                    queue[queueTail++] = neighbor;
+                }
+            }
+        }
+
+        routerVisits += queueTail;
+
+        Arrays.fill(tree, NONE);
+
+        // Only the reached routers (all in the queue) have a next hop.
+        for (int i = 1; i < queueTail; ++i) {
+            final int router = queue[i];
+            final int begin = network.getNeighborOffset(router);
+            final int end = begin + network.getDegree(router);
+
+            for (int offset = begin; offset < end; ++offset) {
+                final int neighbor = network.getNeighborAt(offset);
+
+                if (distances[neighbor] == distances[router] - 1) {
+                    tree[router] = offset - begin;
+                    break;
+                }
+            }
+        }
+    }
+
+    private void moveToFront(final int entry) {
+        if (entry != head) {
+            unlink(entry);
+            linkFirst(entry);
+        }
+    }
+
+    private void linkFirst(final int entry) {
+        previousEntry[entry] = NONE;
+        nextEntry[entry] = head;
+
+        if (head != NONE) {
+            previousEntry[head] = entry;
+        } else {
+            tail = entry;
+        }
+
+        head = entry;
+    }
+
+    private void unlink(final int entry) {
+        final int previous = previousEntry[entry];
+        final int next = nextEntry[entry];
+
+        if (previous != NONE) {
+            nextEntry[previous] = next;
+        } else {
+            head = next;
+        }
+
+        if (next != NONE) {
+            previousEntry[next] = previous;
+        } else {
+            tail = previous;
+        }
+    }
+}
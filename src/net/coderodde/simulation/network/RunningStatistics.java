@@ -0,0 +1,141 @@
+package net.coderodde.simulation.network;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * This class accumulates the minimum, maximum, mean and variance of a stream
+ * of integer samples in constant memory. The mean and variance are maintained
+ * via Welford's running update, which does not suffer from the cancellation
+ * and overflow problems of the naive "sum of squares" formula.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+public final class RunningStatistics {
+
+    private long count;
+    private long minimum = Long.MAX_VALUE;
+    private long maximum = Long.MIN_VALUE;
+    private double mean;
+
+    /**
+     * The sum of squared differences from the current mean.
+     */
+    private double m2;
+
+    public void add(final long sample) {
+        ++count;
+
+        if (minimum > sample) {
+            minimum = sample;
+        }
+
+        if (maximum < sample) {
+            maximum = sample;
+        }
+
+        final double delta = sample - mean;
+        mean += delta / count;
+        m2 += delta * (sample - mean);
+    }
+
+    /**
+     * Adds {@code times} copies of {@code sample} at once, which takes 
+     * constant time.
+     * 
+     * @param sample the sample value.
+     * @param times  the number of copies to add.
+     */
+    public void add(final long sample, final long times) {
+        if (times <= 0) {
+            return;
+        }
+
+        final long newCount = count + times;
+
+        if (minimum > sample) {
+            minimum = sample;
+        }
+
+        if (maximum < sample) {
+            maximum = sample;
+        }
+
+        // Merge in a group of equal samples, which has zero variance.
+        final double delta = sample - mean;
+        mean += delta * times / newCount;
+        m2 += delta * delta * count * times / newCount;
+        count = newCount;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the smallest sample seen so far, or zero if there is none.
+     *
+     * @return the minimum sample.
+     */
+    public long getMinimum() {
+        return count == 0 ? 0 : minimum;
+    }
+
+    /**
+     * Returns the largest sample seen so far, or zero if there is none.
+     *
+     * @return the maximum sample.
+     */
+    public long getMaximum() {
+        return count == 0 ? 0 : maximum;
+    }
+
+    public double getMean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * Returns the sample variance, which is undefined for less than two
+     * samples.
+     *
+     * @return the sample variance.
+     */
+    public double getVariance() {
+        return count < 2 ? Double.NaN : m2 / (count - 1);
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * Writes the state of this accumulator to {@code out}.
+     *
+     * @param out the output.
+     * @throws IOException if writing fails.
+     */
+    void writeTo(final DataOutput out) throws IOException {
+        out.writeLong(count);
+        out.writeLong(minimum);
+        out.writeLong(maximum);
+        out.writeDouble(mean);
+        out.writeDouble(m2);
+    }
+
+    /**
+     * Replaces the state of this accumulator with the one written by
+     * {@link #writeTo(DataOutput)}.
+     *
+     * @param in the input.
+     * @throws IOException if reading fails.
+     */
+    void readFrom(final DataInput in) throws IOException {
+        count   = in.readLong();
+        minimum = in.readLong();
+        maximum = in.readLong();
+        mean    = in.readDouble();
+        m2      = in.readDouble();
+    }
+}
@@ -1,19 +1,19 @@
 package net.coderodde.simulation.network;
 
-import java.util.ArrayDeque;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Deque;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * This class implements a packet routing algorithm that computes all-pairs 
  * shortest paths and transmits each packet along the shortest path between the 
  * terminal packet routers.
+ * <p>
+ * By default, the next hops for all pairs of routers are computed before the
+ * simulation starts. For very large networks, a lazy mode may be enabled via
+ * {@link #setRoutingTreeCacheCapacity(int)}: the shortest path tree towards a
+ * destination is then computed only when the first packet for it is routed,
+ * and at most the given number of such trees are kept at a time.
  * 
  * @author Rodion "rodde" Efremov
  * @version 1.6 (Jul 11, 2016)
@@ -22,146 +22,276 @@ public final class ShortestPathPacketRoutingAlgorithm
 extends AbstractPacketRoutingAlgorithm {
 
     /**
-     * This map implements the dispatch table. It maps each source packet router
-     * <tt>S</tt>, to a partial dispatch table <tt>T(S)</tt>. Each <tt>T(S)</tt>
-     * maps each target packet router <tt>D</tt> to a neighbor router <tt>N<tt> 
-     * such that <tt>N</tt> is on a shortest path between <tt>S</tt> and 
-     * <tt>D</tt>.
+     * The number of target routers processed sequentially by a single table
+     * building task.
      */
-    private Map<PacketRouter, Map<PacketRouter, PacketRouter>> dispatchTable;
+    private static final int TARGETS_PER_TASK = 
+            4 * MultiSourceBreadthFirstSearch.BATCH_SIZE;
+
+    /**
+     * This matrix implements the dispatch table. It maps each source packet 
+     * router index <tt>S</tt> and target packet router index <tt>D</tt> to 
+     * the slot of a neighbor router <tt>N<tt> of <tt>S</tt> such that 
+     * <tt>N</tt> is on a shortest path between <tt>S</tt> and <tt>D</tt>.
+     */
+    private NextHopMatrix dispatchTable;
+
+    /**
+     * The maximum number of destination trees kept in the lazy mode, or zero
+     * if all next hops are computed in advance.
+     */
+    private int routingTreeCacheCapacity;
+
+    /**
+     * The destination tree cache used in the lazy mode.
+     */
+    private RoutingTreeCache routingTreeCache;
+
+    /**
+     * The number of routers visited while building the dispatch table.
+     */
+    private long dispatchTableRouterVisits;
 
     public ShortestPathPacketRoutingAlgorithm() {}
 
-    private ShortestPathPacketRoutingAlgorithm(final boolean dummy) {
-        this.historyMap           = new HashMap<>();
-        this.undeliveredPacketSet = new HashSet<>();
-        this.queueLengthList      = new ArrayList<>();
-        this.dispatchTable        = new HashMap<>();
+    private ShortestPathPacketRoutingAlgorithm(
+            final int routingTreeCacheCapacity) {
+        this.routingTreeCacheCapacity = routingTreeCacheCapacity;
+    }
+
+    /**
+     * Enables the lazy routing mode with at most 
+     * {@code routingTreeCacheCapacity} destination trees held in memory, or
+     * restores the default all-pairs mode if the argument is zero.
+     * <p>
+     * Each tree takes four bytes per router. The capacity should cover the 
+     * destinations of the packets in flight, or at least the busiest of them:
+     * each miss costs a breadth-first search over the whole network. If the
+     * statistics report about as many routing tree cache misses as hits, the
+     * capacity is too small, and unless the memory forbids it, the all-pairs 
+     * mode is faster.
+     * 
+     * @param routingTreeCacheCapacity the maximum number of cached trees.
+     */
+    public void setRoutingTreeCacheCapacity(
+            final int routingTreeCacheCapacity) {
+        if (routingTreeCacheCapacity < 0) {
+            throw new IllegalArgumentException(
+                    "Negative routing tree cache capacity: " + 
+                    routingTreeCacheCapacity);
+        }
+
+        this.routingTreeCacheCapacity = routingTreeCacheCapacity;
     }
 
     @Override
     public SimulationStatistics simulate(final List<PacketRouter> network, 
                                          final List<Packet> packetList) {
         final ShortestPathPacketRoutingAlgorithm state = 
-                new ShortestPathPacketRoutingAlgorithm(true);
+                new ShortestPathPacketRoutingAlgorithm(
+                        routingTreeCacheCapacity);
+        state.inheritSettings(this);
 
-        return state.simulateImpl(network, packetList);
+        try {
+            return state.simulateImpl(network, packetList, null);
+        } finally {
+            state.releaseEngine();
+        }
     }    
 
+    @Override
+    public SimulationStatistics simulate(final List<PacketRouter> network,
+                                         final Workload workload) {
+        final ShortestPathPacketRoutingAlgorithm state = 
+                new ShortestPathPacketRoutingAlgorithm(
+                        routingTreeCacheCapacity);
+        state.inheritSettings(this);
+
+        try {
+            return state.simulateImpl(network, null, workload);
+        } finally {
+            state.releaseEngine();
+        }
+    }
+
+    /**
+     * Runs the simulation on the packets of either {@code packetList} or 
+     * {@code workload}, the other one being {@code null}.
+     */
     private SimulationStatistics simulateImpl(final List<PacketRouter> network,
-                                              final List<Packet> packetList) {
-        initializePackets(packetList);
-        buildDispatchTable(network);
+                                              final List<Packet> packetList,
+                                              final Workload workload) {
+        compileNetwork(network);
 
-        undeliveredPacketSet.addAll(packetList);
+        if (workload != null) {
+            initializeWorkload(workload);
+        } else {
+            initializePackets(packetList);
+        }
 
-        while (!undeliveredPacketSet.isEmpty()) {
-            loadPacketRouterQueueLengths(network);
-            simulateCycle(network);
-            pruneDeliveredPackets();
-            ++cycles;
+        if (routingTreeCacheCapacity > 0) {
+            routingTreeCache = new RoutingTreeCache(compiledNetwork,
+                                                    routingTreeCacheCapacity);
+        } else {
+            buildDispatchTable();
         }
 
+        runSimulation();
         return buildStatistics();
     }
 
-    private void simulateCycle(final List<PacketRouter> network) {
-        final Map<Packet, PacketRouter> map = new HashMap<>();
+    @Override
+    protected boolean supportsParallelDecisions() {
+        // The dispatch table is only read while the decisions are made, yet
+        // the tree cache of the lazy mode is updated on each lookup.
+        return routingTreeCacheCapacity == 0;
+    }
+
+    @Override
+    protected int computeNextPacketRouterIndex(final int packetRouterIndex,
+                                               final Packet packet) {
+        return compiledNetwork.getNeighbor(
+                packetRouterIndex,
+                computeNextSlot(packetRouterIndex, packet));
+    }
+
+    @Override
+    protected int computeNextSlot(final int packetRouterIndex,
+                                  final Packet packet) {
+        final int targetIndex = packetTargetIndices[packet.getId()];
+        final int slot = routingTreeCache != null ?
+                routingTreeCache.getNextSlot(packetRouterIndex, targetIndex) :
+                dispatchTable.getSlot(packetRouterIndex, targetIndex);
 
-        // Find out to which packet routers to send the packets:
-        for (final PacketRouter packetRouter : network) {
-            if (packetRouter.queueLength() > 0) {
-                final Packet packet = packetRouter.dequeuePacket();
-                final PacketRouter targetRouterOfPacket = 
-                        packet.getTargetPacketRouter();
+        if (slot < 0) {
+            throw new IllegalStateException(
+                    "Packet router " +
+                    compiledNetwork.getPacketRouter(targetIndex).getId() +
+                    " is not reachable from packet router " +
+                    compiledNetwork.getPacketRouter(packetRouterIndex).getId() +
+                    ".");
+        }
 
-                final PacketRouter nextPacketRouter = 
-                        dispatchTable.get(packetRouter)
-                                     .get(targetRouterOfPacket);
+        return slot;
+    }
 
-                map.put(packet, nextPacketRouter);
-            }
+    @Override
+    protected void onCycleCompleted() {
+        if (routingTreeCache != null) {
+            routingTreeCache.age();
         }
+    }
 
-        // Send the packets:
-        for (final Map.Entry<Packet, PacketRouter> entry : map.entrySet()) {
-            final Packet packet = entry.getKey();
-            final PacketRouter packetRouter = entry.getValue();
-            packetRouter.enqueuePacket(packet);
+    @Override
+    protected void reportCounters(final Map<String, Long> counters) {
+        if (routingTreeCache != null) {
+            counters.put("Routing tree cache hits", 
+                         routingTreeCache.getHits());
+            counters.put("Routing tree cache misses", 
+                         routingTreeCache.getMisses());
+            counters.put("Routing tree cache rejections", 
+                         routingTreeCache.getRejections());
         }
 
-        // Update the history of each packet.
-        for (final PacketRouter packetRouter : network) {
-            for (final Packet packet : packetRouter.getQueue()) {
-                historyMap.get(packet).add(packetRouter);
-            }
+        if (isProfiling()) {
+            counters.put("BFS router visits",
+                         routingTreeCache != null ?
+                                 routingTreeCache.getRouterVisits() :
+                                 dispatchTableRouterVisits);
         }
     }
 
-    private void buildDispatchTable(final List<PacketRouter> network) {
-        for (final PacketRouter source : network) {
-            // Create the local dispatch table for the packet router 'source':
-            final Map<PacketRouter, PacketRouter> parentMap = 
-                    runBreadthFirstSearchFrom(source);
-
-            final Map<PacketRouter, PacketRouter> localDispatchTable =
-                    new HashMap<>();
-
-            dispatchTable.put(source, localDispatchTable);
-
-            for (final PacketRouter target : network) {
-                if (target.equals(source)) {
-                    // Trivial path (source -> source) does not have to be
-                    // considered.
-                    continue;
-                }
-
-                final List<PacketRouter> shortestPath = 
-                        constructPath(target, parentMap);
-
-                // shortestPath.get(0) is the source;
-                // shortestPath.get(shortestPath.size() - 1) is the target;
-                // If we want to reach 'target' from 'source' via a shortest 
-                // path, we should move from 'source' to 
-                // 'shortestPath.get(1)'.
-                localDispatchTable.put(target, shortestPath.get(1));
-            }
+    void buildDispatchTable() {
+        final SimulationEvents.TableConstructionEvent event = 
+                new SimulationEvents.TableConstructionEvent();
+        event.begin();
+
+        final long startTime = System.nanoTime();
+        final int size = compiledNetwork.size();
+
+        dispatchTable = NextHopMatrix.create(size, 
+                                             compiledNetwork.getMaximumDegree());
+
+        if (forkJoinPool != null) {
+            dispatchTableRouterVisits = 
+                    forkJoinPool.invoke(new TableBuildTask(0, size));
+        } else {
+            dispatchTableRouterVisits = buildDispatchTableColumns(0, size);
+        }
+
+        tableConstructionTime = System.nanoTime() - startTime;
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.algorithm    = getClass().getSimpleName();
+            event.routers      = size;
+            event.routerVisits = dispatchTableRouterVisits;
+            event.commit();
         }
     }
 
-    private Map<PacketRouter, PacketRouter> 
-        runBreadthFirstSearchFrom(final PacketRouter source) {
-        final Deque<PacketRouter> queue = 
-                new ArrayDeque<>(Arrays.asList(source));
-        final Map<PacketRouter, PacketRouter> parentMap = new HashMap<>();
-        parentMap.put(source, null);
-
-        while (!queue.isEmpty()) {
-            final PacketRouter current = queue.removeFirst();
-
-            for (final PacketRouter neighbor : current.getNeighbors()) {
-                if (!parentMap.containsKey(neighbor)) {
-                    parentMap.put(neighbor, current);
-                    queue.addLast(neighbor);
-                }
-            }
+    /**
+     * Builds the columns <tt>[fromTarget, toTarget)</tt> of the dispatch 
+     * table, running a bit-parallel breadth-first search from each batch of 
+     * 64 targets.
+     * 
+     * @return the number of routers visited by the searches.
+     */
+    private long buildDispatchTableColumns(final int fromTarget, 
+                                           final int toTarget) {
+        final MultiSourceBreadthFirstSearch search = 
+                new MultiSourceBreadthFirstSearch(compiledNetwork);
+        long routerVisits = 0;
+
+        for (int target = fromTarget; 
+                target < toTarget; 
+                target += MultiSourceBreadthFirstSearch.BATCH_SIZE) {
+            routerVisits += search.fillNextHops(
+                    dispatchTable,
+                    target,
+                    Math.min(toTarget, 
+                             target + MultiSourceBreadthFirstSearch.BATCH_SIZE));
         }
 
-        return parentMap;
+        return routerVisits;
     }
 
-    private List<PacketRouter> constructPath(
-            final PacketRouter target,
-            final Map<PacketRouter, PacketRouter> parentMap) {
-        final List<PacketRouter> path = new ArrayList<>();
-        PacketRouter current = target;
+    /**
+     * Splits the construction of the dispatch table into ranges of target
+     * routers, summing up the numbers of router visits.
+     */
+    private final class TableBuildTask extends RecursiveTask<Long> {
 
-        while (current != null) {
-            path.add(current);
-            current = parentMap.get(current);
+        private static final long serialVersionUID = 1L;
+
+        private final int fromTarget;
+        private final int toTarget;
+
+        TableBuildTask(final int fromTarget, final int toTarget) {
+            this.fromTarget = fromTarget;
+            this.toTarget   = toTarget;
         }
 
-        Collections.<PacketRouter>reverse(path);
-        return path;
+        @Override
+        protected Long compute() {
+            if (toTarget - fromTarget <= TARGETS_PER_TASK) {
+                return buildDispatchTableColumns(fromTarget, toTarget);
+            }
+
+            // Keep the split points aligned to whole batches.
+            final int middleTarget = 
+                    fromTarget + 
+                    ((toTarget - fromTarget) / 2 
+                     / MultiSourceBreadthFirstSearch.BATCH_SIZE 
+                     * MultiSourceBreadthFirstSearch.BATCH_SIZE);
+
+            final TableBuildTask left = 
+                    new TableBuildTask(fromTarget, middleTarget);
+            final TableBuildTask right = 
+                    new TableBuildTask(middleTarget, toTarget);
+
+            invokeAll(left, right);
+            return left.join() + right.join();
+        }
     }
 }
@@ -0,0 +1,117 @@
+package net.coderodde.simulation.network;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * This class holds the JDK Flight Recorder events of the simulation. The
+ * events are committed only while a recording enables them, so profiling a
+ * run is a matter of starting a recording, for example by
+ * <pre>
+ *   java -XX:StartFlightRecording=filename=run.jfr ...
+ * </pre>
+ * The cycle event is recorded for the cycles lasting at least its threshold
+ * of one millisecond by default, and carries the time spent in each
+ * {@link SimulationPhase} of the cycle.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+final class SimulationEvents {
+
+    private static final String CATEGORY = "Network Simulation";
+
+    private SimulationEvents() {}
+
+    /**
+     * Indicates whether a recording enables the cycle events. Checked once
+     * per run, so that a run without the events does not create them.
+     *
+     * @return {@code true} if the cycle events are recorded.
+     */
+    static boolean isCycleEventEnabled() {
+        return EventType.getEventType(CycleEvent.class).isEnabled();
+    }
+
+    @Name("net.coderodde.simulation.Run")
+    @Label("Simulation Run")
+    @Category(CATEGORY)
+    @Description("The simulation loop of a run, from the first cycle to " +
+                 "the last.")
+    static final class RunEvent extends Event {
+
+        @Label("Algorithm")
+        String algorithm;
+
+        @Label("Routers")
+        int routers;
+
+        @Label("Cycles")
+        int cycles;
+
+        @Label("Packets")
+        long packets;
+
+        @Label("Delivered Packets")
+        long deliveredPackets;
+
+        @Label("Packet Hops")
+        long hops;
+
+        @Label("Routing Decisions")
+        long routingDecisions;
+    }
+
+    @Name("net.coderodde.simulation.Cycle")
+    @Label("Simulation Cycle")
+    @Category(CATEGORY)
+    @Description("A network cycle and the time spent in each of its phases.")
+    @Threshold("1 ms")
+    static final class CycleEvent extends Event {
+
+        @Label("Cycle")
+        @Description("The number of network cycles made so far.")
+        int cycle;
+
+        @Label("Injection")
+        @Timespan(Timespan.NANOSECONDS)
+        long injectionTime;
+
+        @Label("Queue Statistics")
+        @Timespan(Timespan.NANOSECONDS)
+        long queueStatisticsTime;
+
+        @Label("Routing")
+        @Timespan(Timespan.NANOSECONDS)
+        long routingTime;
+
+        @Label("Cycle Completion")
+        @Timespan(Timespan.NANOSECONDS)
+        long cycleCompletionTime;
+    }
+
+    @Name("net.coderodde.simulation.TableConstruction")
+    @Label("Routing Table Construction")
+    @Category(CATEGORY)
+    @Description("The construction of the routing tables before the first " +
+                 "cycle.")
+    static final class TableConstructionEvent extends Event {
+
+        @Label("Algorithm")
+        String algorithm;
+
+        @Label("Routers")
+        int routers;
+
+        @Label("Router Visits")
+        @Description("The number of routers visited by the breadth-first " +
+                     "searches, if any.")
+        long routerVisits;
+    }
+}
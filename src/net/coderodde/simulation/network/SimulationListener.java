@@ -0,0 +1,23 @@
+package net.coderodde.simulation.network;
+
+/**
+ * This interface receives the progress of a simulation run while it runs. The
+ * listener set by
+ * {@link AbstractPacketRoutingAlgorithm#setSimulationListener(SimulationListener, int)}
+ * is passed a sample once every sampling interval of network cycles, and a
+ * final sample covering the remaining cycles when the run ends. The listener
+ * is called by the simulating thread, so it should return quickly.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+@FunctionalInterface
+public interface SimulationListener {
+
+    /**
+     * Receives the aggregates of the cycles since the previous sample.
+     *
+     * @param sample the sample.
+     */
+    void onSample(final SimulationSample sample);
+}
@@ -0,0 +1,213 @@
+package net.coderodde.simulation.network;
+
+import java.util.Arrays;
+
+/**
+ * This class times the phases of the cycles of a run, and passes the samples
+ * of the run to a {@link SimulationListener}, the cumulative phase times to
+ * the statistics of a profiled run and the cycles to the Flight Recorder. It
+ * exists only if any of these is requested, so a plain run neither reads the
+ * clock nor aggregates anything. The phase times are taken by marking the end
+ * of each phase of a cycle; the other aggregates of a sample are derived from
+ * the counters of the algorithm once per sample.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+final class SimulationMonitor {
+
+    private static final int NUMBER_OF_PHASES =
+            SimulationPhase.values().length;
+
+    private final AbstractPacketRoutingAlgorithm algorithm;
+
+    /**
+     * The listener and its sampling interval, or {@code null} and zero.
+     */
+    private final SimulationListener listener;
+    private final int samplingInterval;
+
+    /**
+     * Indicates whether the cycles are recorded as Flight Recorder events.
+     */
+    private final boolean recordCycleEvents;
+
+    private final long startTime;
+
+    /**
+     * The time at which the current phase started.
+     */
+    private long phaseStartTime;
+
+    /**
+     * The phase times of the current cycle, since the previous sample and
+     * since the start of the run.
+     */
+    private final long[] cyclePhaseTimes  = new long[NUMBER_OF_PHASES];
+    private final long[] samplePhaseTimes = new long[NUMBER_OF_PHASES];
+    private final long[] totalPhaseTimes  = new long[NUMBER_OF_PHASES];
+
+    /**
+     * The Flight Recorder event of the current cycle, or {@code null}.
+     */
+    private SimulationEvents.CycleEvent cycleEvent;
+
+    /**
+     * The values of the counters of the algorithm at the previous sample.
+     */
+    private int sampledCycle;
+    private long sampledHops;
+    private long sampledDeliveredPackets;
+
+    SimulationMonitor(final AbstractPacketRoutingAlgorithm algorithm,
+                      final SimulationListener listener,
+                      final int samplingInterval,
+                      final boolean recordCycleEvents) {
+        this.algorithm               = algorithm;
+        this.listener                = listener;
+        this.samplingInterval        = samplingInterval;
+        this.recordCycleEvents       = recordCycleEvents;
+        this.startTime               = System.nanoTime();
+        this.phaseStartTime          = startTime;
+        this.sampledCycle            = algorithm.cycles;
+        this.sampledHops             = algorithm.numberOfHops;
+        this.sampledDeliveredPackets = algorithm.numberOfDeliveredPackets;
+
+        beginCycleEvent();
+    }
+
+    /**
+     * Marks the start of a cycle, so that the time between two cycles is not
+     * accounted to any phase.
+     */
+    void startCycle() {
+        phaseStartTime = System.nanoTime();
+
+        if (cycleEvent != null) {
+            cycleEvent.begin();
+        }
+    }
+
+    /**
+     * Accounts the time since the end of the previous phase to
+     * {@code phase}.
+     *
+     * @param phase the phase just ended.
+     */
+    void endPhase(final SimulationPhase phase) {
+        final long now = System.nanoTime();
+        cyclePhaseTimes[phase.ordinal()] += now - phaseStartTime;
+        phaseStartTime = now;
+    }
+
+    /**
+     * Ends the current cycle and passes a sample to the listener if the
+     * sampling interval has elapsed. Called once the cycle counter of the
+     * algorithm has been advanced.
+     */
+    void endCycle() {
+        completeCycle(true);
+
+        if (listener != null
+                && algorithm.cycles - sampledCycle >= samplingInterval) {
+            sample(false);
+        }
+    }
+
+    /**
+     * Ends the run, passing the final sample to the listener. The time of a
+     * cycle cut short by the end of the run is accounted, but the cycle is 
+     * not recorded as an event.
+     */
+    void finish() {
+        completeCycle(false);
+
+        if (listener != null) {
+            sample(true);
+        }
+    }
+
+    /**
+     * Returns the time spent in each phase since the start of the run,
+     * indexed by the ordinal of the phase.
+     *
+     * @return the cumulative phase times in nanoseconds.
+     */
+    long[] getTotalPhaseTimes() {
+        return totalPhaseTimes.clone();
+    }
+
+    private void completeCycle(final boolean recordEvent) {
+        for (int i = 0; i < NUMBER_OF_PHASES; ++i) {
+            samplePhaseTimes[i] += cyclePhaseTimes[i];
+            totalPhaseTimes[i]  += cyclePhaseTimes[i];
+        }
+
+        if (cycleEvent != null && recordEvent) {
+            cycleEvent.end();
+
+            if (cycleEvent.shouldCommit()) {
+                cycleEvent.cycle = algorithm.cycles;
+                cycleEvent.injectionTime =
+                        getCyclePhaseTime(SimulationPhase.INJECTION);
+                cycleEvent.queueStatisticsTime =
+                        getCyclePhaseTime(SimulationPhase.QUEUE_STATISTICS);
+                cycleEvent.routingTime =
+                        getCyclePhaseTime(SimulationPhase.ROUTING);
+                cycleEvent.cycleCompletionTime =
+                        getCyclePhaseTime(SimulationPhase.CYCLE_COMPLETION);
+                cycleEvent.commit();
+            }
+
+            beginCycleEvent();
+        }
+
+        Arrays.fill(cyclePhaseTimes, 0L);
+    }
+
+    private long getCyclePhaseTime(final SimulationPhase phase) {
+        return cyclePhaseTimes[phase.ordinal()];
+    }
+
+    private void beginCycleEvent() {
+        if (recordCycleEvents) {
+            cycleEvent = new SimulationEvents.CycleEvent();
+            cycleEvent.begin();
+        }
+    }
+
+    private void sample(final boolean last) {
+        listener.onSample(
+                new SimulationSample(
+                        algorithm.cycles,
+                        algorithm.cycles - sampledCycle,
+                        algorithm.numberOfHops - sampledHops,
+                        algorithm.numberOfDeliveredPackets
+                                - sampledDeliveredPackets,
+                        algorithm.numberOfDeliveredPackets,
+                        algorithm.numberOfPackets,
+                        getMaximumQueueLength(),
+                        samplePhaseTimes,
+                        System.nanoTime() - startTime,
+                        last));
+
+        sampledCycle            = algorithm.cycles;
+        sampledHops             = algorithm.numberOfHops;
+        sampledDeliveredPackets = algorithm.numberOfDeliveredPackets;
+        Arrays.fill(samplePhaseTimes, 0L);
+        phaseStartTime = System.nanoTime();
+    }
+
+    private int getMaximumQueueLength() {
+        int maximumQueueLength = 0;
+
+        for (int index = algorithm.activePacketRouters.nextSetBit(0);
+                index >= 0;
+                index = algorithm.activePacketRouters.nextSetBit(index + 1)) {
+            maximumQueueLength = Math.max(maximumQueueLength,
+                                          algorithm.getQueueLength(index));
+        }
+
+        return maximumQueueLength;
+    }
+}
@@ -0,0 +1,49 @@
+package net.coderodde.simulation.network;
+
+/**
+ * This enumeration lists the phases of a network cycle whose running times
+ * are reported to a {@link SimulationListener}, to the statistics of a 
+ * profiled run and to the Flight Recorder.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+public enum SimulationPhase {
+
+    /**
+     * The injection of the packets of an open-loop run that are due.
+     */
+    INJECTION("Injection"),
+
+    /**
+     * The recording of the queue lengths of the routers.
+     */
+    QUEUE_STATISTICS("Queue statistics"),
+
+    /**
+     * The routing decisions and the transfers of the packets. The
+     * discrete-event engine accounts all of its work to this phase.
+     */
+    ROUTING("Routing"),
+
+    /**
+     * The work done by the algorithm once a cycle is over, such as the
+     * relearning of the learning algorithm.
+     */
+    CYCLE_COMPLETION("Cycle completion");
+
+    SimulationPhase(final String label) {
+        this.label = label;
+    }
+
+    /**
+     * Returns the name of this phase as shown in the statistics.
+     *
+     * @return the label of this phase.
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    private final String label;
+}
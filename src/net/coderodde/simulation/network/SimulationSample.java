@@ -0,0 +1,166 @@
+package net.coderodde.simulation.network;
+
+/**
+ * This class holds the aggregates of the network cycles covered by a sample
+ * passed to a {@link SimulationListener}. The counts of moved and delivered
+ * packets and the phase times cover the cycles of the sample only, while the
+ * other values describe the network at the end of its last cycle.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+public final class SimulationSample {
+
+    private final int cycle;
+    private final int sampledCycles;
+    private final long movedPackets;
+    private final long deliveredPackets;
+    private final long totalDeliveredPackets;
+    private final long numberOfPackets;
+    private final int maximumQueueLength;
+    private final long[] phaseTimes;
+    private final long elapsedTime;
+    private final boolean last;
+
+    SimulationSample(final int cycle,
+                     final int sampledCycles,
+                     final long movedPackets,
+                     final long deliveredPackets,
+                     final long totalDeliveredPackets,
+                     final long numberOfPackets,
+                     final int maximumQueueLength,
+                     final long[] phaseTimes,
+                     final long elapsedTime,
+                     final boolean last) {
+        this.cycle                 = cycle;
+        this.sampledCycles         = sampledCycles;
+        this.movedPackets          = movedPackets;
+        this.deliveredPackets      = deliveredPackets;
+        this.totalDeliveredPackets = totalDeliveredPackets;
+        this.numberOfPackets       = numberOfPackets;
+        this.maximumQueueLength    = maximumQueueLength;
+        this.phaseTimes            = phaseTimes.clone();
+        this.elapsedTime           = elapsedTime;
+        this.last                  = last;
+    }
+
+    /**
+     * Returns the number of network cycles made so far, counted as in
+     * {@link SimulationStatistics}.
+     *
+     * @return the current cycle.
+     */
+    public int getCycle() {
+        return cycle;
+    }
+
+    /**
+     * Returns the number of cycles covered by this sample.
+     *
+     * @return the number of sampled cycles.
+     */
+    public int getSampledCycles() {
+        return sampledCycles;
+    }
+
+    /**
+     * Returns the number of hops made by the packets during the sampled
+     * cycles.
+     *
+     * @return the number of moved packets.
+     */
+    public long getMovedPackets() {
+        return movedPackets;
+    }
+
+    /**
+     * Returns the number of packets delivered during the sampled cycles.
+     *
+     * @return the number of delivered packets.
+     */
+    public long getDeliveredPackets() {
+        return deliveredPackets;
+    }
+
+    public long getTotalDeliveredPackets() {
+        return totalDeliveredPackets;
+    }
+
+    /**
+     * Returns the number of packets of the run, or of an open-loop run, the
+     * number of packets injected so far.
+     *
+     * @return the number of packets.
+     */
+    public long getNumberOfPackets() {
+        return numberOfPackets;
+    }
+
+    /**
+     * Returns the number of packets that are in the network.
+     *
+     * @return the number of packets in flight.
+     */
+    public long getPacketsInFlight() {
+        return numberOfPackets - totalDeliveredPackets;
+    }
+
+    /**
+     * Returns the length of the longest queue, including the output queues
+     * of the links of a bandwidth model.
+     *
+     * @return the maximum queue length.
+     */
+    public int getMaximumQueueLength() {
+        return maximumQueueLength;
+    }
+
+    /**
+     * Returns the time spent in {@code phase} during the sampled cycles.
+     *
+     * @param phase the phase.
+     * @return the time in nanoseconds.
+     */
+    public long getPhaseTime(final SimulationPhase phase) {
+        return phaseTimes[phase.ordinal()];
+    }
+
+    /**
+     * Returns the time elapsed since the simulation loop was entered.
+     *
+     * @return the time in nanoseconds.
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * Indicates whether this is the final sample of the run.
+     *
+     * @return {@code true} if the run is over.
+     */
+    public boolean isLast() {
+        return last;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append("[cycle = ").append(cycle)
+          .append(", moved = ").append(movedPackets)
+          .append(", delivered = ").append(totalDeliveredPackets)
+          .append("/").append(numberOfPackets)
+          .append(", in flight = ").append(getPacketsInFlight())
+          .append(", max queue = ").append(maximumQueueLength);
+
+        for (final SimulationPhase phase : SimulationPhase.values()) {
+            sb.append(", ")
+              .append(phase)
+              .append(String.format(" = %.3f ms",
+                                    getPhaseTime(phase) / 1e6));
+        }
+
+        return sb.append("]").toString();
+    }
+}
@@ -1,5 +1,9 @@
 package net.coderodde.simulation.network;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * This class holds statistical results of a simulation. The data includes
  * <ul>
@@ -11,7 +15,10 @@ package net.coderodde.simulation.network;
  *   <li>the maximum transmission duration,</li>
  *   <li>the average transmission duration,</li>
  *   <li>the standard deviation of the transmission duration,</li>
- *   <li>the number of network cycles needed to deliver all packets.</li>
+ *   <li>the histograms of the queue lengths, the transmission durations and
+ *       the hop counts, from which the percentiles are read,</li>
+ *   <li>the number of network cycles needed to deliver all packets,</li>
+ *   <li>algorithm-specific counters, such as routing cache hits.</li>
  * </ul>
  * 
  * @author Rodion "rodde" Efremov
@@ -29,8 +36,16 @@ public class SimulationStatistics {
     private final double averageTransmissionDuration;
     private final double transmissionDurationStandardDeviation;
 
+    private final HistogramSnapshot queueLengthHistogram;
+    private final HistogramSnapshot transmissionDurationHistogram;
+    private final HistogramSnapshot hopCountHistogram;
+
     private final int networkCycles;
 
+    private final Map<String, Long> counters;
+
+    private final SteadyStateStatistics steadyStateStatistics;
+
     SimulationStatistics(final int minimumQueueLength,
                          final int maximumQueueLength,
                          final double averageQueueLength,
@@ -39,7 +54,12 @@ public class SimulationStatistics {
                          final int maximumTransmissionDuration,
                          final double averageTransmissionDuration,
                          final double transmissionDurationStandardDeviation,
-                         final int networkCycles) {
+                         final HistogramSnapshot queueLengthHistogram,
+                         final HistogramSnapshot transmissionDurationHistogram,
+                         final HistogramSnapshot hopCountHistogram,
+                         final int networkCycles,
+                         final Map<String, Long> counters,
+                         final SteadyStateStatistics steadyStateStatistics) {
         this.minimumQueueLength = minimumQueueLength;
         this.maximumQueueLength = maximumQueueLength;
         this.averageQueueLength = averageQueueLength;
@@ -49,7 +69,141 @@ public class SimulationStatistics {
         this.averageTransmissionDuration = averageTransmissionDuration;
         this.transmissionDurationStandardDeviation =
                 transmissionDurationStandardDeviation;
+        this.queueLengthHistogram = queueLengthHistogram;
+        this.transmissionDurationHistogram = transmissionDurationHistogram;
+        this.hopCountHistogram = hopCountHistogram;
         this.networkCycles = networkCycles;
+        this.counters = Collections.<String, Long>unmodifiableMap(
+                new LinkedHashMap<>(counters));
+        this.steadyStateStatistics = steadyStateStatistics;
+    }
+
+    SimulationStatistics(final RunningStatistics queueLengthStatistics,
+                         final RunningStatistics 
+                                 transmissionDurationStatistics,
+                         final HistogramSnapshot queueLengthHistogram,
+                         final HistogramSnapshot transmissionDurationHistogram,
+                         final HistogramSnapshot hopCountHistogram,
+                         final int networkCycles,
+                         final Map<String, Long> counters,
+                         final SteadyStateStatistics steadyStateStatistics) {
+        this((int) queueLengthStatistics.getMinimum(),
+             (int) queueLengthStatistics.getMaximum(),
+             queueLengthStatistics.getMean(),
+             queueLengthStatistics.getStandardDeviation(),
+             (int) transmissionDurationStatistics.getMinimum(),
+             (int) transmissionDurationStatistics.getMaximum(),
+             transmissionDurationStatistics.getMean(),
+             transmissionDurationStatistics.getStandardDeviation(),
+             queueLengthHistogram,
+             transmissionDurationHistogram,
+             hopCountHistogram,
+             networkCycles,
+             counters,
+             steadyStateStatistics);
+    }
+
+    public int getMinimumQueueLength() {
+        return minimumQueueLength;
+    }
+
+    public int getMaximumQueueLength() {
+        return maximumQueueLength;
+    }
+
+    public double getAverageQueueLength() {
+        return averageQueueLength;
+    }
+
+    public double getQueueLengthStandardDeviation() {
+        return queueLengthStandardDeviation;
+    }
+
+    public int getMinimumTransmissionDuration() {
+        return minimumTransmissionDuration;
+    }
+
+    public int getMaximumTransmissionDuration() {
+        return maximumTransmissionDuration;
+    }
+
+    public double getAverageTransmissionDuration() {
+        return averageTransmissionDuration;
+    }
+
+    public double getTransmissionDurationStandardDeviation() {
+        return transmissionDurationStandardDeviation;
+    }
+
+    /**
+     * Returns the number of network cycles made, the initialization 
+     * included.
+     * 
+     * @return the number of network cycles.
+     */
+    public int getNetworkCycles() {
+        return networkCycles;
+    }
+
+    /**
+     * Returns the histogram of the queue lengths, sampled at every router in
+     * every cycle.
+     * 
+     * @return the queue length histogram.
+     */
+    public HistogramSnapshot getQueueLengthHistogram() {
+        return queueLengthHistogram;
+    }
+
+    /**
+     * Returns the histogram of the transmission durations of the delivered 
+     * packets.
+     * 
+     * @return the transmission duration histogram.
+     */
+    public HistogramSnapshot getTransmissionDurationHistogram() {
+        return transmissionDurationHistogram;
+    }
+
+    /**
+     * Returns the histogram of the hop counts of the delivered packets. The
+     * histogram is empty if the packet history was off.
+     * 
+     * @return the hop count histogram.
+     */
+    public HistogramSnapshot getHopCountHistogram() {
+        return hopCountHistogram;
+    }
+
+    /**
+     * Returns the transmission duration below or at which {@code percentile}
+     * percent of the delivered packets were delivered.
+     * 
+     * @param percentile the percentile within <tt>[0, 100]</tt>.
+     * @return the transmission duration at the percentile.
+     */
+    public long getTransmissionDurationPercentile(final double percentile) {
+        return transmissionDurationHistogram.getValueAtPercentile(percentile);
+    }
+
+    /**
+     * Returns the algorithm-specific counters in the order they were 
+     * reported.
+     * 
+     * @return the unmodifiable map from counter names to values.
+     */
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    /**
+     * Returns the steady-state results of an open-loop run, or {@code null}
+     * if all packets were injected at once.
+     * 
+     * @return the steady-state statistics or {@code null}.
+     */
+    public SteadyStateStatistics getSteadyStateStatistics() {
+        return steadyStateStatistics;
     }
 
     @Override
@@ -92,9 +246,31 @@ public class SimulationStatistics {
           .append(transmissionDurationStandardDeviation)
           .append("\n");
 
+        sb.append("Transmission duration p99:     ")
+          .append(getTransmissionDurationPercentile(99.0))
+          .append("\n");
+
+        sb.append("Transmission duration p99.9:   ")
+          .append(getTransmissionDurationPercentile(99.9))
+          .append("\n");
+
         sb.append("Total network cycles:          ")
           .append(networkCycles);
 
+        // Algorithm-specific counters:
+
+        for (final Map.Entry<String, Long> entry : counters.entrySet()) {
+            sb.append("\n")
+              .append(String.format("%-31s", entry.getKey() + ":"))
+              .append(entry.getValue());
+        }
+
+        // Steady-state results of open-loop runs:
+
+        if (steadyStateStatistics != null) {
+            sb.append("\n").append(steadyStateStatistics);
+        }
+
         return sb.toString();
     }
 }
@@ -0,0 +1,116 @@
+package net.coderodde.simulation.network;
+
+/**
+ * This class holds the steady-state results of an open-loop simulation,
+ * measured over the cycles following the warm-up period up to the last 
+ * injection. The queue length and transmission duration statistics of the 
+ * enclosing {@link SimulationStatistics} cover the same cycles and the 
+ * packets injected during them.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+public final class SteadyStateStatistics {
+
+    private final int warmUpCycles;
+    private final int measuredCycles;
+    private final long injectedPackets;
+    private final long deliveredPackets;
+    private final boolean saturated;
+
+    SteadyStateStatistics(final int warmUpCycles,
+                          final int measuredCycles,
+                          final long injectedPackets,
+                          final long deliveredPackets,
+                          final boolean saturated) {
+        this.warmUpCycles     = warmUpCycles;
+        this.measuredCycles   = measuredCycles;
+        this.injectedPackets  = injectedPackets;
+        this.deliveredPackets = deliveredPackets;
+        this.saturated        = saturated;
+    }
+
+    public int getWarmUpCycles() {
+        return warmUpCycles;
+    }
+
+    public int getMeasuredCycles() {
+        return measuredCycles;
+    }
+
+    /**
+     * Returns the number of packets injected during the measured cycles.
+     *
+     * @return the number of injected packets.
+     */
+    public long getInjectedPackets() {
+        return injectedPackets;
+    }
+
+    /**
+     * Returns the number of packets delivered during the measured cycles.
+     *
+     * @return the number of delivered packets.
+     */
+    public long getDeliveredPackets() {
+        return deliveredPackets;
+    }
+
+    /**
+     * Returns the mean number of packets injected per measured cycle.
+     *
+     * @return the offered load.
+     */
+    public double getOfferedLoad() {
+        return measuredCycles == 0 ?
+               Double.NaN :
+               (double) injectedPackets / measuredCycles;
+    }
+
+    /**
+     * Returns the mean number of packets delivered per measured cycle.
+     *
+     * @return the throughput.
+     */
+    public double getThroughput() {
+        return measuredCycles == 0 ?
+               Double.NaN :
+               (double) deliveredPackets / measuredCycles;
+    }
+
+    /**
+     * Indicates whether the run was stopped early since the packets piled up
+     * in the network faster than they could be delivered.
+     *
+     * @return {@code true} if the network saturated.
+     */
+    public boolean isSaturated() {
+        return saturated;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append("Warm-up cycles:                ")
+          .append(warmUpCycles)
+          .append("\n");
+
+        sb.append("Measured cycles:               ")
+          .append(measuredCycles)
+          .append("\n");
+
+        sb.append("Offered load:                  ")
+          .append(getOfferedLoad())
+          .append("\n");
+
+        sb.append("Throughput:                    ")
+          .append(getThroughput())
+          .append("\n");
+
+        sb.append("Saturated:                     ")
+          .append(saturated);
+
+        return sb.toString();
+    }
+}
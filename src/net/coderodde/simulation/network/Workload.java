@@ -0,0 +1,455 @@
+package net.coderodde.simulation.network;
+
+import java.util.PrimitiveIterator;
+import java.util.SplittableRandom;
+
+/**
+ * This class describes the traffic of a simulation run without materializing
+ * its packets: each run pulls the packets from an {@link InjectionStream} as
+ * they are due, so only the packets in the network occupy memory. The built-in
+ * workloads combine an {@link InjectionProcess}, which decides when the
+ * packets are injected, with one of the following traffic matrices, which
+ * decide the terminals of each packet:
+ * <ul>
+ *   <li>{@link #uniform(long, InjectionProcess)}: both terminals are chosen
+ *       uniformly at random,</li>
+ *   <li>{@link #hotspot(long, InjectionProcess, int, double)}: a fraction of
+ *       the packets is sent to a few randomly chosen hotspot routers,</li>
+ *   <li>{@link #permutation(long, InjectionProcess)}: each router sends all
+ *       its packets to the same router, determined by a random permutation
+ *       without fixed points,</li>
+ *   <li>{@link #gravity(long, InjectionProcess, double[])}: the traffic
+ *       between two routers is proportional to the product of their
+ *       masses.</li>
+ * </ul>
+ * Custom workloads, such as ones replaying a trace file, may be defined by
+ * extending this class.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+public abstract class Workload {
+
+    /**
+     * Starts a new run of this workload over {@code network}.
+     *
+     * @param network the network being simulated.
+     * @param random  the random number generator of the run.
+     * @return the stream of the injections of the run.
+     */
+    public abstract InjectionStream open(final CompiledNetwork network,
+                                         final SplittableRandom random);
+
+    /**
+     * Returns a workload of {@code numberOfPackets} packets with uniformly
+     * chosen distinct terminals.
+     *
+     * @param numberOfPackets  the number of packets.
+     * @param injectionProcess the injection process.
+     * @return the workload.
+     */
+    public static Workload uniform(final long numberOfPackets,
+                                   final InjectionProcess injectionProcess) {
+        return new GeneratedWorkload(numberOfPackets, injectionProcess) {
+
+            @Override
+            TrafficMatrix createTrafficMatrix(final CompiledNetwork network,
+                                              final SplittableRandom random) {
+                return new UniformTrafficMatrix(network.size());
+            }
+        };
+    }
+
+    /**
+     * Returns a workload of {@code numberOfPackets} packets with uniformly
+     * chosen sources, whose targets are, with probability
+     * {@code hotspotFraction}, one of {@code numberOfHotspots} routers chosen
+     * at random for each run, and uniformly chosen otherwise.
+     *
+     * @param numberOfPackets  the number of packets.
+     * @param injectionProcess the injection process.
+     * @param numberOfHotspots the number of hotspot routers.
+     * @param hotspotFraction  the fraction of the packets sent to hotspots.
+     * @return the workload.
+     */
+    public static Workload hotspot(final long numberOfPackets,
+                                   final InjectionProcess injectionProcess,
+                                   final int numberOfHotspots,
+                                   final double hotspotFraction) {
+        if (numberOfHotspots < 1) {
+            throw new IllegalArgumentException(
+                    "The number of hotspots must be positive: " +
+                    numberOfHotspots);
+        }
+
+        if (!(hotspotFraction >= 0.0 && hotspotFraction <= 1.0)) {
+            throw new IllegalArgumentException(
+                    "The hotspot fraction must be within [0, 1]: " +
+                    hotspotFraction);
+        }
+
+        return new GeneratedWorkload(numberOfPackets, injectionProcess) {
+
+            @Override
+            TrafficMatrix createTrafficMatrix(final CompiledNetwork network,
+                                              final SplittableRandom random) {
+                return new HotspotTrafficMatrix(network.size(),
+                                                numberOfHotspots,
+                                                hotspotFraction,
+                                                random);
+            }
+        };
+    }
+
+    /**
+     * Returns a workload of {@code numberOfPackets} packets with uniformly
+     * chosen sources, each router sending to the router assigned to it by a
+     * random permutation without fixed points, drawn for each run.
+     *
+     * @param numberOfPackets  the number of packets.
+     * @param injectionProcess the injection process.
+     * @return the workload.
+     */
+    public static Workload permutation(final long numberOfPackets,
+                                       final InjectionProcess
+                                               injectionProcess) {
+        return new GeneratedWorkload(numberOfPackets, injectionProcess) {
+
+            @Override
+            TrafficMatrix createTrafficMatrix(final CompiledNetwork network,
+                                              final SplittableRandom random) {
+                return new PermutationTrafficMatrix(network.size(), random);
+            }
+        };
+    }
+
+    /**
+     * Returns a workload of {@code numberOfPackets} packets following the
+     * gravity model: the source and the target of each packet are drawn
+     * independently with probabilities proportional to the masses of the
+     * routers, redrawing the target until it differs from the source. The
+     * masses are indexed by router index; if {@code masses} is {@code null},
+     * the degrees of the routers are used.
+     *
+     * @param numberOfPackets  the number of packets.
+     * @param injectionProcess the injection process.
+     * @param masses           the masses of the routers, or {@code null}.
+     * @return the workload.
+     */
+    public static Workload gravity(final long numberOfPackets,
+                                   final InjectionProcess injectionProcess,
+                                   final double[] masses) {
+        final double[] massesCopy = masses == null ? null : masses.clone();
+
+        return new GeneratedWorkload(numberOfPackets, injectionProcess) {
+
+            @Override
+            TrafficMatrix createTrafficMatrix(final CompiledNetwork network,
+                                              final SplittableRandom random) {
+                final double[] weights = new double[network.size()];
+
+                if (massesCopy != null && massesCopy.length != weights.length) {
+                    throw new IllegalArgumentException(
+                            "Expected " + weights.length + " masses, got " +
+                            massesCopy.length + ".");
+                }
+
+                for (int i = 0; i < weights.length; ++i) {
+                    weights[i] = massesCopy == null ?
+                                 network.getDegree(i) :
+                                 massesCopy[i];
+                }
+
+                return new GravityTrafficMatrix(weights);
+            }
+        };
+    }
+
+    /**
+     * Chooses the terminals of the packets of a single run.
+     */
+    private interface TrafficMatrix {
+
+        int nextSourceIndex(final SplittableRandom random);
+
+        int nextTargetIndex(final int sourceIndex,
+                            final SplittableRandom random);
+    }
+
+    /**
+     * Implements the built-in workloads, which inject a fixed number of
+     * packets according to an injection process.
+     */
+    private abstract static class GeneratedWorkload extends Workload {
+
+        private final long numberOfPackets;
+        private final InjectionProcess injectionProcess;
+
+        GeneratedWorkload(final long numberOfPackets,
+                          final InjectionProcess injectionProcess) {
+            if (numberOfPackets < 0) {
+                throw new IllegalArgumentException(
+                        "Negative number of packets: " + numberOfPackets);
+            }
+
+            if (injectionProcess == null) {
+                throw new NullPointerException(
+                        "The injection process is null.");
+            }
+
+            this.numberOfPackets  = numberOfPackets;
+            this.injectionProcess = injectionProcess;
+        }
+
+        abstract TrafficMatrix createTrafficMatrix(
+                final CompiledNetwork network,
+                final SplittableRandom random);
+
+        @Override
+        public InjectionStream open(final CompiledNetwork network,
+                                    final SplittableRandom random) {
+            if (network.size() < 2) {
+                throw new IllegalArgumentException(
+                        "The network has less than two routers.");
+            }
+
+            final PrimitiveIterator.OfInt schedule =
+                    injectionProcess.createSchedule(random.split());
+            final TrafficMatrix trafficMatrix =
+                    createTrafficMatrix(network, random);
+
+            return new InjectionStream() {
+
+                private long remainingPackets = numberOfPackets;
+                private int sourceIndex;
+                private int targetIndex;
+                private int injectionCycle;
+
+                @Override
+                public boolean advance() {
+                    if (remainingPackets == 0 || !schedule.hasNext()) {
+                        return false;
+                    }
+
+                    --remainingPackets;
+                    injectionCycle = schedule.nextInt();
+                    sourceIndex = trafficMatrix.nextSourceIndex(random);
+                    targetIndex = trafficMatrix.nextTargetIndex(sourceIndex,
+                                                                random);
+                    return true;
+                }
+
+                @Override
+                public int getSourceIndex() {
+                    return sourceIndex;
+                }
+
+                @Override
+                public int getTargetIndex() {
+                    return targetIndex;
+                }
+
+                @Override
+                public int getInjectionCycle() {
+                    return injectionCycle;
+                }
+            };
+        }
+    }
+
+    private static class UniformTrafficMatrix implements TrafficMatrix {
+
+        protected final int size;
+
+        UniformTrafficMatrix(final int size) {
+            this.size = size;
+        }
+
+        @Override
+        public int nextSourceIndex(final SplittableRandom random) {
+            return random.nextInt(size);
+        }
+
+        @Override
+        public int nextTargetIndex(final int sourceIndex,
+                                   final SplittableRandom random) {
+            final int targetIndex = random.nextInt(size - 1);
+            return targetIndex < sourceIndex ? targetIndex : targetIndex + 1;
+        }
+    }
+
+    private static final class HotspotTrafficMatrix
+    extends UniformTrafficMatrix {
+
+        private final int[] hotspots;
+        private final double hotspotFraction;
+
+        HotspotTrafficMatrix(final int size,
+                             final int numberOfHotspots,
+                             final double hotspotFraction,
+                             final SplittableRandom random) {
+            super(size);
+
+            // Draw the hotspots by a partial Fisher-Yates shuffle.
+            final int[] indices = new int[size];
+
+            for (int i = 0; i < size; ++i) {
+                indices[i] = i;
+            }
+
+            this.hotspots = new int[Math.min(numberOfHotspots, size)];
+
+            for (int i = 0; i < hotspots.length; ++i) {
+                final int j = i + random.nextInt(size - i);
+                final int tmp = indices[i];
+                indices[i] = indices[j];
+                indices[j] = tmp;
+                hotspots[i] = indices[i];
+            }
+
+            this.hotspotFraction = hotspotFraction;
+        }
+
+        @Override
+        public int nextTargetIndex(final int sourceIndex,
+                                   final SplittableRandom random) {
+            if (random.nextDouble() < hotspotFraction) {
+                final int hotspot = hotspots[random.nextInt(hotspots.length)];
+
+                if (hotspot != sourceIndex) {
+                    return hotspot;
+                }
+            }
+
+            return super.nextTargetIndex(sourceIndex, random);
+        }
+    }
+
+    private static final class PermutationTrafficMatrix
+    extends UniformTrafficMatrix {
+
+        private final int[] permutation;
+
+        PermutationTrafficMatrix(final int size,
+                                 final SplittableRandom random) {
+            super(size);
+            this.permutation = new int[size];
+
+            for (int i = 0; i < size; ++i) {
+                permutation[i] = i;
+            }
+
+            for (int i = size - 1; i > 0; --i) {
+                final int j = random.nextInt(i + 1);
+                final int tmp = permutation[i];
+                permutation[i] = permutation[j];
+                permutation[j] = tmp;
+            }
+
+            // Swapping the images of a fixed point and its successor removes
+            // the fixed point without creating a new one.
+            for (int i = 0; i < size; ++i) {
+                if (permutation[i] == i) {
+                    final int j = (i + 1) % size;
+                    permutation[i] = permutation[j];
+                    permutation[j] = i;
+                }
+            }
+        }
+
+        @Override
+        public int nextTargetIndex(final int sourceIndex,
+                                   final SplittableRandom random) {
+            return permutation[sourceIndex];
+        }
+    }
+
+    /**
+     * Samples the routers by mass in constant time via Walker's alias method.
+     */
+    private static final class GravityTrafficMatrix implements TrafficMatrix {
+
+        private final double[] probabilities;
+        private final int[] aliases;
+
+        GravityTrafficMatrix(final double[] masses) {
+            final int size = masses.length;
+            double totalMass = 0.0;
+            int positiveMasses = 0;
+
+            for (final double mass : masses) {
+                if (!(mass >= 0.0) || Double.isInfinite(mass)) {
+                    throw new IllegalArgumentException(
+                            "Bad router mass: " + mass);
+                }
+
+                totalMass += mass;
+                positiveMasses += mass > 0.0 ? 1 : 0;
+            }
+
+            if (positiveMasses < 2) {
+                throw new IllegalArgumentException(
+                        "At least two routers must have a positive mass.");
+            }
+
+            this.probabilities = new double[size];
+            this.aliases = new int[size];
+
+            final int[] small = new int[size];
+            final int[] large = new int[size];
+            int smallSize = 0;
+            int largeSize = 0;
+
+            for (int i = 0; i < size; ++i) {
+                probabilities[i] = masses[i] * size / totalMass;
+
+                if (probabilities[i] < 1.0) {
+                    small[smallSize++] = i;
+                } else {
+                    large[largeSize++] = i;
+                }
+            }
+
+            while (smallSize > 0 && largeSize > 0) {
+                final int less = small[--smallSize];
+                final int more = large[--largeSize];
+
+                aliases[less] = more;
+                probabilities[more] -= 1.0 - probabilities[less];
+
+                if (probabilities[more] < 1.0) {
+                    small[smallSize++] = more;
+                } else {
+                    large[largeSize++] = more;
+                }
+            }
+
+            // What is left is full up to rounding errors.
+            while (largeSize > 0) {
+                probabilities[large[--largeSize]] = 1.0;
+            }
+
+            while (smallSize > 0) {
+                probabilities[small[--smallSize]] = 1.0;
+            }
+        }
+
+        @Override
+        public int nextSourceIndex(final SplittableRandom random) {
+            final int i = random.nextInt(probabilities.length);
+            return random.nextDouble() < probabilities[i] ? i : aliases[i];
+        }
+
+        @Override
+        public int nextTargetIndex(final int sourceIndex,
+                                   final SplittableRandom random) {
+            int targetIndex;
+
+            do {
+                targetIndex = nextSourceIndex(random);
+            } while (targetIndex == sourceIndex);
+
+            return targetIndex;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package net.coderodde.simulation.network.topology;
+
+/**
+ * This enumeration specifies what a {@link TopologyGenerator} does with a
+ * network that turns out to be disconnected. The components are tracked by a
+ * union-find structure as the links are generated, so no separate traversal
+ * is needed.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+public enum ConnectivityPolicy {
+
+    /**
+     * The network is returned as generated.
+     */
+    AS_GENERATED,
+
+    /**
+     * The components are joined by the minimum number of extra links, that
+     * is, one less than the number of components. Each extra link joins two
+     * routers chosen at random within their components.
+     */
+    BRIDGE_COMPONENTS,
+
+    /**
+     * Only the largest component is kept. Its routers are re-indexed in
+     * their original order, so the network may have fewer routers than
+     * requested.
+     */
+    LARGEST_COMPONENT
+}
@@ -0,0 +1,247 @@
+package net.coderodde.simulation.network.topology;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import net.coderodde.simulation.network.CompiledNetwork;
+
+/**
+ * This class collects the links of a network being generated as two parallel
+ * arrays of router indices, which are handed over to
+ * {@link CompiledNetwork#fromLinks(int, int[], int[], int)} once the
+ * generation is over. If requested, the connected components are tracked by
+ * a {@link UnionFind} as the links are added, so that the network may be
+ * made connected afterwards.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+final class LinkList {
+
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private int[] sources;
+    private int[] targets;
+    private int size;
+
+    private int numberOfRouters;
+
+    /**
+     * The components of the routers, or {@code null} if not tracked.
+     */
+    private final UnionFind components;
+
+    LinkList(final int numberOfRouters,
+             final long expectedNumberOfLinks,
+             final boolean trackComponents) {
+        this.numberOfRouters = numberOfRouters;
+        this.components = trackComponents ?
+                          new UnionFind(numberOfRouters) :
+                          null;
+
+        final int capacity =
+                (int) Math.max(MINIMUM_CAPACITY,
+                               Math.min(expectedNumberOfLinks,
+                                        Integer.MAX_VALUE - 8));
+
+        this.sources = new int[capacity];
+        this.targets = new int[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Sets the number of routers, for links read before it is known. Must
+     * exceed every router index added so far.
+     *
+     * @param numberOfRouters the number of routers.
+     */
+    void setNumberOfRouters(final int numberOfRouters) {
+        this.numberOfRouters = numberOfRouters;
+    }
+
+    /**
+     * Appends the link between the routers {@code source} and
+     * {@code target}.
+     *
+     * @param source the index of the first router.
+     * @param target the index of the second router.
+     */
+    void add(final int source, final int target) {
+        if (size == sources.length) {
+            final int capacity =
+                    (int) Math.min(2L * size, Integer.MAX_VALUE - 8);
+
+            if (capacity == size) {
+                throw new IllegalStateException("Too many links.");
+            }
+
+            sources = Arrays.copyOf(sources, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+        }
+
+        sources[size] = source;
+        targets[size] = target;
+        ++size;
+
+        if (components != null) {
+            components.union(source, target);
+        }
+    }
+
+    /**
+     * Joins the components by one link less than there are components. A
+     * random router is chosen in each component, and the chosen routers are
+     * linked as a random tree, so the added links are new.
+     *
+     * @param random the random number generator.
+     */
+    void bridgeComponents(final SplittableRandom random) {
+        final int numberOfComponents = components.getNumberOfComponents();
+
+        if (numberOfComponents < 2) {
+            return;
+        }
+
+        // Choose a router uniformly in each component by reservoir
+        // sampling, and list the components in the order of their roots.
+        final int[] chosenRouters = new int[numberOfRouters];
+        final int[] seen = new int[numberOfRouters];
+
+        for (int index = 0; index < numberOfRouters; ++index) {
+            final int root = components.find(index);
+
+            if (random.nextInt(++seen[root]) == 0) {
+                chosenRouters[root] = index;
+            }
+        }
+
+        final int[] representatives = new int[numberOfComponents];
+        int count = 0;
+
+        for (int index = 0; index < numberOfRouters; ++index) {
+            if (seen[index] > 0) {
+                representatives[count++] = chosenRouters[index];
+            }
+        }
+
+        for (int i = 1; i < count; ++i) {
+            add(representatives[random.nextInt(i)], representatives[i]);
+        }
+    }
+
+    /**
+     * Drops all routers but those of the largest component, the one with the
+     * smallest router index winning ties, and re-indexes the remaining
+     * routers in their original order.
+     */
+    void retainLargestComponent() {
+        if (components.getNumberOfComponents() < 2) {
+            return;
+        }
+
+        int largestRoot = -1;
+
+        for (int index = 0; index < numberOfRouters; ++index) {
+            final int root = components.find(index);
+
+            if (largestRoot < 0
+                    || components.getComponentSize(root) >
+                       components.getComponentSize(largestRoot)) {
+                largestRoot = root;
+            }
+        }
+
+        final int[] newIndices = new int[numberOfRouters];
+        int newNumberOfRouters = 0;
+
+        for (int index = 0; index < numberOfRouters; ++index) {
+            newIndices[index] = components.find(index) == largestRoot ?
+                                newNumberOfRouters++ :
+                                -1;
+        }
+
+        int newSize = 0;
+
+        for (int i = 0; i < size; ++i) {
+            // Both ends of a link are in the same component.
+            if (newIndices[sources[i]] >= 0) {
+                sources[newSize] = newIndices[sources[i]];
+                targets[newSize] = newIndices[targets[i]];
+                ++newSize;
+            }
+        }
+
+        size = newSize;
+        numberOfRouters = newNumberOfRouters;
+    }
+
+    /**
+     * Drops the loops and all but the first occurrence of each link, in
+     * either direction, keeping the order of the remaining links. The links
+     * are bucketed by their smaller router index, and the larger ones are
+     * stamped within each bucket.
+     */
+    void removeDuplicates() {
+        final int[] bucketOffsets = new int[numberOfRouters + 1];
+
+        for (int i = 0; i < size; ++i) {
+            ++bucketOffsets[Math.min(sources[i], targets[i]) + 1];
+        }
+
+        for (int index = 0; index < numberOfRouters; ++index) {
+            bucketOffsets[index + 1] += bucketOffsets[index];
+        }
+
+        final int[] buckets = new int[size];
+        final int[] fill = Arrays.copyOf(bucketOffsets, numberOfRouters);
+
+        for (int i = 0; i < size; ++i) {
+            buckets[fill[Math.min(sources[i], targets[i])]++] = i;
+        }
+
+        final boolean[] duplicate = new boolean[size];
+        final int[] stamps = fill;
+        Arrays.fill(stamps, -1);
+
+        for (int index = 0; index < numberOfRouters; ++index) {
+            for (int j = bucketOffsets[index];
+                    j < bucketOffsets[index + 1];
+                    ++j) {
+                final int i = buckets[j];
+                final int other = Math.max(sources[i], targets[i]);
+
+                if (other == index || stamps[other] == index) {
+                    duplicate[i] = true;
+                } else {
+                    stamps[other] = index;
+                }
+            }
+        }
+
+        int newSize = 0;
+
+        for (int i = 0; i < size; ++i) {
+            if (!duplicate[i]) {
+                sources[newSize] = sources[i];
+                targets[newSize] = targets[i];
+                ++newSize;
+            }
+        }
+
+        size = newSize;
+    }
+
+    /**
+     * Builds the network of the routers and these links.
+     *
+     * @return the compiled network.
+     */
+    CompiledNetwork toNetwork() {
+        return CompiledNetwork.fromLinks(numberOfRouters,
+                                         sources,
+                                         targets,
+                                         size);
+    }
+}
@@ -0,0 +1,97 @@
+package net.coderodde.simulation.network.topology;
+
+import java.util.Arrays;
+
+/**
+ * This class implements a set of non-negative {@code long} keys by open
+ * addressing with linear probing. It is used for rejecting the links sampled
+ * twice, without boxing a key per link.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+final class LongHashSet {
+
+    private static final long EMPTY = -1L;
+
+    private static final int MAXIMUM_CAPACITY = 1 << 29;
+
+    private final long[] table;
+    private final int mask;
+    private int size;
+
+    /**
+     * Constructs a set holding at most {@code capacity} keys at a load factor
+     * of at most one half.
+     *
+     * @param capacity the maximum number of keys.
+     */
+    LongHashSet(final int capacity) {
+        if (capacity > MAXIMUM_CAPACITY) {
+            throw new IllegalArgumentException(
+                    "Too large hash set capacity: " + capacity);
+        }
+
+        int tableSize = 2;
+
+        while (tableSize < 2L * capacity) {
+            tableSize <<= 1;
+        }
+
+        this.table = new long[tableSize];
+        this.mask  = tableSize - 1;
+        Arrays.fill(table, EMPTY);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds {@code key} to this set.
+     *
+     * @param key the non-negative key.
+     * @return {@code true} if the key was not in the set.
+     */
+    boolean add(final long key) {
+        int slot = hash(key) & mask;
+
+        while (table[slot] != EMPTY) {
+            if (table[slot] == key) {
+                return false;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        table[slot] = key;
+        ++size;
+        return true;
+    }
+
+    boolean contains(final long key) {
+        int slot = hash(key) & mask;
+
+        while (table[slot] != EMPTY) {
+            if (table[slot] == key) {
+                return true;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return false;
+    }
+
+    /**
+     * Scrambles the bits of {@code key} with the finalizer of MurmurHash3.
+     */
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
@@ -0,0 +1,390 @@
+package net.coderodde.simulation.network.topology;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import net.coderodde.simulation.network.CompiledNetwork;
+
+/**
+ * This class reads and writes networks. The binary format is the CSR form of
+ * a {@link CompiledNetwork} in little-endian byte order:
+ * <pre>
+ *   int   magic                 (0x4E525343, "CSRN")
+ *   int   version               (1)
+ *   int   numberOfRouters       (n)
+ *   int   reserved              (0)
+ *   long  numberOfDirectedLinks (twice the number of links)
+ *   int[] offsets               (n + 1 entries)
+ *   int[] neighbors             (numberOfDirectedLinks entries)
+ * </pre>
+ * Reading maps the file into memory and copies the arrays in bulk, so a
+ * network of a million routers loads in a fraction of a second, and the only
+ * per-router work left is the validation and the creation of the router
+ * objects. The router with index <tt>i</tt> gets the ID <tt>i</tt>.
+ * <p>
+ * The text format is the edge list common to public topology datasets: each
+ * line holds the IDs of the two routers of a link separated by whitespace,
+ * any further columns being ignored. Lines starting with <tt>#</tt> or
+ * <tt>%</tt> are comments. The IDs are used as router indices, so they must
+ * be non-negative, and the network has one router more than the largest ID.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+public final class TopologyFile {
+
+    private static final int MAGIC   = 0x4E525343;
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 24;
+
+    /**
+     * The number of integers mapped at a time, so that a mapped region never
+     * exceeds the 2 GiB limit of a buffer.
+     */
+    private static final int MAPPING_CHUNK_INTS = 1 << 28;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private TopologyFile() {}
+
+    /**
+     * Writes the network to the file {@code path} in the binary format,
+     * replacing any existing file.
+     *
+     * @param network the network to write.
+     * @param path    the path of the file.
+     * @throws IOException if writing fails.
+     */
+    public static void write(final CompiledNetwork network, final Path path)
+    throws IOException {
+        Objects.requireNonNull(network, "The input network is null.");
+        Objects.requireNonNull(path, "The input path is null.");
+
+        final int size = network.size();
+        final int numberOfDirectedLinks = network.getNumberOfDirectedLinks();
+
+        try (final FileChannel channel =
+                FileChannel.open(path,
+                                 StandardOpenOption.CREATE,
+                                 StandardOpenOption.TRUNCATE_EXISTING,
+                                 StandardOpenOption.WRITE)) {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE)
+                                                .order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC)
+                  .putInt(VERSION)
+                  .putInt(size)
+                  .putInt(0)
+                  .putLong(numberOfDirectedLinks);
+
+            for (int index = 0; index <= size; ++index) {
+                putInt(channel, buffer, index < size ?
+                                        network.getNeighborOffset(index) :
+                                        numberOfDirectedLinks);
+            }
+
+            for (int offset = 0; offset < numberOfDirectedLinks; ++offset) {
+                putInt(channel, buffer, network.getNeighborAt(offset));
+            }
+
+            flush(channel, buffer);
+        }
+    }
+
+    /**
+     * Reads a network from the file {@code path} written by
+     * {@link #write(CompiledNetwork, Path)}.
+     *
+     * @param path the path of the file.
+     * @return the network.
+     * @throws IOException if reading fails or the file is malformed.
+     */
+    public static CompiledNetwork read(final Path path) throws IOException {
+        Objects.requireNonNull(path, "The input path is null.");
+
+        try (final FileChannel channel =
+                FileChannel.open(path, StandardOpenOption.READ)) {
+            final long fileSize = channel.size();
+
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("The file is too short: " + path);
+            }
+
+            final ByteBuffer header =
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                           .order(ByteOrder.LITTLE_ENDIAN);
+
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a topology file: " + path);
+            }
+
+            final int version = header.getInt();
+
+            if (version != VERSION) {
+                throw new IOException(
+                        "Unsupported topology file version: " + version);
+            }
+
+            final int size = header.getInt();
+            header.getInt();
+            final long numberOfDirectedLinks = header.getLong();
+
+            if (size < 0
+                    || numberOfDirectedLinks < 0
+                    || numberOfDirectedLinks > Integer.MAX_VALUE - 8) {
+                throw new IOException("Corrupted topology file header: " +
+                                      path);
+            }
+
+            final long expectedFileSize =
+                    HEADER_SIZE + 4L * (size + 1L + numberOfDirectedLinks);
+
+            if (fileSize != expectedFileSize) {
+                throw new IOException(
+                        "The topology file has " + fileSize + " bytes " +
+                        "instead of " + expectedFileSize + ": " + path);
+            }
+
+            final int[] offsets = new int[size + 1];
+            final int[] neighbors = new int[(int) numberOfDirectedLinks];
+
+            readInts(channel, HEADER_SIZE, offsets);
+            readInts(channel, HEADER_SIZE + 4L * offsets.length, neighbors);
+
+            try {
+                return CompiledNetwork.fromCsr(offsets, neighbors);
+            } catch (final IllegalArgumentException ex) {
+                throw new IOException("Corrupted topology file " + path +
+                                      ": " + ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /**
+     * Imports a network from the edge list text file {@code path}. Loops and
+     * repeated links are dropped, and the neighbors of each router appear in
+     * the order of the links in the file.
+     *
+     * @param path the path of the file.
+     * @return the network.
+     * @throws IOException if reading fails or the file is malformed.
+     */
+    public static CompiledNetwork importEdgeList(final Path path)
+    throws IOException {
+        Objects.requireNonNull(path, "The input path is null.");
+
+        final LinkList linkList = new LinkList(0, 0, false);
+        int maximumId = -1;
+
+        try (final InputStream in = Files.newInputStream(path)) {
+            final EdgeListParser parser = new EdgeListParser(in);
+
+            while (parser.nextLink()) {
+                final int source = parser.getSource();
+                final int target = parser.getTarget();
+                maximumId = Math.max(maximumId, Math.max(source, target));
+                linkList.add(source, target);
+            }
+        } catch (final IllegalArgumentException ex) {
+            throw new IOException(ex.getMessage() + ": " + path, ex);
+        }
+
+        if (maximumId == Integer.MAX_VALUE) {
+            throw new IOException("Too large router ID: " + path);
+        }
+
+        linkList.setNumberOfRouters(maximumId + 1);
+        linkList.removeDuplicates();
+        return linkList.toNetwork();
+    }
+
+    private static void putInt(final FileChannel channel,
+                               final ByteBuffer buffer,
+                               final int value) throws IOException {
+        if (buffer.remaining() < Integer.BYTES) {
+            flush(channel, buffer);
+        }
+
+        buffer.putInt(value);
+    }
+
+    private static void flush(final FileChannel channel,
+                              final ByteBuffer buffer) throws IOException {
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+
+    /**
+     * Fills {@code array} with the integers stored at {@code position} of the
+     * file, mapping at most {@link #MAPPING_CHUNK_INTS} of them at a time.
+     */
+    private static void readInts(final FileChannel channel,
+                                 final long position,
+                                 final int[] array) throws IOException {
+        for (int begin = 0; begin < array.length; ) {
+            final int length = Math.min(MAPPING_CHUNK_INTS,
+                                        array.length - begin);
+            final MappedByteBuffer mapped =
+                    channel.map(FileChannel.MapMode.READ_ONLY,
+                                position + 4L * begin,
+                                4L * length);
+            final IntBuffer ints = mapped.order(ByteOrder.LITTLE_ENDIAN)
+                                         .asIntBuffer();
+            ints.get(array, begin, length);
+            begin += length;
+        }
+    }
+
+    /**
+     * Parses the links of an edge list straight from the bytes of the file,
+     * without creating a string per line.
+     */
+    private static final class EdgeListParser {
+
+        private final InputStream in;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private int limit;
+        private long lineNumber = 1;
+
+        private int source;
+        private int target;
+
+        EdgeListParser(final InputStream in) {
+            this.in = in;
+        }
+
+        int getSource() {
+            return source;
+        }
+
+        int getTarget() {
+            return target;
+        }
+
+        /**
+         * Reads the next link.
+         *
+         * @return {@code false} if the file is over.
+         */
+        boolean nextLink() throws IOException {
+            while (true) {
+                int c = skipBlanks();
+
+                if (c < 0) {
+                    return false;
+                }
+
+                if (c == '\n') {
+                    ++position;
+                    ++lineNumber;
+                    continue;
+                }
+
+                if (c == '#' || c == '%') {
+                    skipLine();
+                    continue;
+                }
+
+                source = parseId();
+                c = skipBlanks();
+
+                if (c < 0 || c == '\n') {
+                    throw new IllegalArgumentException(
+                            "Missing the second router ID on line " +
+                            lineNumber);
+                }
+
+                target = parseId();
+                skipLine();
+                return true;
+            }
+        }
+
+        /**
+         * Skips spaces, tabs and carriage returns, and returns the next byte
+         * without consuming it, or <tt>-1</tt> at the end of the file.
+         */
+        private int skipBlanks() throws IOException {
+            while (true) {
+                final int c = peek();
+
+                if (c != ' ' && c != '\t' && c != '\r') {
+                    return c;
+                }
+
+                ++position;
+            }
+        }
+
+        /**
+         * Skips the rest of the current line, the line break included.
+         */
+        private void skipLine() throws IOException {
+            int c;
+
+            while ((c = peek()) >= 0) {
+                ++position;
+
+                if (c == '\n') {
+                    ++lineNumber;
+                    return;
+                }
+            }
+        }
+
+        private int parseId() throws IOException {
+            long value = 0;
+            int digits = 0;
+            int c;
+
+            while ((c = peek()) >= '0' && c <= '9') {
+                value = 10 * value + (c - '0');
+                ++position;
+
+                if (value > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException(
+                            "Too large router ID on line " + lineNumber);
+                }
+
+                ++digits;
+            }
+
+            if (digits == 0
+                    || (c >= 0 && c != ' ' && c != '\t'
+                               && c != '\r' && c != '\n')) {
+                throw new IllegalArgumentException(
+                        "Bad router ID on line " + lineNumber);
+            }
+
+            return (int) value;
+        }
+
+        private int peek() throws IOException {
+            if (position == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                position = 0;
+
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+
+            return buffer[position] & 0xff;
+        }
+    }
+}
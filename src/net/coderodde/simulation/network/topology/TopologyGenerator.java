@@ -0,0 +1,655 @@
+package net.coderodde.simulation.network.topology;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import net.coderodde.simulation.network.CompiledNetwork;
+
+/**
+ * This class generates networks in time and memory linear in the number of
+ * routers and links. The links are collected into plain arrays and compiled
+ * directly into a {@link CompiledNetwork}, without calling
+ * {@link net.coderodde.simulation.network.PacketRouter#connect} per link. The
+ * available topologies are:
+ * <ul>
+ *   <li>{@link #random(int, int)}: the Erdos-Renyi graph <tt>G(n, m)</tt>
+ *       with exactly <tt>m</tt> links chosen uniformly at random,</li>
+ *   <li>{@link #barabasiAlbert(int, int)}: a scale-free graph grown by
+ *       preferential attachment,</li>
+ *   <li>{@link #waxman(int, double, double)}: a geometric graph over random
+ *       points of the unit square, in which the probability of a link decays
+ *       exponentially with the distance,</li>
+ *   <li>{@link #grid(int...)} and {@link #torus(int...)}: meshes of any
+ *       dimension, such as 2D and 3D ones, without and with wrap-around
+ *       links,</li>
+ *   <li>{@link #fatTree(int)}: the three-level <tt>k</tt>-ary fat-tree of data
+ *       center networks, hosts included.</li>
+ * </ul>
+ * The router with index <tt>i</tt> gets the ID <tt>i</tt>. Generating twice
+ * with the same seed yields the same network. The random topologies need not
+ * be connected; a {@link ConnectivityPolicy} then either bridges their
+ * components or keeps the largest one.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+public abstract class TopologyGenerator {
+
+    private TopologyGenerator() {}
+
+    /**
+     * Generates a network using the random number generator seeded with
+     * {@code seed}. The network is returned as generated, even if it is 
+     * disconnected.
+     *
+     * @param seed the seed.
+     * @return the generated network.
+     */
+    public CompiledNetwork generate(final long seed) {
+        return generate(seed, ConnectivityPolicy.AS_GENERATED);
+    }
+
+    /**
+     * Generates a network using the random number generator seeded with
+     * {@code seed}, and deals with its connectivity as specified by
+     * {@code connectivityPolicy}.
+     *
+     * @param seed               the seed.
+     * @param connectivityPolicy the connectivity policy.
+     * @return the generated network.
+     */
+    public CompiledNetwork generate(
+            final long seed,
+            final ConnectivityPolicy connectivityPolicy) {
+        Objects.requireNonNull(connectivityPolicy, 
+                               "The connectivity policy is null.");
+
+        final SplittableRandom random = new SplittableRandom(seed);
+        final LinkList links = 
+                new LinkList(getNumberOfRouters(),
+                             getExpectedNumberOfLinks(),
+                             connectivityPolicy != 
+                             ConnectivityPolicy.AS_GENERATED);
+
+        generateLinks(links, random);
+
+        switch (connectivityPolicy) {
+            case BRIDGE_COMPONENTS:
+                links.bridgeComponents(random);
+                break;
+
+            case LARGEST_COMPONENT:
+                links.retainLargestComponent();
+                break;
+
+            default:
+                break;
+        }
+
+        return links.toNetwork();
+    }
+
+    /**
+     * Returns the number of routers of the generated networks.
+     *
+     * @return the number of routers.
+     */
+    public abstract int getNumberOfRouters();
+
+    abstract long getExpectedNumberOfLinks();
+
+    /**
+     * Adds the links of a network to {@code links}. Each link must be added
+     * once.
+     *
+     * @param links  the link list.
+     * @param random the random number generator.
+     */
+    abstract void generateLinks(final LinkList links,
+                                final SplittableRandom random);
+
+    /**
+     * Returns a generator of networks of {@code numberOfRouters} routers and
+     * {@code numberOfLinks} distinct links chosen uniformly at random. The
+     * networks need not be connected.
+     *
+     * @param numberOfRouters the number of routers.
+     * @param numberOfLinks   the number of links.
+     * @return the generator.
+     */
+    public static TopologyGenerator random(final int numberOfRouters,
+                                           final int numberOfLinks) {
+        checkNumberOfRouters(numberOfRouters, 1);
+
+        final long maximumNumberOfLinks = getNumberOfPairs(numberOfRouters);
+
+        if (numberOfLinks < 0 || numberOfLinks > maximumNumberOfLinks) {
+            throw new IllegalArgumentException(
+                    "The number of links must be within [0, " +
+                    maximumNumberOfLinks + "]: " + numberOfLinks);
+        }
+
+        return new RandomTopologyGenerator(numberOfRouters, numberOfLinks);
+    }
+
+    /**
+     * Returns a generator of Barabasi-Albert networks: the first
+     * <tt>m + 1</tt> routers form a clique, and each subsequent router is
+     * linked to {@code linksPerRouter} distinct earlier routers, chosen with
+     * probabilities proportional to their degrees. The networks are
+     * connected.
+     *
+     * @param numberOfRouters the number of routers.
+     * @param linksPerRouter  the number of links <tt>m</tt> of each new router.
+     * @return the generator.
+     */
+    public static TopologyGenerator barabasiAlbert(final int numberOfRouters,
+                                                   final int linksPerRouter) {
+        if (linksPerRouter < 1) {
+            throw new IllegalArgumentException(
+                    "The number of links per router must be positive: " +
+                    linksPerRouter);
+        }
+
+        checkNumberOfRouters(numberOfRouters, linksPerRouter + 1);
+        return new BarabasiAlbertTopologyGenerator(numberOfRouters,
+                                                   linksPerRouter);
+    }
+
+    /**
+     * Returns a generator of Waxman networks: the routers are placed
+     * uniformly at random in the unit square, and two routers at the distance
+     * <tt>d</tt> are linked with the probability
+     * <tt>beta * exp(-d / (alpha * L))</tt>, where <tt>L = sqrt(2)</tt> is the
+     * maximum distance. The expected number of links grows with
+     * <tt>beta * n<sup>2</sup></tt>, so {@code beta} should be about
+     * <tt>c / n</tt> for sparse networks of average degree proportional to
+     * <tt>c</tt>. The networks need not be connected.
+     *
+     * @param numberOfRouters the number of routers.
+     * @param alpha           the relative distance scale of the links.
+     * @param beta            the maximum link probability.
+     * @return the generator.
+     */
+    public static TopologyGenerator waxman(final int numberOfRouters,
+                                           final double alpha,
+                                           final double beta) {
+        checkNumberOfRouters(numberOfRouters, 1);
+
+        if (!(alpha > 0.0) || Double.isInfinite(alpha)) {
+            throw new IllegalArgumentException(
+                    "The alpha parameter must be positive: " + alpha);
+        }
+
+        if (!(beta > 0.0 && beta <= 1.0)) {
+            throw new IllegalArgumentException(
+                    "The beta parameter must be within (0, 1]: " + beta);
+        }
+
+        return new WaxmanTopologyGenerator(numberOfRouters, alpha, beta);
+    }
+
+    /**
+     * Returns the generator of the mesh with the given side lengths, in which
+     * each router is linked to the adjacent routers along each axis.
+     *
+     * @param dimensions the number of routers along each axis.
+     * @return the generator.
+     */
+    public static TopologyGenerator grid(final int... dimensions) {
+        return new MeshTopologyGenerator(dimensions, false);
+    }
+
+    /**
+     * Returns the generator of the torus with the given side lengths, that
+     * is, the mesh in which the routers at the ends of each axis are linked as
+     * well. Axes of length two are not wrapped, as they would get parallel
+     * links.
+     *
+     * @param dimensions the number of routers along each axis.
+     * @return the generator.
+     */
+    public static TopologyGenerator torus(final int... dimensions) {
+        return new MeshTopologyGenerator(dimensions, true);
+    }
+
+    /**
+     * Returns the generator of the <tt>k</tt>-ary fat-tree: <tt>k</tt> pods
+     * of <tt>k / 2</tt> edge and <tt>k / 2</tt> aggregation switches each,
+     * <tt>(k / 2)<sup>2</sup></tt> core switches and <tt>k / 2</tt> hosts per
+     * edge switch. The routers are indexed as the core switches first, and
+     * then pod by pod the aggregation switches, the edge switches and the
+     * hosts.
+     *
+     * @param k the even number of ports per switch.
+     * @return the generator.
+     */
+    public static TopologyGenerator fatTree(final int k) {
+        if (k < 2 || k % 2 != 0 || k > 1024) {
+            throw new IllegalArgumentException(
+                    "The fat-tree arity must be even and within [2, 1024]: " +
+                    k);
+        }
+
+        return new FatTreeTopologyGenerator(k);
+    }
+
+    private static void checkNumberOfRouters(final int numberOfRouters,
+                                             final int minimum) {
+        if (numberOfRouters < minimum) {
+            throw new IllegalArgumentException(
+                    "The number of routers must be at least " + minimum +
+                    ": " + numberOfRouters);
+        }
+    }
+
+    /**
+     * Returns the number of unordered pairs of {@code n} routers.
+     */
+    private static long getNumberOfPairs(final int n) {
+        return (long) n * (n - 1) / 2;
+    }
+
+    /**
+     * Iterates over the unordered router pairs <tt>(u, v)</tt>,
+     * <tt>u &lt; v</tt>, in lexicographic order, skipping to any later pair
+     * in amortized constant time. The pair with the linear index <tt>k</tt>
+     * is the <tt>k</tt>th pair of the order.
+     */
+    private static final class PairCursor {
+
+        private final int n;
+
+        /**
+         * The current pair, and the linear index of the pair
+         * <tt>(u, u + 1)</tt>.
+         */
+        private int u;
+        private int v;
+        private long rowStart;
+
+        PairCursor(final int n) {
+            this.n = n;
+        }
+
+        /**
+         * Moves to the pair with the linear index {@code index}, which may
+         * not precede the current one.
+         */
+        void moveTo(final long index) {
+            while (index - rowStart >= n - 1 - u) {
+                rowStart += n - 1 - u;
+                ++u;
+            }
+
+            v = u + 1 + (int) (index - rowStart);
+        }
+    }
+
+    /**
+     * Returns the number of failures before the next success of Bernoulli
+     * trials with the success probability {@code p}, where
+     * {@code logOfOneMinusP} is <tt>log(1 - p)</tt>.
+     */
+    private static double nextGeometric(final SplittableRandom random,
+                                        final double logOfOneMinusP) {
+        if (logOfOneMinusP == Double.NEGATIVE_INFINITY) {
+            return 0.0;
+        }
+
+        return Math.floor(Math.log(1.0 - random.nextDouble()) /
+                          logOfOneMinusP);
+    }
+
+    private static final class RandomTopologyGenerator
+    extends TopologyGenerator {
+
+        private final int numberOfRouters;
+        private final int numberOfLinks;
+
+        RandomTopologyGenerator(final int numberOfRouters,
+                                final int numberOfLinks) {
+            this.numberOfRouters = numberOfRouters;
+            this.numberOfLinks   = numberOfLinks;
+        }
+
+        @Override
+        public int getNumberOfRouters() {
+            return numberOfRouters;
+        }
+
+        @Override
+        long getExpectedNumberOfLinks() {
+            return numberOfLinks;
+        }
+
+        /**
+         * Samples the links with rejection while at most half of the pairs
+         * are to be linked, and the pairs left unlinked otherwise, so that
+         * each sample is accepted with the probability of at least one half.
+         */
+        @Override
+        void generateLinks(final LinkList links,
+                           final SplittableRandom random) {
+            final long numberOfPairs = getNumberOfPairs(numberOfRouters);
+
+            if (numberOfLinks <= numberOfPairs / 2) {
+                final LongHashSet linkSet = new LongHashSet(numberOfLinks);
+
+                while (links.size() < numberOfLinks) {
+                    final long pair = nextPair(random);
+
+                    if (linkSet.add(pair)) {
+                        links.add((int) (pair / numberOfRouters),
+                                  (int) (pair % numberOfRouters));
+                    }
+                }
+
+                return;
+            }
+
+            final int numberOfNonLinks = (int) (numberOfPairs - numberOfLinks);
+            final LongHashSet nonLinkSet = new LongHashSet(numberOfNonLinks);
+
+            while (nonLinkSet.size() < numberOfNonLinks) {
+                nonLinkSet.add(nextPair(random));
+            }
+
+            for (int u = 0; u < numberOfRouters; ++u) {
+                for (int v = u + 1; v < numberOfRouters; ++v) {
+                    if (!nonLinkSet.contains((long) u * numberOfRouters + v)) {
+                        links.add(u, v);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns a random pair <tt>u &lt; v</tt> encoded as
+         * <tt>u * n + v</tt>.
+         */
+        private long nextPair(final SplittableRandom random) {
+            final int a = random.nextInt(numberOfRouters);
+            int b = random.nextInt(numberOfRouters - 1);
+
+            if (b >= a) {
+                ++b;
+            }
+
+            return (long) Math.min(a, b) * numberOfRouters + Math.max(a, b);
+        }
+    }
+
+    private static final class BarabasiAlbertTopologyGenerator
+    extends TopologyGenerator {
+
+        private final int numberOfRouters;
+        private final int linksPerRouter;
+
+        BarabasiAlbertTopologyGenerator(final int numberOfRouters,
+                                        final int linksPerRouter) {
+            this.numberOfRouters = numberOfRouters;
+            this.linksPerRouter  = linksPerRouter;
+        }
+
+        @Override
+        public int getNumberOfRouters() {
+            return numberOfRouters;
+        }
+
+        @Override
+        long getExpectedNumberOfLinks() {
+            return getNumberOfPairs(linksPerRouter + 1) +
+                   (long) (numberOfRouters - linksPerRouter - 1) *
+                   linksPerRouter;
+        }
+
+        /**
+         * Draws the earlier routers from the list of all link endpoints so
+         * far, in which each router appears as many times as its degree.
+         */
+        @Override
+        void generateLinks(final LinkList links,
+                           final SplittableRandom random) {
+            final long numberOfEndpoints = 2 * getExpectedNumberOfLinks();
+
+            if (numberOfEndpoints > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Too many links.");
+            }
+
+            final int[] endpoints = new int[(int) numberOfEndpoints];
+            final int[] chosenBy = new int[numberOfRouters];
+            int size = 0;
+
+            for (int u = 0; u <= linksPerRouter; ++u) {
+                for (int v = u + 1; v <= linksPerRouter; ++v) {
+                    links.add(u, v);
+                    endpoints[size++] = u;
+                    endpoints[size++] = v;
+                }
+            }
+
+            Arrays.fill(chosenBy, -1);
+
+            for (int u = linksPerRouter + 1; u < numberOfRouters; ++u) {
+                // The endpoints of the links of u are not eligible yet.
+                final int eligible = size;
+
+                for (int i = 0; i < linksPerRouter; ++i) {
+                    int v;
+
+                    do {
+                        v = endpoints[random.nextInt(eligible)];
+                    } while (chosenBy[v] == u);
+
+                    chosenBy[v] = u;
+                    links.add(v, u);
+                    endpoints[size++] = v;
+                    endpoints[size++] = u;
+                }
+            }
+        }
+    }
+
+    private static final class WaxmanTopologyGenerator
+    extends TopologyGenerator {
+
+        private static final double MAXIMUM_DISTANCE = Math.sqrt(2.0);
+
+        private final int numberOfRouters;
+        private final double alpha;
+        private final double beta;
+
+        WaxmanTopologyGenerator(final int numberOfRouters,
+                                final double alpha,
+                                final double beta) {
+            this.numberOfRouters = numberOfRouters;
+            this.alpha           = alpha;
+            this.beta            = beta;
+        }
+
+        @Override
+        public int getNumberOfRouters() {
+            return numberOfRouters;
+        }
+
+        @Override
+        long getExpectedNumberOfLinks() {
+            // An upper bound, as the distance only lowers the probability.
+            return (long) Math.min(Integer.MAX_VALUE,
+                                   beta * getNumberOfPairs(numberOfRouters));
+        }
+
+        /**
+         * Visits the candidate pairs of a Bernoulli process with the success
+         * probability {@code beta} by skipping geometrically distributed
+         * numbers of pairs, and accepts each candidate with the probability
+         * <tt>exp(-d / (alpha * L))</tt>. This takes time proportional to the
+         * number of links rather than to the number of pairs.
+         */
+        @Override
+        void generateLinks(final LinkList links,
+                           final SplittableRandom random) {
+            final double[] xs = new double[numberOfRouters];
+            final double[] ys = new double[numberOfRouters];
+
+            for (int i = 0; i < numberOfRouters; ++i) {
+                xs[i] = random.nextDouble();
+                ys[i] = random.nextDouble();
+            }
+
+            final long numberOfPairs = getNumberOfPairs(numberOfRouters);
+            final double logOfOneMinusBeta = Math.log(1.0 - beta);
+            final double scale = alpha * MAXIMUM_DISTANCE;
+            final PairCursor cursor = new PairCursor(numberOfRouters);
+            long index = -1;
+
+            while (true) {
+                final double skip = nextGeometric(random, logOfOneMinusBeta);
+
+                if (skip >= numberOfPairs - index - 1) {
+                    return;
+                }
+
+                index += 1 + (long) skip;
+                cursor.moveTo(index);
+
+                final double dx = xs[cursor.u] - xs[cursor.v];
+                final double dy = ys[cursor.u] - ys[cursor.v];
+                final double distance = Math.sqrt(dx * dx + dy * dy);
+
+                if (random.nextDouble() < Math.exp(-distance / scale)) {
+                    links.add(cursor.u, cursor.v);
+                }
+            }
+        }
+    }
+
+    private static final class MeshTopologyGenerator
+    extends TopologyGenerator {
+
+        private final int[] dimensions;
+        private final boolean wrapAround;
+        private final int numberOfRouters;
+
+        MeshTopologyGenerator(final int[] dimensions,
+                              final boolean wrapAround) {
+            if (dimensions.length == 0) {
+                throw new IllegalArgumentException("No dimensions given.");
+            }
+
+            int numberOfRouters = 1;
+
+            for (final int dimension : dimensions) {
+                if (dimension < 1) {
+                    throw new IllegalArgumentException(
+                            "Non-positive dimension: " + dimension);
+                }
+
+                numberOfRouters = Math.multiplyExact(numberOfRouters,
+                                                     dimension);
+            }
+
+            this.dimensions      = dimensions.clone();
+            this.wrapAround      = wrapAround;
+            this.numberOfRouters = numberOfRouters;
+        }
+
+        @Override
+        public int getNumberOfRouters() {
+            return numberOfRouters;
+        }
+
+        @Override
+        long getExpectedNumberOfLinks() {
+            return (long) numberOfRouters * dimensions.length;
+        }
+
+        @Override
+        void generateLinks(final LinkList links,
+                           final SplittableRandom random) {
+            // The index of a router is the mixed-radix number of its
+            // coordinates, the first axis being the least significant one.
+            final int[] coordinates = new int[dimensions.length];
+
+            for (int index = 0; index < numberOfRouters; ++index) {
+                int stride = 1;
+
+                for (int axis = 0; axis < dimensions.length; ++axis) {
+                    final int dimension = dimensions[axis];
+
+                    if (coordinates[axis] + 1 < dimension) {
+                        links.add(index, index + stride);
+                    } else if (wrapAround && dimension > 2) {
+                        links.add(index,
+                                  index - coordinates[axis] * stride);
+                    }
+
+                    stride *= dimension;
+                }
+
+                // Increment the coordinates.
+                for (int axis = 0; axis < dimensions.length; ++axis) {
+                    if (++coordinates[axis] < dimensions[axis]) {
+                        break;
+                    }
+
+                    coordinates[axis] = 0;
+                }
+            }
+        }
+    }
+
+    private static final class FatTreeTopologyGenerator
+    extends TopologyGenerator {
+
+        private final int k;
+        private final int half;
+
+        FatTreeTopologyGenerator(final int k) {
+            this.k    = k;
+            this.half = k / 2;
+        }
+
+        @Override
+        public int getNumberOfRouters() {
+            // The core switches plus k pods of k switches and half^2 hosts.
+            return half * half + k * (k + half * half);
+        }
+
+        @Override
+        long getExpectedNumberOfLinks() {
+            // Each pod has half^2 host, half^2 edge-aggregation and half^2
+            // aggregation-core links.
+            return 3L * k * half * half;
+        }
+
+        @Override
+        void generateLinks(final LinkList links,
+                           final SplittableRandom random) {
+            final int podSize = k + half * half;
+
+            for (int pod = 0; pod < k; ++pod) {
+                final int firstAggregation = half * half + pod * podSize;
+                final int firstEdge = firstAggregation + half;
+                final int firstHost = firstEdge + half;
+
+                for (int a = 0; a < half; ++a) {
+                    for (int c = 0; c < half; ++c) {
+                        links.add(firstAggregation + a, a * half + c);
+                    }
+                }
+
+                for (int e = 0; e < half; ++e) {
+                    for (int a = 0; a < half; ++a) {
+                        links.add(firstEdge + e, firstAggregation + a);
+                    }
+
+                    for (int h = 0; h < half; ++h) {
+                        links.add(firstEdge + e, firstHost + e * half + h);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package net.coderodde.simulation.network.topology;
+
+/**
+ * This class implements the disjoint-set forest over router indices with
+ * union by size and path halving, keeping track of the number of components
+ * as the links are added.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+final class UnionFind {
+
+    /**
+     * Maps each router index to its parent, roots being their own parents.
+     */
+    private final int[] parents;
+
+    /**
+     * Maps each root to the number of routers in its component.
+     */
+    private final int[] sizes;
+
+    private int numberOfComponents;
+
+    UnionFind(final int size) {
+        this.parents = new int[size];
+        this.sizes   = new int[size];
+        this.numberOfComponents = size;
+
+        for (int i = 0; i < size; ++i) {
+            parents[i] = i;
+            sizes[i] = 1;
+        }
+    }
+
+    int getNumberOfComponents() {
+        return numberOfComponents;
+    }
+
+    /**
+     * Returns the root of the component of {@code index}.
+     *
+     * @param index the router index.
+     * @return the root router index.
+     */
+    int find(int index) {
+        while (parents[index] != index) {
+            parents[index] = parents[parents[index]];
+            index = parents[index];
+        }
+
+        return index;
+    }
+
+    /**
+     * Returns the number of routers in the component whose root is
+     * {@code root}.
+     *
+     * @param root the root router index.
+     * @return the size of the component.
+     */
+    int getComponentSize(final int root) {
+        return sizes[root];
+    }
+
+    /**
+     * Merges the components of {@code a} and {@code b}.
+     *
+     * @param a the first router index.
+     * @param b the second router index.
+     * @return {@code true} if the components were distinct.
+     */
+    boolean union(final int a, final int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+
+        if (rootA == rootB) {
+            return false;
+        }
+
+        if (sizes[rootA] < sizes[rootB]) {
+            final int tmp = rootA;
+            rootA = rootB;
+            rootB = tmp;
+        }
+
+        parents[rootB] = rootA;
+        sizes[rootA] += sizes[rootB];
+        --numberOfComponents;
+        return true;
+    }
+}
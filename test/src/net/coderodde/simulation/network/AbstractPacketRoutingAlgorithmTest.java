@@ -0,0 +1,196 @@
+package net.coderodde.simulation.network;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Supplier;
+import net.coderodde.simulation.network.topology.TopologyGenerator;
+import org.junit.Test;
+
+import static net.coderodde.simulation.network.StatisticsAssert.assertCloseStatistics;
+import static net.coderodde.simulation.network.StatisticsAssert.assertSameFile;
+import static net.coderodde.simulation.network.StatisticsAssert.assertSameIntegerStatistics;
+import static net.coderodde.simulation.network.StatisticsAssert.assertSameStatistics;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class tests the equivalences between the engines of 
+ * {@link AbstractPacketRoutingAlgorithm}: the parallel engine must reproduce
+ * the sequential one, and the bandwidth model <tt>uniform(1, UNLIMITED)</tt>
+ * the default rules. Each pair of runs is compared by its statistics and by 
+ * its hop trace, which records every hop in the order it is made.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+public class AbstractPacketRoutingAlgorithmTest {
+
+    private static final long SEED = 13L;
+
+    /**
+     * The parallel engine decides in parallel only on networks larger than 
+     * its grain of 4096 routers, so the network has a packet at each of 
+     * 6000 routers. The packets are bound to the hubs of a scale-free 
+     * network, which the random walks reach fast.
+     */
+    private static final int PARALLEL_NETWORK_SIZE = 6000;
+
+    private static final int NUMBER_OF_HUBS = 8;
+
+    private static final List<PacketRouter> PARALLEL_NETWORK = 
+            TopologyGenerator.barabasiAlbert(PARALLEL_NETWORK_SIZE, 2)
+                             .generate(SEED)
+                             .getPacketRouters();
+
+    private static final List<Packet> PARALLEL_PACKETS = 
+            TestNetworks.packetsFromEveryRouter(
+                    PARALLEL_NETWORK, 
+                    getHubs(PARALLEL_NETWORK, NUMBER_OF_HUBS),
+                    SEED);
+
+    @Test
+    public void parallelRandomRoutingMatchesSequential() throws IOException {
+        assertParallelMatchesSequential(RandomPacketRoutingAlgorithm::new);
+    }
+
+    @Test
+    public void parallelShortestPathRoutingMatchesSequential() 
+    throws IOException {
+        assertParallelMatchesSequential(
+                ShortestPathPacketRoutingAlgorithm::new);
+    }
+
+    @Test
+    public void parallelLearningMatchesSequential() throws IOException {
+        assertParallelMatchesSequential(() -> {
+            final LearningPacketRoutingAlgorithm algorithm = 
+                    new LearningPacketRoutingAlgorithm();
+            algorithm.setCycleLimit(200);
+            return algorithm;
+        });
+    }
+
+    @Test
+    public void unlimitedBandwidthMatchesDefaultForRandomRouting() 
+    throws IOException {
+        assertUnlimitedBandwidthMatchesDefault(
+                RandomPacketRoutingAlgorithm::new);
+    }
+
+    @Test
+    public void unlimitedBandwidthMatchesDefaultForShortestPathRouting() 
+    throws IOException {
+        assertUnlimitedBandwidthMatchesDefault(
+                ShortestPathPacketRoutingAlgorithm::new);
+    }
+
+    @Test
+    public void unlimitedBandwidthMatchesDefaultForLearning() 
+    throws IOException {
+        assertUnlimitedBandwidthMatchesDefault(() -> {
+            final LearningPacketRoutingAlgorithm algorithm = 
+                    new LearningPacketRoutingAlgorithm();
+            algorithm.setCycleLimit(500);
+            return algorithm;
+        });
+    }
+
+    private static void assertParallelMatchesSequential(
+            final Supplier<AbstractPacketRoutingAlgorithm> factory) 
+    throws IOException {
+        final Path directory = Files.createTempDirectory("parallel");
+
+        try {
+            final AbstractPacketRoutingAlgorithm sequential = factory.get();
+            final AbstractPacketRoutingAlgorithm parallel = factory.get();
+            final Path sequentialTrace = directory.resolve("sequential.bin");
+            final Path parallelTrace = directory.resolve("parallel.bin");
+
+            sequential.setSeed(SEED);
+            sequential.setHopTracePath(sequentialTrace);
+            parallel.setSeed(SEED);
+            parallel.setHopTracePath(parallelTrace);
+            parallel.setParallelism(4);
+
+            final SimulationStatistics expected = 
+                    sequential.simulate(PARALLEL_NETWORK, PARALLEL_PACKETS);
+            final SimulationStatistics actual = 
+                    parallel.simulate(PARALLEL_NETWORK, PARALLEL_PACKETS);
+
+            if (expected != null || actual != null) {
+                assertSameStatistics(expected, actual);
+            }
+
+            assertSameFile(sequentialTrace, parallelTrace);
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    private static void assertUnlimitedBandwidthMatchesDefault(
+            final Supplier<AbstractPacketRoutingAlgorithm> factory) 
+    throws IOException {
+        final List<PacketRouter> network = TestNetworks.random(40, 80, SEED);
+        final List<Packet> packetList = 
+                TestNetworks.uniformPackets(network, 200, SEED);
+        final Path directory = Files.createTempDirectory("bandwidth");
+
+        try {
+            final AbstractPacketRoutingAlgorithm standard = factory.get();
+            final AbstractPacketRoutingAlgorithm unlimited = factory.get();
+            final Path standardTrace = directory.resolve("default.bin");
+            final Path unlimitedTrace = directory.resolve("unlimited.bin");
+
+            standard.setSeed(SEED);
+            standard.setHopTracePath(standardTrace);
+            unlimited.setSeed(SEED);
+            unlimited.setHopTracePath(unlimitedTrace);
+            unlimited.setBandwidthModel(
+                    BandwidthModel.uniform(1, BandwidthModel.UNLIMITED));
+
+            final SimulationStatistics expected = 
+                    standard.simulate(network, packetList);
+            final SimulationStatistics actual = 
+                    unlimited.simulate(network, packetList);
+
+            assertEquals(expected == null, actual == null);
+
+            if (expected != null) {
+                // Only the counters of the bandwidth model may differ.
+                assertSameIntegerStatistics(expected, actual);
+                assertCloseStatistics(expected, actual, 0.0);
+            }
+
+            assertSameFile(standardTrace, unlimitedTrace);
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Returns the indices of the {@code count} routers with the most 
+     * neighbors.
+     */
+    private static int[] getHubs(final List<PacketRouter> network, 
+                                 final int count) {
+        return network.stream()
+                      .sorted((a, b) -> Integer.compare(
+                              b.getNeighbors().size(),
+                              a.getNeighbors().size()))
+                      .limit(count)
+                      .mapToInt(PacketRouter::getId)
+                      .toArray();
+    }
+
+    static void deleteDirectory(final Path directory) throws IOException {
+        try (final java.util.stream.Stream<Path> paths = 
+                Files.list(directory)) {
+            for (final Path path : (Iterable<Path>) paths::iterator) {
+                Files.delete(path);
+            }
+        }
+
+        Files.delete(directory);
+    }
+}
@@ -0,0 +1,176 @@
+package net.coderodde.simulation.network;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import org.junit.Test;
+
+import static net.coderodde.simulation.network.AbstractPacketRoutingAlgorithmTest.deleteDirectory;
+import static net.coderodde.simulation.network.StatisticsAssert.assertCloseStatistics;
+import static net.coderodde.simulation.network.StatisticsAssert.assertSameFile;
+import static net.coderodde.simulation.network.StatisticsAssert.assertSameIntegerStatistics;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * This class tests that a run resumed from a {@link Checkpoint} continues
+ * exactly as the run that wrote the checkpoint: the statistics, the counters
+ * of a profiled run and the hop trace must all be the same.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+public class CheckpointTest {
+
+    private static final long SEED = 13L;
+
+    /**
+     * The counters that must survive a checkpoint. The phase times of a
+     * profiled run differ from run to run and are not compared.
+     */
+    private static final String[] RESTORED_COUNTERS = {
+        "Routing decisions",
+        "Packet hops",
+        "Routing table updates",
+    };
+
+    @Test(timeout = 60_000L)
+    public void resumedRandomRoutingMatchesUninterrupted() throws IOException {
+        assertResumedMatchesUninterrupted(RandomPacketRoutingAlgorithm::new,
+                                          null);
+    }
+
+    @Test(timeout = 60_000L)
+    public void resumedShortestPathRoutingMatchesUninterrupted()
+    throws IOException {
+        assertResumedMatchesUninterrupted(
+                ShortestPathPacketRoutingAlgorithm::new,
+                null);
+    }
+
+    @Test(timeout = 60_000L)
+    public void resumedLearningMatchesUninterrupted() throws IOException {
+        assertResumedMatchesUninterrupted(() -> {
+            final LearningPacketRoutingAlgorithm algorithm =
+                    new LearningPacketRoutingAlgorithm();
+            algorithm.setCycleLimit(500);
+            return algorithm;
+        }, null);
+    }
+
+    @Test(timeout = 60_000L)
+    public void resumedRunWithBandwidthModelMatchesUninterrupted()
+    throws IOException {
+        assertResumedMatchesUninterrupted(
+                RandomPacketRoutingAlgorithm::new,
+                BandwidthModel.uniform(2, 1));
+    }
+
+    /**
+     * With the links slower than the routers, a checkpoint may be taken while
+     * some router has packets only in the output queues of its links. The
+     * resumed run must keep such a router active, or it never finishes.
+     */
+    @Test(timeout = 60_000L)
+    public void resumedRunWithLinkBacklogOnlyFinishes() throws IOException {
+        final List<PacketRouter> network = TestNetworks.line(5);
+        final List<Packet> packetList = new ArrayList<>();
+
+        for (int id = 0; id < 6; ++id) {
+            packetList.add(new Packet(id, network.get(0), network.get(4)));
+        }
+
+        for (int interval = 4; interval <= 7; ++interval) {
+            assertResumedMatchesUninterrupted(
+                    ShortestPathPacketRoutingAlgorithm::new,
+                    BandwidthModel.uniform(3, 1),
+                    network,
+                    packetList,
+                    interval);
+        }
+    }
+
+    private static void assertResumedMatchesUninterrupted(
+            final Supplier<AbstractPacketRoutingAlgorithm> factory,
+            final BandwidthModel bandwidthModel)
+    throws IOException {
+        final List<PacketRouter> network = TestNetworks.random(40, 80, SEED);
+        final List<Packet> packetList =
+                TestNetworks.uniformPackets(network, 200, SEED);
+
+        for (final int interval : new int[]{ 1, 5, 20 }) {
+            assertResumedMatchesUninterrupted(factory,
+                                              bandwidthModel,
+                                              network,
+                                              packetList,
+                                              interval);
+        }
+    }
+
+    /**
+     * Runs the simulation writing a checkpoint every 
+     * {@code checkpointInterval} cycles, resumes a second run from the last 
+     * checkpoint, and compares the two runs.
+     */
+    private static void assertResumedMatchesUninterrupted(
+            final Supplier<AbstractPacketRoutingAlgorithm> factory,
+            final BandwidthModel bandwidthModel,
+            final List<PacketRouter> network,
+            final List<Packet> packetList,
+            final int checkpointInterval)
+    throws IOException {
+        final Path directory = Files.createTempDirectory("checkpoint");
+
+        try {
+            final Path checkpoint = directory.resolve("checkpoint.bin");
+            final Path expectedTrace = directory.resolve("expected.bin");
+            final Path actualTrace = directory.resolve("actual.bin");
+
+            // Writing the checkpoints does not change the run.
+            final AbstractPacketRoutingAlgorithm uninterrupted = factory.get();
+            uninterrupted.setSeed(SEED);
+            uninterrupted.setProfiling(true);
+            uninterrupted.setBandwidthModel(bandwidthModel);
+            uninterrupted.setHopTracePath(expectedTrace);
+            uninterrupted.setCheckpoint(checkpoint, checkpointInterval);
+
+            final SimulationStatistics expected =
+                    uninterrupted.simulate(network, packetList);
+
+            // The resumed run overwrites the trace from the checkpoint on.
+            Files.copy(expectedTrace, actualTrace);
+
+            final AbstractPacketRoutingAlgorithm resumed = factory.get();
+            resumed.setSeed(SEED);
+            resumed.setProfiling(true);
+            resumed.setBandwidthModel(bandwidthModel);
+            resumed.setHopTracePath(actualTrace);
+            resumed.setResumeCheckpointPath(checkpoint);
+
+            final SimulationStatistics actual =
+                    resumed.simulate(network, packetList);
+
+            assertEquals(expected == null, actual == null);
+
+            if (expected != null) {
+                assertSameIntegerStatistics(expected, actual);
+                assertCloseStatistics(expected, actual, 0.0);
+
+                for (final String counter : RESTORED_COUNTERS) {
+                    assertEquals(counter,
+                                 expected.getCounters().get(counter),
+                                 actual.getCounters().get(counter));
+                }
+
+                assertNotNull(actual.getCounters().get("Packet hops"));
+            }
+
+            assertSameFile(expectedTrace, actualTrace);
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package net.coderodde.simulation.network;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Supplier;
+import org.junit.Test;
+
+import static net.coderodde.simulation.network.StatisticsAssert.assertCloseStatistics;
+import static net.coderodde.simulation.network.StatisticsAssert.assertSameFile;
+import static net.coderodde.simulation.network.StatisticsAssert.assertSameIntegerStatistics;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class tests that {@link DiscreteEventEngine} with the latency of one 
+ * cycle on every link moves the packets exactly as the cycle-by-cycle engine.
+ * The integer statistics must be the same, while the queue length mean and 
+ * deviation are accumulated in a different order, and may differ by rounding.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+public class DiscreteEventEngineTest {
+
+    private static final long SEED = 7L;
+
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    public void unitLatencyMatchesCycleEngineForRandomRouting() 
+    throws IOException {
+        assertUnitLatencyMatchesCycleEngine(RandomPacketRoutingAlgorithm::new);
+    }
+
+    @Test
+    public void unitLatencyMatchesCycleEngineForShortestPathRouting() 
+    throws IOException {
+        assertUnitLatencyMatchesCycleEngine(
+                ShortestPathPacketRoutingAlgorithm::new);
+    }
+
+    @Test
+    public void unitLatencyMatchesCycleEngineForLearning() 
+    throws IOException {
+        assertUnitLatencyMatchesCycleEngine(() -> {
+            final LearningPacketRoutingAlgorithm algorithm = 
+                    new LearningPacketRoutingAlgorithm();
+            algorithm.setCycleLimit(500);
+            return algorithm;
+        });
+    }
+
+    private static void assertUnitLatencyMatchesCycleEngine(
+            final Supplier<AbstractPacketRoutingAlgorithm> factory) 
+    throws IOException {
+        final List<PacketRouter> network = TestNetworks.random(60, 120, SEED);
+        final List<Packet> packetList = 
+                TestNetworks.uniformPackets(network, 400, SEED);
+        final Path directory = Files.createTempDirectory("des");
+
+        try {
+            final AbstractPacketRoutingAlgorithm cycleEngine = factory.get();
+            final AbstractPacketRoutingAlgorithm eventEngine = factory.get();
+            final Path cycleTrace = directory.resolve("cycle.bin");
+            final Path eventTrace = directory.resolve("event.bin");
+
+            cycleEngine.setSeed(SEED);
+            cycleEngine.setHopTracePath(cycleTrace);
+            eventEngine.setSeed(SEED);
+            eventEngine.setHopTracePath(eventTrace);
+            eventEngine.setLinkLatencyModel(LinkLatencyModel.constant(1));
+
+            final SimulationStatistics expected = 
+                    cycleEngine.simulate(network, packetList);
+            final SimulationStatistics actual = 
+                    eventEngine.simulate(network, packetList);
+
+            assertEquals(expected == null, actual == null);
+
+            if (expected != null) {
+                assertSameIntegerStatistics(expected, actual);
+                assertCloseStatistics(expected, actual, TOLERANCE);
+            }
+
+            assertSameFile(cycleTrace, eventTrace);
+        } finally {
+            AbstractPacketRoutingAlgorithmTest.deleteDirectory(directory);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package net.coderodde.simulation.network;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * This class tests {@link RandomPacketRoutingAlgorithm}.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+public class RandomPacketRoutingAlgorithmTest {
+
+    @Test
+    public void rejectsPacketAtRouterWithoutLinks() {
+        final PacketRouter a = new PacketRouter(0);
+        final PacketRouter b = new PacketRouter(1);
+        final PacketRouter isolated = new PacketRouter(2);
+        a.connect(b);
+
+        final List<PacketRouter> network = Arrays.asList(a, b, isolated);
+        final List<Packet> packetList = 
+                Arrays.asList(new Packet(0, isolated, a));
+
+        try {
+            new RandomPacketRoutingAlgorithm().simulate(network, packetList);
+            fail("The packet left a router without links.");
+        } catch (final IllegalStateException ex) {
+            assertEquals("Packet router 2 has no links.", ex.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveBound() {
+        new PacketRouterRandom(1L, 1).nextInt(0, 0);
+    }
+}
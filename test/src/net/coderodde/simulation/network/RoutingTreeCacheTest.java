@@ -0,0 +1,74 @@
+package net.coderodde.simulation.network;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class tests {@link RoutingTreeCache} on a line of 100 routers.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+public class RoutingTreeCacheTest {
+
+    private final CompiledNetwork network = 
+            CompiledNetwork.compile(TestNetworks.line(100));
+
+    @Test
+    public void routesAlongShortestPaths() {
+        final RoutingTreeCache cache = new RoutingTreeCache(network, 1);
+
+        for (int router = 1; router < 100; ++router) {
+            assertEquals(router - 1, getNextRouter(cache, router, 0));
+        }
+
+        for (int router = 0; router < 99; ++router) {
+            assertEquals(router + 1, getNextRouter(cache, router, 99));
+        }
+
+        assertEquals(-1, cache.getNextSlot(0, 0));
+    }
+
+    @Test
+    public void keepsBusyDestinationsAgainstOneOffDestinations() {
+        final RoutingTreeCache cache = new RoutingTreeCache(network, 2);
+        final int cycles = 40;
+
+        // Two busy destinations and a new one in each cycle. A plain LRU 
+        // cache would evict a busy tree in each cycle.
+        for (int cycle = 0; cycle < cycles; ++cycle) {
+            cache.getNextSlot(50, 0);
+            cache.getNextSlot(51, 0);
+            cache.getNextSlot(50, 1);
+            cache.getNextSlot(51, 1);
+            cache.getNextSlot(99, 10 + cycle);
+            cache.age();
+        }
+
+        assertEquals(2 + cycles, cache.getMisses());
+        assertEquals(cycles, cache.getRejections());
+        assertEquals(4 * cycles - 2, cache.getHits());
+    }
+
+    @Test
+    public void reusesRejectedTree() {
+        final RoutingTreeCache cache = new RoutingTreeCache(network, 1);
+
+        cache.getNextSlot(50, 0);
+        cache.getNextSlot(51, 0);
+        assertEquals(98, getNextRouter(cache, 99, 10));
+        assertEquals(10, getNextRouter(cache, 11, 10));
+
+        assertEquals(2, cache.getMisses());
+        assertEquals(1, cache.getRejections());
+        assertEquals(2, cache.getHits());
+    }
+
+    private int getNextRouter(final RoutingTreeCache cache,
+                              final int router,
+                              final int destination) {
+        return network.getNeighbor(router, 
+                                   cache.getNextSlot(router, destination));
+    }
+}
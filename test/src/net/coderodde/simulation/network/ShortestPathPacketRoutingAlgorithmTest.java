@@ -0,0 +1,144 @@
+package net.coderodde.simulation.network;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import net.coderodde.simulation.network.topology.TopologyGenerator;
+import org.junit.Test;
+
+import static net.coderodde.simulation.network.StatisticsAssert.assertCloseStatistics;
+import static net.coderodde.simulation.network.StatisticsAssert.assertSameFile;
+import static net.coderodde.simulation.network.StatisticsAssert.assertSameIntegerStatistics;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * This class tests {@link ShortestPathPacketRoutingAlgorithm}: the all-pairs 
+ * and the lazy mode must route the packets identically, and both must reject
+ * the packets between the components <tt>{0, 1}</tt> and <tt>{2, 3}</tt> of
+ * a network.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+public class ShortestPathPacketRoutingAlgorithmTest {
+
+    @Test
+    public void allPairsTableMatchesRoutingTreesOnTorus() throws IOException {
+        assertAllPairsTableMatchesRoutingTrees(
+                TopologyGenerator.torus(30, 20).generate(1L).getPacketRouters());
+    }
+
+    @Test
+    public void allPairsTableMatchesRoutingTreesOnRandomNetwork() 
+    throws IOException {
+        assertAllPairsTableMatchesRoutingTrees(
+                TestNetworks.random(600, 1800, 1L));
+    }
+
+    @Test
+    public void rejectsUnreachableTargetWithAllPairsTable() {
+        assertUnreachable(0, 2, 0);
+        assertUnreachable(0, 0, 3);
+    }
+
+    @Test
+    public void rejectsUnreachableTargetWithRoutingTreeCache() {
+        assertUnreachable(1, 2, 0);
+        assertUnreachable(1, 0, 3);
+    }
+
+    @Test
+    public void routesWithinComponent() {
+        final List<PacketRouter> network = buildNetwork();
+        final List<Packet> packetList = 
+                Arrays.asList(new Packet(0, network.get(0), network.get(1)),
+                              new Packet(1, network.get(3), network.get(2)));
+
+        for (final int capacity : new int[]{ 0, 1 }) {
+            final ShortestPathPacketRoutingAlgorithm algorithm = 
+                    new ShortestPathPacketRoutingAlgorithm();
+            algorithm.setRoutingTreeCacheCapacity(capacity);
+
+            final SimulationStatistics statistics = 
+                    algorithm.simulate(network, packetList);
+
+            // One hop, plus the initialization.
+            assertEquals(2, statistics.getMaximumTransmissionDuration());
+        }
+    }
+
+    private static void assertAllPairsTableMatchesRoutingTrees(
+            final List<PacketRouter> network) throws IOException {
+        final List<Packet> packetList = 
+                TestNetworks.uniformPackets(network, 2000, 1L);
+        final Path directory = Files.createTempDirectory("shortest-path");
+
+        try {
+            final ShortestPathPacketRoutingAlgorithm allPairs = 
+                    new ShortestPathPacketRoutingAlgorithm();
+            final ShortestPathPacketRoutingAlgorithm lazy = 
+                    new ShortestPathPacketRoutingAlgorithm();
+            final Path allPairsTrace = directory.resolve("all-pairs.bin");
+            final Path lazyTrace = directory.resolve("lazy.bin");
+
+            allPairs.setHopTracePath(allPairsTrace);
+            lazy.setHopTracePath(lazyTrace);
+            lazy.setRoutingTreeCacheCapacity(16);
+
+            final SimulationStatistics expected = 
+                    allPairs.simulate(network, packetList);
+            final SimulationStatistics actual = 
+                    lazy.simulate(network, packetList);
+
+            // Only the counters of the routing tree cache may differ.
+            assertSameIntegerStatistics(expected, actual);
+            assertCloseStatistics(expected, actual, 0.0);
+            assertSameFile(allPairsTrace, lazyTrace);
+        } finally {
+            AbstractPacketRoutingAlgorithmTest.deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Simulates a single packet from {@code sourceId} to {@code targetId}, 
+     * and expects the target to be reported unreachable.
+     */
+    private static void assertUnreachable(final int cacheCapacity,
+                                          final int sourceId,
+                                          final int targetId) {
+        final List<PacketRouter> network = buildNetwork();
+        final List<Packet> packetList = 
+                Arrays.asList(new Packet(0, 
+                                         network.get(sourceId),
+                                         network.get(targetId)));
+        final ShortestPathPacketRoutingAlgorithm algorithm = 
+                new ShortestPathPacketRoutingAlgorithm();
+        algorithm.setRoutingTreeCacheCapacity(cacheCapacity);
+
+        try {
+            algorithm.simulate(network, packetList);
+            fail("The packet " + sourceId + " -> " + targetId + 
+                 " was routed.");
+        } catch (final IllegalStateException ex) {
+            assertEquals("Packet router " + targetId + 
+                         " is not reachable from packet router " + 
+                         sourceId + ".",
+                         ex.getMessage());
+        }
+    }
+
+    private static List<PacketRouter> buildNetwork() {
+        final List<PacketRouter> network = 
+                Arrays.asList(new PacketRouter(0),
+                              new PacketRouter(1),
+                              new PacketRouter(2),
+                              new PacketRouter(3));
+
+        network.get(0).connect(network.get(1));
+        network.get(2).connect(network.get(3));
+        return network;
+    }
+}
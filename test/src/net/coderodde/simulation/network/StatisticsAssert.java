@@ -0,0 +1,130 @@
+package net.coderodde.simulation.network;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * This class compares the results of simulation runs.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+final class StatisticsAssert {
+
+    /**
+     * The percentiles compared between two histograms.
+     */
+    private static final double[] PERCENTILES = { 0.0, 50.0, 90.0, 99.0, 100.0 };
+
+    private StatisticsAssert() {}
+
+    /**
+     * Asserts that two runs produced the same statistics, counters included,
+     * down to the last bit of every floating-point value.
+     */
+    static void assertSameStatistics(final SimulationStatistics expected,
+                                     final SimulationStatistics actual) {
+        assertNotNull(expected);
+        assertNotNull(actual);
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    /**
+     * Asserts that the integer-valued statistics of two runs, the histograms 
+     * included, are the same. The counters are not compared.
+     */
+    static void assertSameIntegerStatistics(final SimulationStatistics expected,
+                                            final SimulationStatistics actual) {
+        assertNotNull(expected);
+        assertNotNull(actual);
+        assertEquals("network cycles",
+                     expected.getNetworkCycles(),
+                     actual.getNetworkCycles());
+        assertEquals("minimum queue length",
+                     expected.getMinimumQueueLength(),
+                     actual.getMinimumQueueLength());
+        assertEquals("maximum queue length",
+                     expected.getMaximumQueueLength(),
+                     actual.getMaximumQueueLength());
+        assertEquals("minimum transmission duration",
+                     expected.getMinimumTransmissionDuration(),
+                     actual.getMinimumTransmissionDuration());
+        assertEquals("maximum transmission duration",
+                     expected.getMaximumTransmissionDuration(),
+                     actual.getMaximumTransmissionDuration());
+        assertSameHistogram("queue length",
+                            expected.getQueueLengthHistogram(),
+                            actual.getQueueLengthHistogram());
+        assertSameHistogram("transmission duration",
+                            expected.getTransmissionDurationHistogram(),
+                            actual.getTransmissionDurationHistogram());
+        assertSameHistogram("hop count",
+                            expected.getHopCountHistogram(),
+                            actual.getHopCountHistogram());
+    }
+
+    /**
+     * Asserts that the floating-point statistics of two runs agree within 
+     * the relative error {@code tolerance}.
+     */
+    static void assertCloseStatistics(final SimulationStatistics expected,
+                                      final SimulationStatistics actual,
+                                      final double tolerance) {
+        assertClose("average queue length",
+                    expected.getAverageQueueLength(),
+                    actual.getAverageQueueLength(),
+                    tolerance);
+        assertClose("queue length s.d.",
+                    expected.getQueueLengthStandardDeviation(),
+                    actual.getQueueLengthStandardDeviation(),
+                    tolerance);
+        assertClose("average transmission duration",
+                    expected.getAverageTransmissionDuration(),
+                    actual.getAverageTransmissionDuration(),
+                    tolerance);
+        assertClose("transmission duration s.d.",
+                    expected.getTransmissionDurationStandardDeviation(),
+                    actual.getTransmissionDurationStandardDeviation(),
+                    tolerance);
+    }
+
+    /**
+     * Asserts that two files, such as hop traces, have the same contents.
+     */
+    static void assertSameFile(final Path expected, final Path actual) {
+        try {
+            assertArrayEquals(Files.readAllBytes(expected), 
+                              Files.readAllBytes(actual));
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static void assertSameHistogram(final String name,
+                                            final HistogramSnapshot expected,
+                                            final HistogramSnapshot actual) {
+        assertEquals(name + " count", expected.getCount(), actual.getCount());
+
+        for (final double percentile : PERCENTILES) {
+            assertEquals(name + " p" + percentile,
+                         expected.getValueAtPercentile(percentile),
+                         actual.getValueAtPercentile(percentile));
+        }
+    }
+
+    private static void assertClose(final String name,
+                                    final double expected,
+                                    final double actual,
+                                    final double tolerance) {
+        assertEquals(name, 
+                     expected, 
+                     actual, 
+                     tolerance * Math.max(1.0, Math.abs(expected)));
+    }
+}
@@ -0,0 +1,122 @@
+package net.coderodde.simulation.network;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import net.coderodde.simulation.network.topology.ConnectivityPolicy;
+import net.coderodde.simulation.network.topology.TopologyGenerator;
+
+/**
+ * This class builds the networks and the packet lists of the tests. All of 
+ * them depend only on their arguments.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.6 (Jul 18, 2016)
+ */
+final class TestNetworks {
+
+    private TestNetworks() {}
+
+    /**
+     * Builds a connected random network with {@code size} routers and about
+     * {@code links} links.
+     *
+     * @param size  the number of routers.
+     * @param links the number of links.
+     * @param seed  the seed of the random links.
+     * @return the network.
+     */
+    static List<PacketRouter> random(final int size,
+                                     final int links,
+                                     final long seed) {
+        return TopologyGenerator.random(size, links)
+                                .generate(seed,
+                                          ConnectivityPolicy.BRIDGE_COMPONENTS)
+                                .getPacketRouters();
+    }
+
+    /**
+     * Builds a line of {@code size} routers, each linked to the previous 
+     * one.
+     *
+     * @param size the number of routers.
+     * @return the network.
+     */
+    static List<PacketRouter> line(final int size) {
+        final List<PacketRouter> network = new ArrayList<>(size);
+
+        for (int id = 0; id < size; ++id) {
+            final PacketRouter packetRouter = new PacketRouter(id);
+
+            if (id > 0) {
+                packetRouter.connect(network.get(id - 1));
+            }
+
+            network.add(packetRouter);
+        }
+
+        return network;
+    }
+
+    /**
+     * Creates {@code numberOfPackets} packets with uniformly chosen distinct
+     * terminals.
+     *
+     * @param network         the network.
+     * @param numberOfPackets the number of packets.
+     * @param seed            the seed.
+     * @return the packet list.
+     */
+    static List<Packet> uniformPackets(final List<PacketRouter> network,
+                                       final int numberOfPackets,
+                                       final long seed) {
+        final SplittableRandom random = new SplittableRandom(seed);
+        final List<Packet> packetList = new ArrayList<>(numberOfPackets);
+
+        for (int id = 0; id < numberOfPackets; ++id) {
+            final int sourceIndex = random.nextInt(network.size());
+            int targetIndex = random.nextInt(network.size() - 1);
+
+            if (targetIndex >= sourceIndex) {
+                ++targetIndex;
+            }
+
+            packetList.add(new Packet(id,
+                                      network.get(sourceIndex),
+                                      network.get(targetIndex)));
+        }
+
+        return packetList;
+    }
+
+    /**
+     * Creates a packet from every router to one of at least two target 
+     * routers {@code targets}, chosen at random, so that each router has a 
+     * packet to send at the first cycle.
+     *
+     * @param network the network.
+     * @param targets the indices of the target routers.
+     * @param seed    the seed.
+     * @return the packet list.
+     */
+    static List<Packet> packetsFromEveryRouter(final List<PacketRouter> network,
+                                               final int[] targets,
+                                               final long seed) {
+        final SplittableRandom random = new SplittableRandom(seed);
+        final List<Packet> packetList = new ArrayList<>(network.size());
+
+        for (int index = 0; index < network.size(); ++index) {
+            int i = random.nextInt(targets.length);
+
+            if (targets[i] == index) {
+                i = (i + 1) % targets.length;
+            }
+
+            packetList.add(new Packet(index,
+                                      network.get(index),
+                                      network.get(targets[i])));
+        }
+
+        return packetList;
+    }
+}